@@ -1,8 +1,10 @@
 package Section6.LinkedListChallenge;
 
-import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Java Programming Masterclass for Software Developers
@@ -18,37 +20,109 @@ import java.util.List;
  *
  * With the most recent being displayed first.
  *
+ * The total duration of the album is kept up to date
+ * as songs are added and removed, so it never needs
+ * to be recalculated from the individual songs.
+ *
+ * Songs may be added and removed while other threads
+ * read the album, which is given a copy of the song
+ * list that is only remade after a change.
+ *
+ * Like a song, the title and artist are kept as
+ * ids into the shared symbol table.
+ *
  * @author Ben Silveston
  */
 class Album {
-    private String title;
-    private String artist;
-    private int duration;
-    private Timestamp timestamp;
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final int id;
+    private int titleId;
+    private int artistId;
+    private volatile int duration;
+    private long addedTime;
     private ArrayList<Song> songs;
 
+    /**
+     * The read-only copy of the song list handed out
+     * to readers, or null once it needs remaking.
+     */
+    private volatile List<Song> songsSnapshot;
+
     /**
      * Constructor
      *
      * @param title The title of the album
      * @param artist The artist of the album
-     * @param timestamp The current time represented as a timestamp
+     * @param addedTime The time the album is added, in epoch milliseconds, or SongStore.NO_TIME
      */
-    Album(String title, String artist, Timestamp timestamp) {
-        this.title = title;
-        this.artist = artist;
+    Album(String title, String artist, long addedTime) {
+        this.titleId = SymbolTable.SHARED.intern(title);
+        this.artistId = SymbolTable.SHARED.intern(artist);
+        this.id = NEXT_ID.getAndIncrement();
         this.duration = 0;
-        this.timestamp = timestamp;
+        this.addedTime = addedTime;
         this.songs = new ArrayList<>();
     }
 
+    /**
+     * Constructor
+     *
+     * This constructor will be used when the
+     * title and artist are already held in the
+     * shared symbol table.
+     *
+     * @param titleId The id of the title in the shared symbol table
+     * @param artistId The id of the artist, or SymbolTable.NONE if there is none
+     * @param addedTime The time the album is added, in epoch milliseconds, or SongStore.NO_TIME
+     */
+    Album(int titleId, int artistId, long addedTime) {
+        this.titleId = titleId;
+        this.artistId = artistId;
+        this.id = NEXT_ID.getAndIncrement();
+        this.duration = 0;
+        this.addedTime = addedTime;
+        this.songs = new ArrayList<>();
+    }
+
+    /**
+     * Get the id of the album, which
+     * its songs are marked with in the
+     * shared song store.
+     *
+     * @return The id
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Get the id of the title
+     * in the shared symbol table.
+     *
+     * @return The id of the title
+     */
+    int getTitleId() {
+        return titleId;
+    }
+
+    /**
+     * Get the id of the artist
+     * in the shared symbol table.
+     *
+     * @return The id of the artist, or SymbolTable.NONE if there is none
+     */
+    int getArtistId() {
+        return artistId;
+    }
+
     /**
      * Get the current title of the album
      *
      * @return The current title
      */
     String getTitle() {
-        return title;
+        return SymbolTable.SHARED.get(this.titleId);
     }
 
     /**
@@ -58,13 +132,16 @@ class Album {
      * @return The current name of the artist
      */
     String getArtist() {
-        return artist;
+        return SymbolTable.SHARED.get(this.artistId);
     }
 
     /**
      * Get the current duration
      * of the album.
      *
+     * This is the total duration of
+     * all songs in the album.
+     *
      * @return The current duration of the album
      */
     int getDuration() {
@@ -72,27 +149,146 @@ class Album {
     }
 
     /**
-     * Get the timestamp representing
-     * the current time for the album.
+     * Get the time the album was added.
      *
      * This method will be used for ordering
      * all albums in chronological order for
      * the playlist.
      *
-     * @return The current time, represented as a timestamp
+     * @return The time in epoch milliseconds, or SongStore.NO_TIME if none was recorded
      */
-    Timestamp getTimestamp() {
-        return timestamp;
+    long getAddedTime() {
+        return addedTime;
     }
 
     /**
      * Get the current song list
      * for the album.
      *
-     * @return The current song list
+     * Songs must be added and removed
+     * through addSong() and removeSong(),
+     * so that the album's duration
+     * stays up to date.
+     *
+     * @return A read-only copy of the current song list
      */
     List<Song> getSongs() {
-        return songs;
+        List<Song> snapshot = this.songsSnapshot;
+        if(snapshot == null) {
+            synchronized(this) {
+                snapshot = Collections.unmodifiableList(new ArrayList<>(this.songs));
+                this.songsSnapshot = snapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Find a song in the album
+     * using its title.
+     *
+     * @param songTitle The title of the song
+     * @return The song, or null if it is not in the album
+     */
+    synchronized Song findSong(String songTitle) {
+        for(Song albumSong : this.songs) {
+            if(songTitle.equalsIgnoreCase(albumSong.getTitle())) {
+                return albumSong;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of songs
+     * in the album.
+     *
+     * @return The number of songs
+     */
+    synchronized int getNumberOfSongs() {
+        return songs.size();
+    }
+
+    /**
+     * Add a song to the end of the album,
+     * adding its duration to the album's.
+     *
+     * @param song The song to be added
+     */
+    synchronized void addSong(Song song) {
+        this.songs.add(song);
+        this.songsSnapshot = null;
+        this.duration += song.getDuration();
+        SongStore.SHARED.setAlbumId(song.getRow(), this.id);
+    }
+
+    /**
+     * Add a batch of songs to the end of the album,
+     * adding their durations to the album's.
+     *
+     * The list of songs grows at most once, and
+     * the album's copy is only thrown away once.
+     *
+     * @param newSongs The songs to be added
+     */
+    synchronized void addSongs(List<Song> newSongs) {
+        if(newSongs.isEmpty()) {
+            return;
+        }
+        this.songs.addAll(newSongs);
+        this.songsSnapshot = null;
+        for(Song song : newSongs) {
+            this.duration += song.getDuration();
+            SongStore.SHARED.setAlbumId(song.getRow(), this.id);
+        }
+    }
+
+    /**
+     * Remove a batch of songs from the album,
+     * taking their durations away from the album's.
+     *
+     * The list of songs is closed up in a single
+     * pass, rather than once for each song removed.
+     *
+     * @param oldSongs The songs to be removed
+     * @return The number of songs removed
+     */
+    synchronized int removeSongs(Set<Song> oldSongs) {
+        if(oldSongs.isEmpty()) {
+            return 0;
+        }
+        int before = this.songs.size();
+        this.songs.removeIf(song -> {
+            if(!oldSongs.contains(song)) {
+                return false;
+            }
+            this.duration -= song.getDuration();
+            if(song.getAlbumId() == this.id) {
+                SongStore.SHARED.setAlbumId(song.getRow(), SongStore.NO_ALBUM);
+            }
+            return true;
+        });
+        this.songsSnapshot = null;
+        return before - this.songs.size();
+    }
+
+    /**
+     * Remove a song from the album,
+     * taking its duration away from the album's.
+     *
+     * @param song The song to be removed
+     * @return True if the song was removed, false if it was not in the album
+     */
+    synchronized boolean removeSong(Song song) {
+        if(!this.songs.remove(song)) {
+            return false;
+        }
+        this.songsSnapshot = null;
+        this.duration -= song.getDuration();
+        if(song.getAlbumId() == this.id) {
+            SongStore.SHARED.setAlbumId(song.getRow(), SongStore.NO_ALBUM);
+        }
+        return true;
     }
 
     /**
@@ -101,31 +297,25 @@ class Album {
      * the number of songs and their
      * respective durations.
      *
+     * The total is maintained as songs
+     * are added and removed, so this no
+     * longer needs to visit every song.
+     *
      * @return The total album duration
      */
     int calculateAlbumDuration() {
-        int totalDuration = this.duration;
-        for(int i = 0; i < this.getSongs().size(); i++) {
-            totalDuration += this.getSongs().get(i).getDuration();
-        }
-        return totalDuration;
+        return this.duration;
     }
 
     /**
      * Format the total duration
-     * of a song (in seconds) in the time
+     * of an album (in seconds) in the time
      * format string of : "hh:mm:ss".
      *
      * @param duration The duration of the album (in seconds)
      * @return The formatted time as described above
      */
     String formatAlbumDuration(int duration) {
-        int hours = duration / 60 / 60;
-        int minutes = duration / 60;
-        int seconds = duration % 60;
-        String formattedHours = String.format("%02d", hours);
-        String formattedMinutes = String.format("%02d", minutes);
-        String formattedSeconds = String.format("%02d", seconds);
-        return formattedHours + ":" + formattedMinutes + ":" + formattedSeconds;
+        return DurationFormatter.formatAlbumDuration(duration);
     }
 }
\ No newline at end of file
@@ -0,0 +1,407 @@
+package Section6.LinkedListChallenge;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will import a catalogue of songs
+ * into the library from a delimited (CSV or TSV) file.
+ *
+ * Each row of the file holds the following columns:
+ *  - song title
+ *  - song artist
+ *  - album title (left empty for songs that are not on an album)
+ *  - song duration (in seconds, or as "mm:ss")
+ *
+ * The file is streamed through a fixed-size buffer rather than
+ * being read into memory, so catalogues of any size can be imported.
+ * Rows are parsed into batches, with each batch then being added
+ * to the library in one go. Songs whose titles are already stored
+ * in the library (or album) are skipped.
+ *
+ * @author Ben Silveston
+ */
+class CatalogueImporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int COLUMNS = 4;
+
+    private Library library;
+    private byte delimiter;
+
+    /**
+     * A single parsed row of the catalogue.
+     */
+    private static class Row {
+        private final String title;
+        private final String artist;
+        private final String album;
+        private final int duration;
+
+        /**
+         * Constructor
+         *
+         * @param title The title of the song
+         * @param artist The artist of the song
+         * @param album The album of the song, or an empty String
+         * @param duration The duration of the song (in seconds)
+         */
+        private Row(String title, String artist, String album, int duration) {
+            this.title = title;
+            this.artist = artist;
+            this.album = album;
+            this.duration = duration;
+        }
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    static class Result {
+        private final long rowsRead;
+        private final long songsAdded;
+        private final long duplicatesSkipped;
+        private final long rowsRejected;
+        private final long elapsedNanos;
+
+        /**
+         * Constructor
+         *
+         * @param rowsRead The number of data rows read from the file
+         * @param songsAdded The number of songs added to the library
+         * @param duplicatesSkipped The number of songs skipped as they were already stored
+         * @param rowsRejected The number of rows that could not be parsed
+         * @param elapsedNanos The time taken by the import (in nanoseconds)
+         */
+        private Result(long rowsRead, long songsAdded, long duplicatesSkipped,
+                       long rowsRejected, long elapsedNanos) {
+            this.rowsRead = rowsRead;
+            this.songsAdded = songsAdded;
+            this.duplicatesSkipped = duplicatesSkipped;
+            this.rowsRejected = rowsRejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Get the number of data rows
+         * read from the file.
+         *
+         * @return The number of rows read
+         */
+        long getRowsRead() {
+            return rowsRead;
+        }
+
+        /**
+         * Get the number of songs
+         * added to the library.
+         *
+         * @return The number of songs added
+         */
+        long getSongsAdded() {
+            return songsAdded;
+        }
+
+        /**
+         * Get the number of songs skipped
+         * as they were already stored.
+         *
+         * @return The number of duplicates skipped
+         */
+        long getDuplicatesSkipped() {
+            return duplicatesSkipped;
+        }
+
+        /**
+         * Get the number of rows
+         * that could not be parsed.
+         *
+         * @return The number of rows rejected
+         */
+        long getRowsRejected() {
+            return rowsRejected;
+        }
+
+        /**
+         * Get the time taken
+         * by the import.
+         *
+         * @return The elapsed time (in nanoseconds)
+         */
+        long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Get the import throughput.
+         *
+         * @return The number of rows read per second
+         */
+        double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        /**
+         * Summarise the import
+         * for display to the user.
+         *
+         * @return The summary
+         */
+        @Override
+        public String toString() {
+            return String.format("Read %,d rows in %,.1f ms (%,.0f rows/sec): " +
+                            "%,d songs added, %,d duplicates skipped, %,d rows rejected.",
+                    rowsRead, elapsedNanos / 1_000_000.0, getRowsPerSecond(),
+                    songsAdded, duplicatesSkipped, rowsRejected);
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param library The library that songs will be imported into
+     * @param delimiter The character separating the columns of each row
+     */
+    CatalogueImporter(Library library, char delimiter) {
+        this.library = library;
+        this.delimiter = (byte) delimiter;
+    }
+
+    /**
+     * Create an importer for a given file,
+     * choosing the delimiter from its extension.
+     *
+     * Files ending in ".tsv" or ".tab" are read as tab
+     * separated, while all others are read as comma separated.
+     *
+     * @param library The library that songs will be imported into
+     * @param file The catalogue file
+     * @return The new importer
+     */
+    static CatalogueImporter forFile(Library library, Path file) {
+        String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean tabSeparated = fileName.endsWith(".tsv") || fileName.endsWith(".tab");
+        return new CatalogueImporter(library, tabSeparated ? '\t' : ',');
+    }
+
+    /**
+     * Import all songs from a catalogue file.
+     *
+     * If the first row does not have a numeric
+     * duration then it is treated as a header row
+     * and is skipped.
+     *
+     * Double quotes are only treated specially in comma
+     * separated files, where they may surround a field
+     * containing commas (with "" representing a quote).
+     *
+     * @param file The catalogue file
+     * @return The outcome of the import
+     * @throws IOException If the file could not be read
+     */
+    Result importFrom(Path file) throws IOException {
+        long start = System.nanoTime();
+        boolean quoting = this.delimiter == ',';
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        byte[] field = new byte[256];
+        int fieldLength = 0;
+        String[] columns = new String[COLUMNS];
+        int column = 0;
+        boolean inQuotes = false;
+        boolean closedQuote = false;
+        boolean firstRow = true;
+        long rowsRead = 0;
+        long rowsRejected = 0;
+        long[] applied = new long[2];
+        List<Row> batch = new ArrayList<>(BATCH_SIZE);
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean endOfFile = false;
+            while(!endOfFile) {
+                buffer.clear();
+                endOfFile = channel.read(buffer) < 0;
+                buffer.flip();
+
+                // A final pass with an empty buffer ends any row missing its trailing newline
+                boolean flushRow = endOfFile && (fieldLength > 0 || column > 0);
+                while(buffer.hasRemaining() || flushRow) {
+                    byte next = flushRow ? (byte) '\n' : buffer.get();
+                    flushRow = false;
+
+                    if(quoting && next == '"') {
+                        if(inQuotes) {
+                            inQuotes = false;
+                            closedQuote = true;
+                            continue;
+                        }
+                        if(closedQuote) {
+                            // "" inside a quoted field is a literal quote
+                            inQuotes = true;
+                            closedQuote = false;
+                        }
+                        else if(fieldLength == 0) {
+                            inQuotes = true;
+                            continue;
+                        }
+                    }
+                    else {
+                        closedQuote = false;
+                    }
+
+                    if(!inQuotes && (next == this.delimiter || next == '\n')) {
+                        if(column < COLUMNS) {
+                            columns[column] = new String(field, 0, fieldLength, StandardCharsets.UTF_8).trim();
+                        }
+                        column++;
+                        fieldLength = 0;
+                        if(next == '\n') {
+                            Row row = parseRow(columns, column);
+                            if(row != null) {
+                                rowsRead++;
+                                batch.add(row);
+                                if(batch.size() == BATCH_SIZE) {
+                                    applyBatch(batch, applied);
+                                }
+                            }
+                            else if(!firstRow) {
+                                rowsRead++;
+                                rowsRejected++;
+                            }
+                            firstRow = false;
+                            Arrays.fill(columns, null);
+                            column = 0;
+                        }
+                    }
+                    else if(inQuotes || next != '\r') {
+                        if(fieldLength == field.length) {
+                            field = Arrays.copyOf(field, field.length * 2);
+                        }
+                        field[fieldLength++] = next;
+                    }
+                }
+            }
+        }
+        applyBatch(batch, applied);
+        return new Result(rowsRead, applied[0], applied[1], rowsRejected, System.nanoTime() - start);
+    }
+
+    /**
+     * Convert the columns of a row
+     * into a song to be imported.
+     *
+     * @param columns The column values
+     * @param columnCount The number of columns found in the row
+     * @return The parsed row, or null if it is not valid
+     */
+    private static Row parseRow(String[] columns, int columnCount) {
+        if(columnCount < COLUMNS || columns[0].isEmpty()) {
+            return null;
+        }
+        int duration = parseDuration(columns[3]);
+        if(duration < 0) {
+            return null;
+        }
+        return new Row(columns[0], columns[1], columns[2], duration);
+    }
+
+    /**
+     * Parse a song duration, given either
+     * in seconds or in the format "mm:ss".
+     *
+     * @param text The duration text
+     * @return The duration (in seconds), or -1 if it is not valid
+     */
+    static int parseDuration(String text) {
+        int separator = text.indexOf(':');
+        try {
+            if(separator < 0) {
+                return Math.max(-1, Integer.parseInt(text));
+            }
+            int minutes = Integer.parseInt(text.substring(0, separator));
+            int seconds = Integer.parseInt(text.substring(separator + 1));
+            return minutes < 0 || seconds < 0 || seconds > 59 ? -1 : minutes * 60 + seconds;
+        }
+        catch(NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Add a batch of parsed rows
+     * to the library.
+     *
+     * The songs without an album are added to
+     * the library as one batch, and the songs of
+     * each album as one batch per album, so each
+     * batch is checked and stored in a single pass.
+     *
+     * @param batch The rows to add, which will be cleared afterwards
+     * @param applied The running totals of songs added [0] and duplicates skipped [1]
+     */
+    private void applyBatch(List<Row> batch, long[] applied) {
+        List<Row> songRows = new ArrayList<>();
+        Map<String, List<Row>> albumRows = new LinkedHashMap<>();
+        for(Row row : batch) {
+            if(row.album.isEmpty()) {
+                songRows.add(row);
+            }
+            else {
+                albumRows.computeIfAbsent(Library.titleKey(row.album), key -> new ArrayList<>()).add(row);
+            }
+        }
+
+        String[] titles = new String[songRows.size()];
+        String[] artists = new String[songRows.size()];
+        int[] durations = new int[songRows.size()];
+        for(int i = 0; i < titles.length; i++) {
+            Row row = songRows.get(i);
+            titles[i] = row.title;
+            artists[i] = row.artist;
+            durations[i] = row.duration;
+        }
+        count(this.library.addSongsToLibrary(titles, artists, durations), applied);
+
+        for(List<Row> rows : albumRows.values()) {
+            Row first = rows.get(0);
+            if(!this.library.albumExistsInLibrary(first.album)) {
+                this.library.addAlbumToLibrary(first.album, first.artist);
+            }
+            titles = new String[rows.size()];
+            durations = new int[rows.size()];
+            for(int i = 0; i < titles.length; i++) {
+                titles[i] = rows.get(i).title;
+                durations[i] = rows.get(i).duration;
+            }
+            count(this.library.addSongsToAlbum(first.album, titles, durations), applied);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Add the results of a batch
+     * to the running totals.
+     *
+     * @param added For each song, true if it was added
+     * @param applied The running totals of songs added [0] and duplicates skipped [1]
+     */
+    private static void count(boolean[] added, long[] applied) {
+        for(boolean songAdded : added) {
+            applied[songAdded ? 0 : 1]++;
+        }
+    }
+}
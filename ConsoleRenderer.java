@@ -0,0 +1,129 @@
+package Section6.LinkedListChallenge;
+
+import java.io.PrintStream;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will render listings (e.g. every song
+ * in the library) to the console.
+ *
+ * Rather than printing each item separately, every item is
+ * built into one large buffer which is only written out once
+ * it is full, so a listing of many thousands of songs needs
+ * only a handful of writes to the console.
+ *
+ * Listings can also be shown page by page, in which case the
+ * user is asked whether to continue after each page.
+ *
+ * @author Ben Silveston
+ */
+class ConsoleRenderer {
+    static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private PrintStream out;
+    private StringBuilder buffer;
+    private int chunkSize;
+    private int pageSize;
+    private BooleanSupplier nextPage;
+    private int itemsOnPage;
+
+    /**
+     * Constructor
+     *
+     * @param out The stream that listings are written to
+     * @param chunkSize The number of characters gathered before each write
+     * @param pageSize The number of items on each page, or 0 to show every item at once
+     * @param nextPage Asks whether to show the next page, returning false to stop the listing
+     */
+    ConsoleRenderer(PrintStream out, int chunkSize, int pageSize, BooleanSupplier nextPage) {
+        this.out = out;
+        this.chunkSize = chunkSize;
+        this.buffer = new StringBuilder(chunkSize + 256);
+        this.pageSize = pageSize;
+        this.nextPage = nextPage;
+    }
+
+    /**
+     * Constructor
+     *
+     * This constructor will show every
+     * item in a listing at once.
+     *
+     * @param out The stream that listings are written to
+     */
+    ConsoleRenderer(PrintStream out) {
+        this(out, DEFAULT_CHUNK_SIZE, 0, () -> true);
+    }
+
+    /**
+     * Add a line of text, such as a heading,
+     * that is not one of the listed items.
+     *
+     * @param text The text of the line
+     */
+    void appendLine(CharSequence text) {
+        this.buffer.append(text).append('\n');
+        writeIfFull();
+    }
+
+    /**
+     * Start the next item in the listing.
+     *
+     * The item is built by appending to the returned
+     * buffer, followed by a call to endItem().
+     *
+     * @return The buffer to append the item to
+     */
+    StringBuilder startItem() {
+        return this.buffer;
+    }
+
+    /**
+     * Finish the current item.
+     *
+     * If this completes a page then everything so far is
+     * written out and the user is asked whether to continue.
+     *
+     * @return True to carry on with the listing, false if the user stopped it
+     */
+    boolean endItem() {
+        this.buffer.append('\n');
+        if(this.pageSize > 0 && ++this.itemsOnPage == this.pageSize) {
+            this.itemsOnPage = 0;
+            flush();
+            return this.nextPage.getAsBoolean();
+        }
+        writeIfFull();
+        return true;
+    }
+
+    /**
+     * Write out everything gathered so far.
+     *
+     * This must be called at the end
+     * of every listing.
+     */
+    void flush() {
+        if(this.buffer.length() > 0) {
+            this.out.append(this.buffer);
+            this.buffer.setLength(0);
+        }
+        this.out.flush();
+    }
+
+    /**
+     * Write out the buffer once
+     * it has reached the chunk size.
+     */
+    private void writeIfFull() {
+        if(this.buffer.length() >= this.chunkSize) {
+            this.out.append(this.buffer);
+            this.buffer.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package Section6.LinkedListChallenge;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will format song and album durations
+ * (in seconds) for display.
+ *
+ * The digits are written straight into a StringBuilder
+ * supplied by the caller, so when listing a large number of
+ * songs one StringBuilder can be reused for every line, with no
+ * intermediate Strings being created for each duration.
+ *
+ * @author Ben Silveston
+ */
+final class DurationFormatter {
+    /**
+     * Constructor
+     *
+     * This class only provides static methods.
+     */
+    private DurationFormatter() {
+    }
+
+    /**
+     * Append a song duration in
+     * the format of "mm:ss".
+     *
+     * Songs of 100 minutes or more are
+     * shown with as many minute digits as needed.
+     *
+     * @param builder The StringBuilder to append to
+     * @param duration The duration of the song (in seconds)
+     * @return The same StringBuilder
+     */
+    static StringBuilder appendSongDuration(StringBuilder builder, int duration) {
+        if(duration < 0) {
+            builder.append('-');
+            duration = -duration;
+        }
+        appendAtLeastTwoDigits(builder, duration / 60);
+        builder.append(':');
+        return appendTwoDigits(builder, duration % 60);
+    }
+
+    /**
+     * Append an album duration in
+     * the format of "hh:mm:ss".
+     *
+     * @param builder The StringBuilder to append to
+     * @param duration The duration of the album (in seconds)
+     * @return The same StringBuilder
+     */
+    static StringBuilder appendAlbumDuration(StringBuilder builder, int duration) {
+        if(duration < 0) {
+            builder.append('-');
+            duration = -duration;
+        }
+        appendAtLeastTwoDigits(builder, duration / 3600);
+        builder.append(':');
+        appendTwoDigits(builder, duration / 60 % 60);
+        builder.append(':');
+        return appendTwoDigits(builder, duration % 60);
+    }
+
+    /**
+     * Format a song duration as
+     * a String in the format of "mm:ss".
+     *
+     * @param duration The duration of the song (in seconds)
+     * @return The formatted duration
+     */
+    static String formatSongDuration(int duration) {
+        return appendSongDuration(new StringBuilder(8), duration).toString();
+    }
+
+    /**
+     * Format an album duration as
+     * a String in the format of "hh:mm:ss".
+     *
+     * @param duration The duration of the album (in seconds)
+     * @return The formatted duration
+     */
+    static String formatAlbumDuration(int duration) {
+        return appendAlbumDuration(new StringBuilder(8), duration).toString();
+    }
+
+    /**
+     * Append a number between 0 and 99
+     * as exactly two digits.
+     *
+     * @param builder The StringBuilder to append to
+     * @param value The number
+     * @return The same StringBuilder
+     */
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value) {
+        return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Append a number as at least two
+     * digits, padding it with a zero if needed.
+     *
+     * @param builder The StringBuilder to append to
+     * @param value The number
+     * @return The same StringBuilder
+     */
+    private static StringBuilder appendAtLeastTwoDigits(StringBuilder builder, int value) {
+        return value < 100 ? appendTwoDigits(builder, value) : builder.append(value);
+    }
+}
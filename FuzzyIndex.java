@@ -0,0 +1,570 @@
+package Section6.LinkedListChallenge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will find songs or albums whose titles
+ * are close to a mistyped title, allowing for a small
+ * number of wrong, missing or extra characters.
+ *
+ * Every title is split into overlapping three character
+ * pieces (trigrams), and each trigram keeps the ids of the
+ * titles containing it. A title within a few edits of the query
+ * must share most of its trigrams, so only the titles found in the
+ * rarest of the query's trigrams need to be looked at, and only
+ * those are compared character by character with the query.
+ *
+ * When even the rarest of those trigrams are common (such as
+ * "the" in a catalogue full of titles starting "The "), reading
+ * their lists would cost more than looking at every title of about
+ * the right length, so the titles are instead taken from lists kept
+ * by length, and each is checked against the query's trigrams by a
+ * binary search before it is compared. Either way, every title close
+ * enough to the query is looked at.
+ *
+ * The lower case titles are kept in the shared symbol table,
+ * which the library's title indexes also key on, so each title
+ * is stored once however many indexes it is in. Only the
+ * candidates are turned back into Strings to be compared.
+ *
+ * Removed titles are left in the trigram lists until enough
+ * of them have built up, at which point the index is rebuilt.
+ *
+ * @author Ben Silveston
+ */
+class FuzzyIndex<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The ids of the titles containing a single trigram,
+     * in the order they were added (and so in id order).
+     */
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        /**
+         * Add the id of a title.
+         *
+         * @param id The id of the title
+         */
+        void add(int id) {
+            if(size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * A title close to the query.
+     */
+    private static class Match<T> {
+        private final T item;
+        private final String key;
+        private final int distance;
+
+        /**
+         * Constructor
+         *
+         * @param item The matching item
+         * @param key The lower case title of the item
+         * @param distance The number of edits between the title and the query
+         */
+        Match(T item, String key, int distance) {
+            this.item = item;
+            this.key = key;
+            this.distance = distance;
+        }
+    }
+
+    private Object[] items;
+
+    /**
+     * The symbol of each lower case title,
+     * or SymbolTable.NONE once it is removed.
+     */
+    private int[] keys;
+
+    /**
+     * The length of each title, kept apart from the titles
+     * so that candidates of the wrong length can be skipped
+     * without reading the titles themselves.
+     */
+    private int[] lengths;
+    private int nextId;
+    private int removed;
+    private Map<T, Integer> ids;
+    private Map<Long, Postings> postings;
+
+    /**
+     * The ids of the titles of each length.
+     */
+    private Map<Integer, Postings> byLength;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create an empty index.
+     */
+    FuzzyIndex() {
+        this.items = new Object[INITIAL_CAPACITY];
+        this.keys = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.ids = new HashMap<>();
+        this.postings = new HashMap<>();
+        this.byLength = new HashMap<>();
+    }
+
+    /**
+     * Get the number of items
+     * in the index.
+     *
+     * @return The number of items
+     */
+    int size() {
+        return this.ids.size();
+    }
+
+    /**
+     * Get the largest number of edits allowed
+     * between a query and a matching title.
+     *
+     * Short queries allow fewer edits, as otherwise
+     * almost any short title would match them.
+     *
+     * @param query The lower case query
+     * @return The largest number of edits
+     */
+    static int maxDistance(String query) {
+        if(query.length() <= 3) {
+            return 0;
+        }
+        return query.length() <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Add an item to the index.
+     *
+     * Nothing is changed if the
+     * item is already in the index.
+     *
+     * @param item The item to add
+     * @param title The title of the item
+     */
+    void add(T item, String title) {
+        if(this.ids.containsKey(item)) {
+            return;
+        }
+        String key = title.toLowerCase(Locale.ROOT);
+        add(item, key, SymbolTable.SHARED.intern(key));
+    }
+
+    /**
+     * Add an item to the index under
+     * its already lower case title.
+     *
+     * @param item The item to add
+     * @param key The lower case title of the item
+     * @param symbol The symbol of the lower case title
+     */
+    private void add(T item, String key, int symbol) {
+        if(this.nextId == this.items.length) {
+            this.items = Arrays.copyOf(this.items, this.nextId * 2);
+            this.keys = Arrays.copyOf(this.keys, this.nextId * 2);
+            this.lengths = Arrays.copyOf(this.lengths, this.nextId * 2);
+        }
+        int id = this.nextId++;
+        this.items[id] = item;
+        this.keys[id] = symbol;
+        this.lengths[id] = key.length();
+        this.ids.put(item, id);
+        for(long trigram : trigrams(key)) {
+            this.postings.computeIfAbsent(trigram, t -> new Postings()).add(id);
+        }
+        this.byLength.computeIfAbsent(key.length(), length -> new Postings()).add(id);
+    }
+
+    /**
+     * Remove an item from the index.
+     *
+     * @param item The item to remove
+     */
+    void remove(T item) {
+        Integer id = this.ids.remove(item);
+        if(id == null) {
+            return;
+        }
+        this.items[id] = null;
+        this.keys[id] = SymbolTable.NONE;
+        this.removed++;
+        if(this.removed > INITIAL_CAPACITY && this.removed > this.ids.size()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuild the index without the items
+     * that have been removed, giving every
+     * remaining item a new id.
+     */
+    @SuppressWarnings("unchecked")
+    private void rebuild() {
+        Object[] oldItems = this.items;
+        int[] oldKeys = this.keys;
+        int oldSize = this.nextId;
+        this.items = new Object[Math.max(INITIAL_CAPACITY, this.ids.size() * 2)];
+        this.keys = new int[this.items.length];
+        this.lengths = new int[this.items.length];
+        this.nextId = 0;
+        this.removed = 0;
+        this.ids.clear();
+        this.postings.clear();
+        this.byLength.clear();
+        for(int id = 0; id < oldSize; id++) {
+            if(oldItems[id] != null) {
+                add((T) oldItems[id], SymbolTable.SHARED.get(oldKeys[id]), oldKeys[id]);
+            }
+        }
+    }
+
+    /**
+     * Search for the items whose titles
+     * are closest to a (possibly mistyped) title.
+     *
+     * @param query The title to search for
+     * @param limit The greatest number of results
+     * @return The matching items, closest first
+     */
+    List<T> search(String query, int limit) {
+        String key = query.trim().toLowerCase(Locale.ROOT);
+        if(key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int maxDistance = maxDistance(key);
+
+        // One edit changes at most three trigrams, so a close title can be missing
+        // at most 3 * maxDistance of the query's trigrams. Trigrams that no title
+        // has are missing from every title, and of the rest a close title must
+        // appear in at least one of the (allowance left + 1) rarest lists
+        long[] queryTrigrams = trigrams(key);
+        List<Postings> lists = new ArrayList<>(queryTrigrams.length);
+        for(long trigram : queryTrigrams) {
+            Postings list = this.postings.get(trigram);
+            if(list != null) {
+                lists.add(list);
+            }
+        }
+        int allowedMissing = 3 * maxDistance - (queryTrigrams.length - lists.size());
+        if(allowedMissing < 0) {
+            return Collections.emptyList();
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        int listsNeeded = Math.min(lists.size(), allowedMissing + 1);
+        Candidates candidates = new Candidates(key, maxDistance, limit, lists, queryTrigrams.length - lists.size());
+
+        // Reading the lists costs a step for each id in them, and looking at every
+        // title of about the right length a step for each title, so the cheaper
+        // is used. If the query has so few trigrams that a close title need not
+        // share any of them, only looking at every such title will do
+        long listed = 0;
+        for(int i = 0; i < listsNeeded; i++) {
+            listed += lists.get(i).size;
+        }
+        List<Postings> lengthLists = new ArrayList<>(2 * maxDistance + 1);
+        long lengthListed = 0;
+        for(int length = key.length() - maxDistance; length <= key.length() + maxDistance; length++) {
+            Postings list = this.byLength.get(length);
+            if(list != null) {
+                lengthLists.add(list);
+                lengthListed += list.size;
+            }
+        }
+        if(candidates.minimumShared <= 0 || listed > lengthListed) {
+            for(Postings list : lengthLists) {
+                for(int i = 0; i < list.size; i++) {
+                    candidates.consider(list.ids[i], 0, 0);
+                }
+            }
+            return candidates.results();
+        }
+
+        // Every list is in id order, so they are merged in step, counting
+        // how many of them hold each id without building a map of counts
+        int[] positions = new int[listsNeeded];
+        while(true) {
+            int id = Integer.MAX_VALUE;
+            for(int i = 0; i < listsNeeded; i++) {
+                Postings list = lists.get(i);
+                if(positions[i] < list.size) {
+                    id = Math.min(id, list.ids[positions[i]]);
+                }
+            }
+            if(id == Integer.MAX_VALUE) {
+                break;
+            }
+            int shared = 0;
+            for(int i = 0; i < listsNeeded; i++) {
+                Postings list = lists.get(i);
+                if(positions[i] < list.size && list.ids[positions[i]] == id) {
+                    shared++;
+                    positions[i]++;
+                }
+            }
+            candidates.consider(id, shared, listsNeeded);
+        }
+        return candidates.results();
+    }
+
+    /**
+     * The titles looked at for one search, keeping
+     * the best few matches found so far.
+     */
+    private class Candidates {
+        private final String key;
+        private final int limit;
+        private final List<Postings> lists;
+
+        /**
+         * The number of the query's trigrams
+         * that no title in the index has.
+         */
+        private final int unknownTrigrams;
+
+        /**
+         * Only the best few matches are kept, with the worst of them on top,
+         * and once there are enough no further title may be any further away.
+         */
+        private final PriorityQueue<Match<T>> best;
+        private int bound;
+        private int minimumShared;
+        private final int[][] rows;
+
+        /**
+         * Constructor
+         *
+         * @param key The lower case query
+         * @param maxDistance The largest number of edits allowed
+         * @param limit The greatest number of results
+         * @param lists The lists of the query's trigrams, rarest first
+         * @param unknownTrigrams The number of the query's trigrams that no title has
+         */
+        Candidates(String key, int maxDistance, int limit, List<Postings> lists, int unknownTrigrams) {
+            this.key = key;
+            this.limit = limit;
+            this.lists = lists;
+            this.unknownTrigrams = unknownTrigrams;
+            Comparator<Match<T>> closestFirst = Comparator.<Match<T>>comparingInt(match -> match.distance)
+                    .thenComparing(match -> match.key);
+            this.best = new PriorityQueue<>(limit + 1, closestFirst.reversed());
+            this.bound = maxDistance;
+            this.minimumShared = lists.size() - (3 * maxDistance - unknownTrigrams);
+            this.rows = new int[2][key.length() + maxDistance + 2];
+        }
+
+        /**
+         * Look at a title, comparing it with the
+         * query if it shares enough of its trigrams.
+         *
+         * @param id The id of the title
+         * @param shared The number of lists already found to contain the title
+         * @param from The index of the first list not yet looked in
+         */
+        @SuppressWarnings("unchecked")
+        void consider(int id, int shared, int from) {
+            if(keys[id] == SymbolTable.NONE || Math.abs(lengths[id] - this.key.length()) > this.bound
+                    || shared + countShared(this.lists, from, id, this.minimumShared - shared) < this.minimumShared) {
+                return;
+            }
+            String candidateKey = SymbolTable.SHARED.get(keys[id]);
+            int distance = editDistance(this.key, candidateKey, this.bound, this.rows);
+            if(distance < this.bound || distance == this.bound && (this.best.size() < this.limit
+                    || candidateKey.compareTo(this.best.peek().key) < 0)) {
+                this.best.add(new Match<>((T) items[id], candidateKey, distance));
+                if(this.best.size() > this.limit) {
+                    this.best.poll();
+                }
+                if(this.best.size() == this.limit && this.best.peek().distance < this.bound) {
+                    // Closer titles share more trigrams, so fewer candidates will pass
+                    this.bound = this.best.peek().distance;
+                    this.minimumShared = this.lists.size() - (3 * this.bound - this.unknownTrigrams);
+                }
+            }
+        }
+
+        /**
+         * Get the matches found.
+         *
+         * @return The matching items, closest first
+         */
+        List<T> results() {
+            List<T> results = new ArrayList<>(this.best.size());
+            while(!this.best.isEmpty()) {
+                results.add(this.best.poll().item);
+            }
+            Collections.reverse(results);
+            return results;
+        }
+    }
+
+    /**
+     * Count how many of the lists that were not read
+     * through contain a title, stopping once enough have.
+     *
+     * @param lists The lists of the query's trigrams, rarest first
+     * @param from The index of the first list not read through
+     * @param id The id of the title
+     * @param wanted The number of lists needed
+     * @return The number of lists found to contain the title, up to wanted
+     */
+    private static int countShared(List<Postings> lists, int from, int id, int wanted) {
+        int shared = 0;
+        for(int i = from; i < lists.size() && shared < wanted; i++) {
+            if(lists.size() - i < wanted - shared) {
+                break;
+            }
+            Postings list = lists.get(i);
+            if(Arrays.binarySearch(list.ids, 0, list.size, id) >= 0) {
+                shared++;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Count the edits between two titles when only
+     * zero or one edits are of interest, without
+     * filling in a table of distances.
+     *
+     * @param a The first title
+     * @param b The second title
+     * @return 0 if the titles are the same, 1 if they are one edit apart, otherwise 2
+     */
+    private static int atMostOneEdit(String a, String b) {
+        if(a.length() > b.length()) {
+            return atMostOneEdit(b, a);
+        }
+        int start = 0;
+        while(start < a.length() && a.charAt(start) == b.charAt(start)) {
+            start++;
+        }
+        if(start == a.length()) {
+            return b.length() - a.length() == 0 ? 0 : b.length() - a.length() == 1 ? 1 : 2;
+        }
+        // After the first difference the rest must match, either with
+        // one character substituted or with one extra character in b
+        int offset = a.length() == b.length() ? 1 : b.length() - a.length() == 1 ? 0 : -1;
+        if(offset < 0) {
+            return 2;
+        }
+        return a.regionMatches(start + offset, b, start + 1, a.length() - start - offset) ? 1 : 2;
+    }
+
+    /**
+     * Get the distinct trigrams of a title.
+     *
+     * The title is padded with two spaces at the start
+     * and one at the end, so that short titles still have
+     * trigrams and the first letters count for more.
+     *
+     * @param key The lower case title
+     * @return The trigrams, each packed into a long, in sorted order
+     */
+    static long[] trigrams(String key) {
+        String padded = "  " + key + " ";
+        long[] trigrams = new long[padded.length() - 2];
+        for(int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for(int i = 0; i < trigrams.length; i++) {
+            if(i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    /**
+     * Count the single character insertions,
+     * deletions and substitutions needed to turn
+     * one title into another.
+     *
+     * Only the cells within maxDistance of the diagonal
+     * are filled in, and counting stops as soon as the
+     * distance is known to be more than maxDistance.
+     *
+     * @param a The first title
+     * @param b The second title
+     * @param maxDistance The largest distance of interest
+     * @return The distance, or maxDistance + 1 if it is greater than maxDistance
+     */
+    static int editDistance(String a, String b, int maxDistance) {
+        return editDistance(a, b, maxDistance, new int[2][b.length() + 1]);
+    }
+
+    /**
+     * Count the edits needed to turn one title into another,
+     * reusing the given rows rather than creating new ones.
+     *
+     * @param a The first title
+     * @param b The second title
+     * @param maxDistance The largest distance of interest
+     * @param rows Two rows of at least b.length() + 1 cells each
+     * @return The distance, or maxDistance + 1 if it is greater than maxDistance
+     */
+    private static int editDistance(String a, String b, int maxDistance, int[][] rows) {
+        int tooFar = maxDistance + 1;
+        if(Math.abs(a.length() - b.length()) > maxDistance) {
+            return tooFar;
+        }
+        if(maxDistance <= 1) {
+            return Math.min(atMostOneEdit(a, b), tooFar);
+        }
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        for(int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for(int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(b.length(), i + maxDistance);
+            current[0] = i;
+            if(from > 1) {
+                current[from - 1] = tooFar;
+            }
+            int rowBest = from == 1 ? i : tooFar;
+            for(int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(previous[j - 1] + cost,
+                        Math.min(previous[j] + 1, current[j - 1] + 1));
+                current[j] = Math.min(distance, tooFar);
+                rowBest = Math.min(rowBest, current[j]);
+            }
+            if(to < b.length()) {
+                current[to + 1] = tooFar;
+            }
+            if(rowBest > maxDistance) {
+                return tooFar;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], tooFar);
+    }
+}
@@ -1,5 +1,7 @@
 package Section6.LinkedListChallenge;
 
+import java.util.List;
+
 /**
  * Java Programming Masterclass for Software Developers
  *
@@ -10,6 +12,10 @@ package Section6.LinkedListChallenge;
  * functionality for the library class
  * within the playlist application.
  *
+ * None of these methods read from or print to the console.
+ * Each one is given the details it needs and reports
+ * its result back to the caller instead.
+ *
  * @author Ben Silveston
  */
 public interface ILibrary {
@@ -20,8 +26,13 @@ public interface ILibrary {
      * Note that this method does not
      * allow songs from stored albums
      * to be added.
+     *
+     * @param songTitle The title of the song
+     * @param songArtist The artist of the song
+     * @param songDuration The duration of the song (in seconds)
+     * @return True if the song was added, false if it already exists
      */
-    void addSongToLibrary();
+    boolean addSongToLibrary(String songTitle, String songArtist, int songDuration);
 
     /**
      * Remove an individual song
@@ -30,44 +41,139 @@ public interface ILibrary {
      * Note that this does not
      * include songs that have been
      * stored in albums.
+     *
+     * @param songTitle The title of the song
+     * @return True if the song was removed, false if it was not found
+     */
+    boolean removeSongFromLibrary(String songTitle);
+
+    /**
+     * Add a batch of individual
+     * songs to the library.
+     *
+     * @param songTitles The titles of the songs
+     * @param songArtists The artists of the songs, in the same order
+     * @param songDurations The durations of the songs (in seconds), in the same order
+     * @return For each song, true if it was added, false if it already exists
      */
-    void removeSongFromLibrary();
+    boolean[] addSongsToLibrary(String[] songTitles, String[] songArtists, int[] songDurations);
 
     /**
-     * Print all stored songs in the library
+     * Remove a batch of individual
+     * songs from the library.
+     *
+     * @param songTitles The titles of the songs
+     * @return For each song, true if it was removed, false if it was not found
      */
-    void viewSongsInLibrary();
+    boolean[] removeSongsFromLibrary(String[] songTitles);
+
+    /**
+     * Get all stored songs in the library
+     *
+     * @return A read-only view of the stored songs
+     */
+    List<Song> getSongsInLibrary();
 
     /**
      * Add a new album to the library
+     *
+     * @param albumTitle The title of the album
+     * @param albumArtist The artist of the album
+     * @return True if the album was added, false if it already exists
      */
-    void addAlbumToLibrary();
+    boolean addAlbumToLibrary(String albumTitle, String albumArtist);
 
     /**
      * Remove an existing album from the library
+     *
+     * @param albumTitle The title of the album
+     * @return True if the album was removed, false if it was not found
      */
-    void removeAlbumFromLibrary();
+    boolean removeAlbumFromLibrary(String albumTitle);
 
     /**
      * Add a new song to a specific album
+     *
+     * @param albumTitle The title of the album
+     * @param songTitle The title of the song
+     * @param songDuration The duration of the song (in seconds)
+     * @return True if the song was added, false if the album was not found
+     * or already contains the song
      */
-    void addSongToAlbum();
+    boolean addSongToAlbum(String albumTitle, String songTitle, int songDuration);
 
     /**
      * Remove a specific song
      * from a given album
+     *
+     * @param albumTitle The title of the album
+     * @param songTitle The title of the song
+     * @return True if the song was removed, false if either could not be found
      */
-    void removeSongFromAlbum();
+    boolean removeSongFromAlbum(String albumTitle, String songTitle);
 
     /**
-     * Print all stored albums
+     * Add a batch of new songs
+     * to a specific album.
+     *
+     * @param albumTitle The title of the album
+     * @param songTitles The titles of the songs
+     * @param songDurations The durations of the songs (in seconds), in the same order
+     * @return For each song, true if it was added, false if the album was not found
+     * or already contains the song
+     */
+    boolean[] addSongsToAlbum(String albumTitle, String[] songTitles, int[] songDurations);
+
+    /**
+     * Remove a batch of songs
+     * from a given album.
+     *
+     * @param albumTitle The title of the album
+     * @param songTitles The titles of the songs
+     * @return For each song, true if it was removed, false if either could not be found
+     */
+    boolean[] removeSongsFromAlbum(String albumTitle, String[] songTitles);
+
+    /**
+     * Get all stored albums
      * in the library.
+     *
+     * @return A read-only view of the stored albums
      */
-    void viewAlbumsInLibrary();
+    List<Album> getAlbumsInLibrary();
 
     /**
-     * Print all the songs
+     * Get all the songs
      * from a specific album
+     *
+     * @param albumTitle The title of the album
+     * @return A read-only view of the album's songs, or null if the album was not found
+     */
+    List<Song> getSongsInAlbum(String albumTitle);
+
+    /**
+     * Find the songs in the library whose titles
+     * are closest to a possibly mistyped title.
+     *
+     * A few characters may be wrong, missing or extra,
+     * with more allowed the longer the title is.
+     *
+     * @param songTitle The title to search for
+     * @param limit The greatest number of results
+     * @return The closest songs, closest first
+     */
+    List<Song> findSongsLike(String songTitle, int limit);
+
+    /**
+     * Find the albums in the library whose titles
+     * are closest to a possibly mistyped title.
+     *
+     * A few characters may be wrong, missing or extra,
+     * with more allowed the longer the title is.
+     *
+     * @param albumTitle The title to search for
+     * @param limit The greatest number of results
+     * @return The closest albums, closest first
      */
-    void viewSongsInAlbum();
-}
\ No newline at end of file
+    List<Album> findAlbumsLike(String albumTitle, int limit);
+}
@@ -1,5 +1,7 @@
 package Section6.LinkedListChallenge;
 
+import java.util.List;
+
 /**
  * Java Programming Masterclass for Software Developers
  *
@@ -9,6 +11,9 @@ package Section6.LinkedListChallenge;
  * This interface will provide the required
  * functionality for the playlist.
  *
+ * As with the library, none of these methods
+ * read from or print to the console.
+ *
  * @author Ben Silveston
  */
 public interface IPlaylist {
@@ -46,16 +51,44 @@ public interface IPlaylist {
     /**
      * Add an individual song to the playlist
      *
-     * This methods gives the user the option
-     * to either add specific songs from an album
-     * or directly from the library.
+     * The song must already be stored
+     * in the library.
+     *
+     * @param songTitle The title of the song
+     * @return True if the song was added, false if it is not in the library
+     * or is already in the playlist
      */
-    void addSongToPlaylist();
+    boolean addSongToPlaylist(String songTitle);
 
     /**
      * Remove an individual song from the playlist
+     *
+     * @param songTitle The title of the song
+     * @return True if the song was removed, false if it was not in the playlist
+     */
+    boolean removeSongFromPlaylist(String songTitle);
+
+    /**
+     * Add a batch of individual
+     * songs to the playlist.
+     *
+     * The songs must already be stored
+     * in the library.
+     *
+     * @param songTitles The titles of the songs
+     * @return For each song, true if it was added, false if it is not in the library
+     * or is already in the playlist
+     */
+    boolean[] addSongsToPlaylist(String[] songTitles);
+
+    /**
+     * Remove a batch of individual
+     * songs from the playlist.
+     *
+     * @param songTitles The titles of the songs
+     * @return For each song, true if it was removed, false if it was not in the playlist
      */
-    void removeSongFromPlaylist();
+    boolean[] removeSongsFromPlaylist(String[] songTitles);
 
     /**
      * Add an entire stored album
@@ -68,13 +101,22 @@ public interface IPlaylist {
      *
      * This method will not allow the user
      * to add individual songs from each stored album.
+     * The album's songs are played in turn when
+     * the album is reached.
+     *
+     * @param albumTitle The title of the album
+     * @return True if the album was added, false if it is not in the library
+     * or is already in the playlist
      */
-    void addAlbumToPlaylist();
+    boolean addAlbumToPlaylist(String albumTitle);
 
     /**
-     * Remove an individual song from the playlist
+     * Remove an album from the playlist
+     *
+     * @param albumTitle The title of the album
+     * @return True if the album was removed, false if it was not in the playlist
      */
-    void removeAlbumFromPlaylist();
+    boolean removeAlbumFromPlaylist(String albumTitle);
 
     /**
      * Play the playlist
@@ -83,8 +125,22 @@ public interface IPlaylist {
      * The first song in the
      * playlist will therefore be played
      * first.
+     *
+     * @return The first song, or null if the playlist is empty
      */
-    void play();
+    Song play();
+
+    /**
+     * Play the playlist in a
+     * random order, without
+     * playing any song twice.
+     *
+     * Skipping backwards goes back over
+     * the songs in the order they were played.
+     *
+     * @return The first song, or null if the playlist is empty
+     */
+    Song shuffle();
 
     /**
      * Repeat the specific song
@@ -94,42 +150,84 @@ public interface IPlaylist {
      * In other words the song
      * will play at least twice
      * consecutively.
+     *
+     * @return The song being repeated, or null if nothing is playing
      */
-    void repeat();
+    Song repeat();
 
     /**
      * Skip to the next song
      * in the playlist.
+     *
+     * @return The next song, or null at the end of the playlist
      */
-    void skipForwards();
+    Song skipForwards();
 
     /**
      * Skip to the previous song
      * in the playlist.
+     *
+     * @return The previous song, or null at the start of the playlist
      */
-    void skipBackwards();
+    Song skipBackwards();
 
     /**
      * Search for an individual song
      * in the playlist.
+     *
+     * @param songTitle The title of the song
+     * @return The song, or null if it is not in the playlist
      */
-    void searchForSong();
+    Song searchForSong(String songTitle);
 
     /**
      * Search for an individual album
      * in the playlist.
+     *
+     * @param albumTitle The title of the album
+     * @return The album, or null if it is not in the playlist
      */
-    void searchForAlbum();
+    Album searchForAlbum(String albumTitle);
 
     /**
-     * Print the playlist containing
+     * Search for the songs in the playlist
+     * best matching part of a title or artist.
+     *
+     * Every word of the query must be the
+     * start of a word in the song's title or artist.
+     *
+     * @param query The words to search for
+     * @param limit The greatest number of results
+     * @return The matching songs, best match first
+     */
+    List<Song> searchSongs(String query, int limit);
+
+    /**
+     * Search for the albums in the playlist
+     * best matching part of a title or artist.
+     *
+     * Every word of the query must be the
+     * start of a word in the album's title or artist.
+     *
+     * @param query The words to search for
+     * @param limit The greatest number of results
+     * @return The matching albums, best match first
+     */
+    List<Album> searchAlbums(String query, int limit);
+
+    /**
+     * Get the playlist containing
      * all stored songs.
+     *
+     * @return The stored songs, in playing order
      */
-    void showPlaylistOfSongs();
+    Iterable<Song> getPlaylistOfSongs();
 
     /**
-     * Print the playlist containing
+     * Get the playlist containing
      * all stored albums.
+     *
+     * @return A read-only list of the stored albums
      */
-    void showPlaylistOfAlbums();
-}
\ No newline at end of file
+    List<Album> getPlaylistOfAlbums();
+}
@@ -0,0 +1,168 @@
+package Section6.LinkedListChallenge;
+
+import java.util.Arrays;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will map non-negative int keys to int
+ * values without boxing either of them.
+ *
+ * The keys are kept in a single int array using open
+ * addressing, with the values in a second array alongside
+ * them, so each key costs a few bytes rather than the tens
+ * of bytes needed by a HashMap of Integers.
+ *
+ * @author Ben Silveston
+ */
+class IntIntHashMap {
+    private static final int EMPTY = -1;
+    private static final int MINIMUM_CAPACITY = 8;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create an empty map.
+     */
+    IntIntHashMap() {
+        this.keys = new int[MINIMUM_CAPACITY];
+        this.values = new int[MINIMUM_CAPACITY];
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    /**
+     * Get the number of keys
+     * in the map.
+     *
+     * @return The number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the value for a key.
+     *
+     * @param key The key
+     * @param missing The value to return if the key is not in the map
+     * @return The value, or missing
+     */
+    int get(int key, int missing) {
+        int mask = this.keys.length - 1;
+        for(int slot = hash(key) & mask; this.keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if(this.keys[slot] == key) {
+                return this.values[slot];
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Set the value for a key.
+     *
+     * @param key The key, which must not be negative
+     * @param value The value
+     */
+    void put(int key, int value) {
+        if(key < 0) {
+            throw new IllegalArgumentException("Negative keys cannot be stored: " + key);
+        }
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while(this.keys[slot] != EMPTY) {
+            if(this.keys[slot] == key) {
+                this.values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+        // Kept at most half full so that the runs of filled slots stay short
+        if(this.size * 2 > this.keys.length) {
+            resize(this.keys.length * 2);
+        }
+    }
+
+    /**
+     * Remove a key from the map.
+     *
+     * @param key The key to remove
+     * @return True if the key was removed, false if it was not in the map
+     */
+    boolean remove(int key) {
+        if(key < 0) {
+            // Negative keys are never stored, and EMPTY would match the first empty slot
+            return false;
+        }
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while(this.keys[slot] != key) {
+            if(this.keys[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Move later keys of the same run back into the gap,
+        // so that no key is left behind an empty slot
+        int gap = slot;
+        for(slot = (slot + 1) & mask; this.keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int home = hash(this.keys[slot]) & mask;
+            if(((slot - home) & mask) >= ((slot - gap) & mask)) {
+                this.keys[gap] = this.keys[slot];
+                this.values[gap] = this.values[slot];
+                gap = slot;
+            }
+        }
+        this.keys[gap] = EMPTY;
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Move every key and value
+     * into new arrays of slots.
+     *
+     * @param capacity The number of slots, which must be a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.keys, EMPTY);
+        int mask = capacity - 1;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                int slot = hash(oldKeys[i]) & mask;
+                while(this.keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spread the bits of a key so that
+     * consecutive keys do not fill
+     * consecutive slots.
+     *
+     * @param key The key
+     * @return The spread hash
+     */
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
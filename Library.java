@@ -1,9 +1,20 @@
 package Section6.LinkedListChallenge;
 
-import java.sql.Timestamp;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
 
 /**
  * Java Programming Masterclass for Software Developers
@@ -18,78 +29,1150 @@ import java.util.Scanner;
  * This library will simulate a standard music library database
  * and will be accessed by the playlist at run-time.
  *
+ * The library can be shared between threads. Checking for and
+ * finding a song or album never waits for a lock, as the title
+ * indexes are concurrent maps, and the lists of all songs and albums
+ * are handed out as read-only copies which are only remade after a
+ * change. Changes lock just the title being changed (one of a fixed
+ * set of locks chosen by the title's hash), so changes to different
+ * titles rarely wait for each other, and then only briefly lock the
+ * shared lists of songs and albums to add or remove the item.
+ *
+ * Each song and album knows where it is in the shared lists (by its
+ * id), so removing one neither searches the list nor moves everything
+ * after it along. Its place is left empty instead, and the empty places
+ * are closed up in one pass once they make up half of the list.
+ *
+ * Songs can also be added and removed in batches. A batch is checked
+ * against the title indexes in one pass, holding the locks of every
+ * title it touches, and is then applied in one go: the lists grow
+ * once and the shared lists are locked once, rather than once per song.
+ *
  * @author Ben Silveston
  */
 public class Library implements ILibrary {
-    private Song song;
-    private Album album;
+    private static final int TITLE_LOCKS = 64;
+    private static final int NOT_LISTED = -1;
+
     private List<Song> songs;
     private List<Album> albums;
-    private static final Scanner SCANNER = new Scanner(System.in);
 
     /**
-     * Constructor
+     * The songs and albums by the symbol of their lower
+     * case title, so that the text of each title is only
+     * held once, by the shared symbol table.
+     */
+    private SymbolMap<Song> songsByTitle;
+    private SymbolMap<Album> albumsByTitle;
+    private FuzzyIndex<Song> fuzzySongs;
+    private FuzzyIndex<Album> fuzzyAlbums;
+    private TimeIndex<Song> songsByTime;
+    private TimeIndex<Album> albumsByTime;
+
+    /**
+     * Every song the library has given an id to, by id.
+     * A song removed from the library stays here while
+     * a playlist's queue still holds it, and then gives
+     * up its id, to be handed out again.
+     */
+    private volatile Song[] songsById;
+    private int nextSongId;
+
+    /**
+     * The ids given up by songs that have left the
+     * library and every queue, as a stack.
+     */
+    private int[] freeSongIds;
+    private int freeSongIdCount;
+
+    /**
+     * The queues holding each song, by id: null if
+     * there are none, the queue if there is one, or
+     * a QueueList if there are more.
+     */
+    private Object[] queuedBy;
+
+    /**
+     * The number of queues holding each album, by
+     * album id, for the albums held by any queue.
+     */
+    private IntIntHashMap queuedAlbumCounts;
+
+    /**
+     * Guards the counts of queues holding each song
+     * and album, and is held while a song gives up its
+     * id and row. Taken after the catalogue lock when
+     * both are held.
+     */
+    private final Object idLock;
+
+    /**
+     * The rows of the library's songs in the shared song
+     * store, in the same order as the list of songs, so
+     * that whole-library totals can be worked out column
+     * by column.
+     */
+    private int[] songRows;
+
+    /**
+     * Where each song is in the list of songs, by id,
+     * or NOT_LISTED. A removed song leaves a null in the
+     * list, and NO_ROW in the rows, until the list is
+     * closed up.
+     */
+    private int[] songPositions;
+    private int songGaps;
+
+    /**
+     * One bit per song id, set while the song is in the
+     * list of songs, so that any thread can check whether
+     * a song is still in the library without a lock.
+     */
+    private volatile AtomicLongArray listedSongIds;
+
+    /**
+     * Where each album is in the list of albums, by
+     * id. A removed album leaves a null in the list
+     * until the list is closed up.
+     */
+    private IntIntHashMap albumPositions;
+    private int albumGaps;
+    private volatile LongSupplier clock;
+
+    /**
+     * The latest time handed out, so that the
+     * time never goes backwards if the clock does.
+     */
+    private final AtomicLong lastTime;
+    private volatile MutationJournal journal;
+
+    /**
+     * The read-only copies of the song and album lists
+     * handed out to readers, or null once a change has
+     * been made and a new copy is needed.
+     */
+    private volatile List<Song> songsSnapshot;
+    private volatile List<Album> albumsSnapshot;
+
+    /**
+     * One lock per group of titles, held while checking
+     * for and then changing a song or album with that title.
+     */
+    private final Object[] titleLocks;
+
+    /**
+     * Guards the song and album lists and the fuzzy title
+     * and time indexes, which are shared by every title.
+     */
+    private final ReadWriteLock catalogueLock;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create a library
+     * containing all stored songs and albums.
+     *
+     * @param songs The list of stores songs in the library
+     * @param albums The list of stored albums in the library
+     */
+    Library(List<Song> songs, List<Album> albums) {
+        this.songs = songs;
+        this.albums = albums;
+        this.songsByTitle = new SymbolMap<>();
+        this.albumsByTitle = new SymbolMap<>();
+        this.titleLocks = new Object[TITLE_LOCKS];
+        for(int i = 0; i < TITLE_LOCKS; i++) {
+            this.titleLocks[i] = new Object();
+        }
+        this.catalogueLock = new ReentrantReadWriteLock();
+        this.idLock = new Object();
+        this.songsById = new Song[Math.max(16, songs.size())];
+        this.freeSongIds = new int[16];
+        this.queuedBy = new Object[this.songsById.length];
+        this.queuedAlbumCounts = new IntIntHashMap();
+        this.songRows = new int[Math.max(16, songs.size())];
+        this.songPositions = new int[this.songsById.length];
+        Arrays.fill(this.songPositions, NOT_LISTED);
+        this.listedSongIds = new AtomicLongArray((this.songsById.length + 63) / 64);
+        this.albumPositions = new IntIntHashMap();
+        this.fuzzySongs = new FuzzyIndex<>();
+        this.fuzzyAlbums = new FuzzyIndex<>();
+        this.songsByTime = new TimeIndex<>(Song::getRow);
+        this.albumsByTime = new TimeIndex<>(Album::getId);
+        this.clock = System::currentTimeMillis;
+        this.lastTime = new AtomicLong(Long.MIN_VALUE);
+        for(int i = 0; i < songs.size(); i++) {
+            Song existingSong = songs.get(i);
+            assignId(existingSong);
+            indexSong(existingSong);
+            this.songRows[i] = existingSong.getRow();
+            this.songPositions[existingSong.getId()] = i;
+            markListed(existingSong.getId(), true);
+        }
+        for(int i = 0; i < albums.size(); i++) {
+            Album existingAlbum = albums.get(i);
+            indexAlbum(existingAlbum);
+            this.albumPositions.put(existingAlbum.getId(), i);
+        }
+    }
+
+    /**
+     * Get the current list of all songs
+     * stored in the library
+     *
+     * @return The current list of songs
+     */
+    private List<Song> getSongs() {
+        return songs;
+    }
+
+    /**
+     * Get the current list of all albums
+     * stored in the library
+     *
+     * @return The current list of albums
+     */
+    private List<Album> getAlbums() {
+        return albums;
+    }
+
+    /**
+     * Case-fold a title (or artist name)
+     * so that it can be used as a key
+     * in the library's indexes.
+     *
+     * This mirrors the equalsIgnoreCase()
+     * comparisons used throughout the application.
+     *
+     * @param title The title to fold
+     * @return The index key for the title
+     */
+    static String titleKey(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get the symbol of a case-folded title, so that
+     * it can be looked up in the title indexes.
+     *
+     * Nothing is added to the symbol table, as a
+     * title that is not in it cannot be in the indexes.
+     *
+     * @param key The case-folded title
+     * @return The symbol of the title, or SymbolTable.NONE if it has none
+     */
+    private static int titleSymbol(String key) {
+        return SymbolTable.SHARED.find(key);
+    }
+
+    /**
+     * Get the lock held while checking for and
+     * changing a song or album with a given title.
+     *
+     * @param key The case-folded title
+     * @return The lock for the title
+     */
+    private Object titleLock(String key) {
+        return this.titleLocks[titleLockIndex(key)];
+    }
+
+    /**
+     * Get the number of the lock held while checking
+     * for and changing a song or album with a given title.
+     *
+     * @param key The case-folded title
+     * @return The number of the lock, from 0 to TITLE_LOCKS - 1
+     */
+    private static int titleLockIndex(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (TITLE_LOCKS - 1);
+    }
+
+    /**
+     * Get the locks held while checking for and
+     * changing songs or albums with the given titles.
+     *
+     * @param keys The case-folded titles
+     * @return The locks, one bit per lock number
+     */
+    private static long titleLocksFor(String[] keys) {
+        long locks = 0;
+        for(String key : keys) {
+            locks |= 1L << titleLockIndex(key);
+        }
+        return locks;
+    }
+
+    /**
+     * Make a change while holding a set of title locks.
+     *
+     * The locks are always taken in the same order,
+     * so two batches can never wait for each other.
+     *
+     * @param locks The locks to hold, one bit per lock number
+     * @param next The lowest lock number not yet looked at
+     * @param change The change to make
+     */
+    private void withTitleLocks(long locks, int next, Runnable change) {
+        long remaining = locks & (-1L << next);
+        if(next == TITLE_LOCKS || remaining == 0) {
+            change.run();
+            return;
+        }
+        int lock = Long.numberOfTrailingZeros(remaining);
+        synchronized(this.titleLocks[lock]) {
+            withTitleLocks(locks, lock + 1, change);
+        }
+    }
+
+    /**
+     * Add a song to the title,
+     * fuzzy title and time indexes.
+     *
+     * The catalogue lock must be held for writing,
+     * unless the library is still being constructed.
+     *
+     * @param indexedSong The song to index
+     */
+    private void indexSong(Song indexedSong) {
+        this.songsByTitle.put(SymbolTable.SHARED.intern(titleKey(indexedSong.getTitle())), indexedSong);
+        this.fuzzySongs.add(indexedSong, indexedSong.getTitle());
+        this.songsByTime.add(indexedSong, indexedSong.getAddedTime());
+    }
+
+    /**
+     * Remove a song from the title,
+     * fuzzy title and time indexes.
+     *
+     * The catalogue lock must be held for writing.
+     *
+     * @param indexedSong The song to remove from the indexes
+     */
+    private void unindexSong(Song indexedSong) {
+        this.songsByTitle.remove(titleSymbol(titleKey(indexedSong.getTitle())));
+        this.fuzzySongs.remove(indexedSong);
+        this.songsByTime.remove(indexedSong, indexedSong.getAddedTime());
+    }
+
+    /**
+     * Add an album to the title,
+     * fuzzy title and time indexes.
+     *
+     * The catalogue lock must be held for writing,
+     * unless the library is still being constructed.
+     *
+     * @param indexedAlbum The album to index
+     */
+    private void indexAlbum(Album indexedAlbum) {
+        this.albumsByTitle.put(SymbolTable.SHARED.intern(titleKey(indexedAlbum.getTitle())), indexedAlbum);
+        this.fuzzyAlbums.add(indexedAlbum, indexedAlbum.getTitle());
+        this.albumsByTime.add(indexedAlbum, indexedAlbum.getAddedTime());
+    }
+
+    /**
+     * Remove an album from the title,
+     * fuzzy title and time indexes.
+     *
+     * The catalogue lock must be held for writing.
+     *
+     * @param indexedAlbum The album to remove from the indexes
+     */
+    private void unindexAlbum(Album indexedAlbum) {
+        this.albumsByTitle.remove(titleSymbol(titleKey(indexedAlbum.getTitle())));
+        this.fuzzyAlbums.remove(indexedAlbum);
+        this.albumsByTime.remove(indexedAlbum, indexedAlbum.getAddedTime());
+    }
+
+    /**
+     * Give a song an id, so that playlists can refer
+     * to it. An id given up by a removed song is used
+     * if there is one, otherwise the next new id.
+     *
+     * The catalogue lock must be held for writing,
+     * unless the library is still being constructed.
+     *
+     * @param song The song, which must not have an id yet
+     */
+    private void assignId(Song song) {
+        int songId;
+        if(this.freeSongIdCount > 0) {
+            songId = this.freeSongIds[--this.freeSongIdCount];
+        }
+        else {
+            if(this.nextSongId == this.songsById.length) {
+                growIds(this.nextSongId * 2);
+            }
+            songId = this.nextSongId++;
+        }
+        song.setId(songId);
+        this.songsById[songId] = song;
+    }
+
+    /**
+     * Take a song's id and row back if the song has
+     * left the library and its album, and is not held
+     * by any queue, so that they can be handed out again.
+     *
+     * A song that is still in an album only gives
+     * up its id, and keeps its row.
+     *
+     * The catalogue lock must be held for writing.
+     *
+     * @param song The song, or null
+     */
+    private void freeIfUnused(Song song) {
+        synchronized(this.idLock) {
+            if(song == null || song.isFreed()) {
+                return;
+            }
+            int songId = song.getId();
+            if(songId != Song.NO_ID) {
+                if(this.queuedBy[songId] != null || this.songPositions[songId] != NOT_LISTED) {
+                    return;
+                }
+                this.songsById[songId] = null;
+                song.setId(Song.NO_ID);
+                if(this.freeSongIdCount == this.freeSongIds.length) {
+                    this.freeSongIds = Arrays.copyOf(this.freeSongIds, this.freeSongIdCount * 2);
+                }
+                this.freeSongIds[this.freeSongIdCount++] = songId;
+            }
+            if(song.getAlbumId() == SongStore.NO_ALBUM) {
+                SongStore.SHARED.free(song);
+            }
+        }
+    }
+
+    /**
+     * Take back the songs of an album that has left
+     * the library and is not held by any queue.
+     *
+     * The songs are taken out of the album first,
+     * so a queue that picks the album up afterwards
+     * finds it empty rather than holding freed songs.
+     *
+     * The catalogue lock must be held for writing.
+     *
+     * @param album The album
+     */
+    private void freeAlbumSongs(Album album) {
+        List<Song> albumSongs = album.getSongs();
+        album.removeSongs(new HashSet<>(albumSongs));
+        for(Song albumSong : albumSongs) {
+            freeIfUnused(albumSong);
+        }
+    }
+
+    /**
+     * Make room for more song ids.
+     *
+     * The catalogue lock must be held for writing,
+     * unless the library is still being constructed.
+     *
+     * @param capacity The number of ids to make room for
+     */
+    private void growIds(int capacity) {
+        int oldCapacity = this.songsById.length;
+        this.songsById = Arrays.copyOf(this.songsById, capacity);
+        this.songPositions = Arrays.copyOf(this.songPositions, capacity);
+        Arrays.fill(this.songPositions, oldCapacity, capacity, NOT_LISTED);
+        AtomicLongArray oldListed = this.listedSongIds;
+        long[] listed = new long[(capacity + 63) / 64];
+        for(int i = 0; i < oldListed.length(); i++) {
+            listed[i] = oldListed.get(i);
+        }
+        this.listedSongIds = new AtomicLongArray(listed);
+        synchronized(this.idLock) {
+            this.queuedBy = Arrays.copyOf(this.queuedBy, capacity);
+        }
+    }
+
+    /**
+     * Set or clear the bit that shows
+     * whether a song is in the list of songs.
+     *
+     * The catalogue lock must be held for writing,
+     * unless the library is still being constructed.
+     *
+     * @param songId The id of the song
+     * @param listed True if the song is in the list of songs
+     */
+    private void markListed(int songId, boolean listed) {
+        long bit = 1L << songId;
+        long word = this.listedSongIds.get(songId >>> 6);
+        this.listedSongIds.set(songId >>> 6, listed ? word | bit : word & ~bit);
+    }
+
+    /**
+     * Check whether a song is still in
+     * the library's list of songs.
+     *
+     * No lock is taken. A song removed from the library is
+     * no longer listed by the time the queues holding it
+     * are told (see PlaybackQueue.noteUnlisted()).
+     *
+     * @param song The song
+     * @return True if the song is in the library, false if it has left (or was never added)
+     */
+    boolean isListed(Song song) {
+        int songId = song.getId();
+        return songId != Song.NO_ID && idIsListed(songId);
+    }
+
+    /**
+     * Check whether the song with an id is
+     * still in the library's list of songs.
+     *
+     * No lock is taken.
+     *
+     * @param songId The id of the song
+     * @return True if the song is in the library, false otherwise
+     */
+    private boolean idIsListed(int songId) {
+        AtomicLongArray listed = this.listedSongIds;
+        return (songId >>> 6) < listed.length() && (listed.get(songId >>> 6) & (1L << songId)) != 0;
+    }
+
+    /**
+     * Get the id of a song for a queue to hold,
+     * giving it one first if it does not have one
+     * (for example a song held only in an album or
+     * a saved playlist).
+     *
+     * The song keeps the id (and its row) until the
+     * queue hands it back with release(), even if
+     * the song leaves the library meanwhile, in which
+     * case the queue is told. A queue must not retain
+     * a song it already holds.
+     *
+     * @param song The song
+     * @param queue The queue holding the song
+     * @return The id of the song, or Song.NO_ID if the song has already been freed
+     */
+    int retain(Song song, PlaybackQueue queue) {
+        synchronized(this.idLock) {
+            // Songs are only freed with this lock held, so the song cannot be freed before it is counted
+            if(song.isFreed()) {
+                return Song.NO_ID;
+            }
+            int songId = song.getId();
+            if(songId != Song.NO_ID) {
+                addQueue(songId, queue);
+                return songId;
+            }
+        }
+        this.catalogueLock.writeLock().lock();
+        try {
+            synchronized(this.idLock) {
+                if(song.isFreed()) {
+                    return Song.NO_ID;
+                }
+                if(song.getId() == Song.NO_ID) {
+                    assignId(song);
+                }
+                // Counted as it is given, so the id is never given up in between
+                addQueue(song.getId(), queue);
+                return song.getId();
+            }
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Hand back the id of a song that a queue
+     * no longer holds.
+     *
+     * Once no queue holds a song that has left
+     * the library, its id and row are given up.
+     *
+     * @param songId The id of the song, as returned by retain()
+     * @param queue The queue that held the song
+     */
+    void release(int songId, PlaybackQueue queue) {
+        synchronized(this.idLock) {
+            if(!removeQueue(songId, queue)) {
+                return;
+            }
+        }
+        // A song removed from the library after this check gives up its id itself
+        if(idIsListed(songId)) {
+            return;
+        }
+        this.catalogueLock.writeLock().lock();
+        try {
+            freeIfUnused(this.songsById[songId]);
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Note that a queue holds a song.
+     *
+     * The id lock must be held.
+     *
+     * @param songId The id of the song
+     * @param queue The queue
+     */
+    private void addQueue(int songId, PlaybackQueue queue) {
+        Object holders = this.queuedBy[songId];
+        if(holders == null) {
+            this.queuedBy[songId] = queue;
+        }
+        else if(holders instanceof QueueList) {
+            ((QueueList) holders).add(queue);
+        }
+        else {
+            QueueList queues = new QueueList();
+            queues.add((PlaybackQueue) holders);
+            queues.add(queue);
+            this.queuedBy[songId] = queues;
+        }
+    }
+
+    /**
+     * Note that a queue no longer holds a song.
+     *
+     * The id lock must be held.
+     *
+     * @param songId The id of the song
+     * @param queue The queue
+     * @return True if no queue holds the song now, false otherwise
+     */
+    private boolean removeQueue(int songId, PlaybackQueue queue) {
+        Object holders = this.queuedBy[songId];
+        if(holders instanceof QueueList) {
+            QueueList queues = (QueueList) holders;
+            queues.remove(queue);
+            if(queues.size == 1) {
+                this.queuedBy[songId] = queues.queues[0];
+            }
+            return false;
+        }
+        this.queuedBy[songId] = null;
+        return true;
+    }
+
+    /**
+     * The queues holding a song,
+     * when there is more than one.
+     */
+    private static class QueueList {
+        private PlaybackQueue[] queues = new PlaybackQueue[4];
+        private int size;
+
+        /**
+         * Add a queue to the end of the list.
+         *
+         * @param queue The queue
+         */
+        void add(PlaybackQueue queue) {
+            if(this.size == this.queues.length) {
+                this.queues = Arrays.copyOf(this.queues, this.size * 2);
+            }
+            this.queues[this.size++] = queue;
+        }
+
+        /**
+         * Remove a queue from the list, moving
+         * the last queue into its place.
+         *
+         * @param queue The queue
+         */
+        void remove(PlaybackQueue queue) {
+            for(int i = 0; i < this.size; i++) {
+                if(this.queues[i] == queue) {
+                    this.queues[i] = this.queues[--this.size];
+                    this.queues[this.size] = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Note that a queue holds an album.
+     *
+     * The album's songs keep their rows until the
+     * queue hands the album back with releaseAlbum(),
+     * even if the album leaves the library meanwhile.
+     *
+     * @param album The album
+     */
+    void retainAlbum(Album album) {
+        synchronized(this.idLock) {
+            this.queuedAlbumCounts.put(album.getId(), this.queuedAlbumCounts.get(album.getId(), 0) + 1);
+        }
+    }
+
+    /**
+     * Hand back an album that a queue
+     * no longer holds.
+     *
+     * Once no queue holds an album that is not
+     * in the library, its songs are given up.
+     *
+     * @param album The album, as passed to retainAlbum()
+     */
+    void releaseAlbum(Album album) {
+        synchronized(this.idLock) {
+            int queued = this.queuedAlbumCounts.get(album.getId(), 0) - 1;
+            if(queued > 0) {
+                this.queuedAlbumCounts.put(album.getId(), queued);
+                return;
+            }
+            this.queuedAlbumCounts.remove(album.getId());
+        }
+        // An album removed from the library after this check gives up its songs itself
+        if(findAlbum(album.getTitle()) == album) {
+            return;
+        }
+        this.catalogueLock.writeLock().lock();
+        try {
+            synchronized(this.idLock) {
+                if(this.queuedAlbumCounts.get(album.getId(), 0) > 0) {
+                    return;
+                }
+            }
+            if(this.albumPositions.get(album.getId(), NOT_LISTED) == NOT_LISTED) {
+                freeAlbumSongs(album);
+            }
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get a song using
+     * the id it was given.
+     *
+     * Ids are only handed out after the song has been
+     * stored, so any thread holding an id will see its song.
+     * An id that is not retained by a queue may have
+     * been given up, or given to another song.
+     *
+     * @param songId The id of the song
+     * @return The song, or null if the id has been given up
+     */
+    Song songById(int songId) {
+        return this.songsById[songId];
+    }
+
+    /**
+     * Add a new song to the list of songs
+     * and to every index.
+     *
+     * @param song The song to add
+     */
+    private void storeSong(Song song) {
+        this.catalogueLock.writeLock().lock();
+        try {
+            assignId(song);
+            int position = this.getSongs().size();
+            if(position == this.songRows.length) {
+                this.songRows = Arrays.copyOf(this.songRows, this.songRows.length * 2);
+            }
+            this.songRows[position] = song.getRow();
+            this.songPositions[song.getId()] = position;
+            markListed(song.getId(), true);
+            this.getSongs().add(song);
+            indexSong(song);
+            this.songsSnapshot = null;
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a batch of new songs to the list
+     * of songs and to every index.
+     *
+     * The arrays of ids and rows, and the
+     * list of songs, grow at most once.
+     *
+     * @param newSongs The songs to add
+     */
+    private void storeSongs(List<Song> newSongs) {
+        this.catalogueLock.writeLock().lock();
+        try {
+            int newSize = this.getSongs().size() + newSongs.size();
+            if(this.nextSongId + newSongs.size() > this.songsById.length) {
+                growIds(Math.max(this.nextSongId + newSongs.size(), this.songsById.length * 2));
+            }
+            if(newSize > this.songRows.length) {
+                this.songRows = Arrays.copyOf(this.songRows, Math.max(newSize, this.songRows.length * 2));
+            }
+            int position = this.getSongs().size();
+            for(Song song : newSongs) {
+                assignId(song);
+                this.songRows[position] = song.getRow();
+                this.songPositions[song.getId()] = position++;
+                markListed(song.getId(), true);
+                indexSong(song);
+            }
+            this.getSongs().addAll(newSongs);
+            this.songsSnapshot = null;
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a batch of songs from the list
+     * of songs and from every index.
      *
-     * This constructor will create a library
-     * containing all stored songs and albums.
+     * @param oldSongs The songs to remove
+     */
+    private void discardSongs(List<Song> oldSongs) {
+        this.catalogueLock.writeLock().lock();
+        try {
+            for(Song song : oldSongs) {
+                unlistSong(song);
+                unindexSong(song);
+                freeIfUnused(song);
+            }
+            this.songsSnapshot = null;
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a song from the list of
+     * songs and from every index.
      *
-     * @param songs The list of stores songs in the library
-     * @param albums The list of stored albums in the library
+     * @param song The song to remove
      */
-    Library(List<Song> songs, List<Album> albums) {
-        this.songs = songs;
-        this.albums = albums;
+    private void discardSong(Song song) {
+        this.catalogueLock.writeLock().lock();
+        try {
+            unlistSong(song);
+            unindexSong(song);
+            freeIfUnused(song);
+            this.songsSnapshot = null;
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Leave a song's place in the list of songs
+     * empty, closing up the list once half of
+     * its places are empty. Any queues holding
+     * the song are told that it has left.
+     *
+     * The catalogue lock must be held for writing.
+     *
+     * @param song The song to remove
+     */
+    private void unlistSong(Song song) {
+        int position = this.songPositions[song.getId()];
+        if(position == NOT_LISTED) {
+            return;
+        }
+        this.getSongs().set(position, null);
+        this.songRows[position] = SongStore.NO_ROW;
+        this.songPositions[song.getId()] = NOT_LISTED;
+        markListed(song.getId(), false);
+        synchronized(this.idLock) {
+            Object holders = this.queuedBy[song.getId()];
+            if(holders instanceof QueueList) {
+                QueueList queues = (QueueList) holders;
+                for(int i = 0; i < queues.size; i++) {
+                    queues.queues[i].noteUnlisted(song.getId());
+                }
+            }
+            else if(holders != null) {
+                ((PlaybackQueue) holders).noteUnlisted(song.getId());
+            }
+        }
+        this.songGaps++;
+        int size = this.getSongs().size();
+        if(this.songGaps * 2 < size) {
+            return;
+        }
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            Song listedSong = this.getSongs().get(i);
+            if(listedSong != null) {
+                this.getSongs().set(kept, listedSong);
+                this.songRows[kept] = this.songRows[i];
+                this.songPositions[listedSong.getId()] = kept++;
+            }
+        }
+        this.getSongs().subList(kept, size).clear();
+        this.songGaps = 0;
     }
 
     /**
-     * Get an existing song
-     * and its data
+     * Add a new album to the list of
+     * albums and to every index.
      *
-     * @return The specific song's data
+     * @param album The album to add
      */
-    private Song getSong() {
-        return song;
+    private void storeAlbum(Album album) {
+        this.catalogueLock.writeLock().lock();
+        try {
+            this.albumPositions.put(album.getId(), this.getAlbums().size());
+            this.getAlbums().add(album);
+            indexAlbum(album);
+            this.albumsSnapshot = null;
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
     }
 
     /**
-     * Get an existing album
-     * and its data
+     * Remove an album from the list of
+     * albums and from every index.
      *
-     * @return The specific album's data
+     * @param album The album to remove
      */
-    Album getAlbum() {
-        return album;
+    private void discardAlbum(Album album) {
+        this.catalogueLock.writeLock().lock();
+        try {
+            unlistAlbum(album);
+            unindexAlbum(album);
+            boolean queued;
+            synchronized(this.idLock) {
+                queued = this.queuedAlbumCounts.get(album.getId(), 0) > 0;
+            }
+            // A queued album keeps its songs until the last queue hands it back
+            if(!queued) {
+                freeAlbumSongs(album);
+            }
+            this.albumsSnapshot = null;
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
     }
 
     /**
-     * Get the current list of all songs
-     * stored in the library
+     * Take back the songs removed from an album,
+     * unless a queue still holds them.
      *
-     * @return The current list of songs
+     * @param oldSongs The songs, which are no longer in the album
      */
-    private List<Song> getSongs() {
-        return songs;
+    private void freeSongs(Collection<Song> oldSongs) {
+        this.catalogueLock.writeLock().lock();
+        try {
+            for(Song oldSong : oldSongs) {
+                freeIfUnused(oldSong);
+            }
+        }
+        finally {
+            this.catalogueLock.writeLock().unlock();
+        }
     }
 
     /**
-     * Get the current list of all albums
-     * stored in the library
+     * Leave an album's place in the list of albums
+     * empty, closing up the list once half of
+     * its places are empty.
      *
-     * @return The current list of albums
+     * The catalogue lock must be held for writing.
+     *
+     * @param album The album to remove
      */
-    private List<Album> getAlbums() {
-        return albums;
+    private void unlistAlbum(Album album) {
+        int position = this.albumPositions.get(album.getId(), NOT_LISTED);
+        if(position == NOT_LISTED) {
+            return;
+        }
+        this.getAlbums().set(position, null);
+        this.albumPositions.remove(album.getId());
+        this.albumGaps++;
+        int size = this.getAlbums().size();
+        if(this.albumGaps * 2 < size) {
+            return;
+        }
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            Album listedAlbum = this.getAlbums().get(i);
+            if(listedAlbum != null) {
+                this.getAlbums().set(kept, listedAlbum);
+                this.albumPositions.put(listedAlbum.getId(), kept++);
+            }
+        }
+        this.getAlbums().subList(kept, size).clear();
+        this.albumGaps = 0;
+    }
+
+    /**
+     * Find a song stored in the library
+     * using its title.
+     *
+     * @param songTitle The title of the song
+     * @return The matching song, or null if it is not in the library
+     */
+    Song findSong(String songTitle) {
+        return this.songsByTitle.get(titleSymbol(titleKey(songTitle)));
+    }
+
+    /**
+     * Find a song stored in the library
+     * using both its title and artist.
+     *
+     * @param songTitle The title of the song
+     * @param songArtist The artist of the song
+     * @return The matching song, or null if it is not in the library
+     */
+    Song findSong(String songTitle, String songArtist) {
+        // Titles are unique within the library, so the song with the title is the only candidate
+        Song storedSong = findSong(songTitle);
+        if(storedSong == null || storedSong.getArtist() == null
+                || !titleKey(storedSong.getArtist()).equals(titleKey(songArtist))) {
+            return null;
+        }
+        return storedSong;
+    }
+
+    /**
+     * Find an album stored in the library
+     * using its title.
+     *
+     * @param albumTitle The title of the album
+     * @return The matching album, or null if it is not in the library
+     */
+    Album findAlbum(String albumTitle) {
+        return this.albumsByTitle.get(titleSymbol(titleKey(albumTitle)));
+    }
+
+    /**
+     * Find the songs in the library whose titles
+     * are closest to a possibly mistyped title.
+     *
+     * @param songTitle The title to search for
+     * @param limit The greatest number of results
+     * @return The closest songs, closest first
+     */
+    @Override
+    public List<Song> findSongsLike(String songTitle, int limit) {
+        this.catalogueLock.readLock().lock();
+        try {
+            return this.fuzzySongs.search(songTitle, limit);
+        }
+        finally {
+            this.catalogueLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the albums in the library whose titles
+     * are closest to a possibly mistyped title.
+     *
+     * @param albumTitle The title to search for
+     * @param limit The greatest number of results
+     * @return The closest albums, closest first
+     */
+    @Override
+    public List<Album> findAlbumsLike(String albumTitle, int limit) {
+        this.catalogueLock.readLock().lock();
+        try {
+            return this.fuzzyAlbums.search(albumTitle, limit);
+        }
+        finally {
+            this.catalogueLock.readLock().unlock();
+        }
     }
 
     /**
-     * Get a timestamp that represents the current date and time
+     * Get the current date and time
      * (i.e. "now" date and time).
      *
-     * @return The current date and time, represented as a timestamp
+     * The time never goes backwards, even if
+     * the clock does, so songs and albums
+     * are always added in time order.
+     *
+     * @return The current time, in epoch milliseconds
+     */
+    long getCurrentTime() {
+        long now = this.clock.getAsLong();
+        return this.lastTime.accumulateAndGet(now, Math::max);
+    }
+
+    /**
+     * Set the clock used to record the
+     * time new songs and albums are added.
+     *
+     * This is used when replaying the journal,
+     * so that each change keeps its original time,
+     * even if it is earlier than a time already handed out.
+     *
+     * @param clock The clock, in epoch milliseconds, or null for the system clock
+     */
+    void setClock(LongSupplier clock) {
+        this.clock = clock == null ? System::currentTimeMillis : clock;
+        this.lastTime.set(Long.MIN_VALUE);
+    }
+
+    /**
+     * Set the journal that changes to the
+     * library (and its playlists) are recorded in.
+     *
+     * @param journal The journal, or null to stop recording changes
+     */
+    void setJournal(MutationJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Record a change in the journal, if there
+     * is one, without waiting for it to be committed.
+     *
+     * Changes are recorded while the locks guarding
+     * them are held, so that the journal holds them in
+     * the order they were made, and are then waited for
+     * with awaitRecorded() once the locks are released.
+     *
+     * @param operation The change made
+     * @param timeMillis The time of the change, in epoch milliseconds
+     * @param first The first text value, or null
+     * @param second The second text value, or null
+     * @param number The number value, or 0
+     * @return The number of the record, or 0 if there is no journal
+     */
+    long record(MutationJournal.Operation operation, long timeMillis, String first, String second, int number) {
+        MutationJournal currentJournal = this.journal;
+        return currentJournal == null ? 0 : currentJournal.record(operation, timeMillis, first, second, number);
+    }
+
+    /**
+     * Record a change in the journal, if there is one,
+     * using the current time, without waiting for it
+     * to be committed.
+     *
+     * @param operation The change made
+     * @param first The first text value, or null
+     * @param second The second text value, or null
+     * @return The number of the record, or 0 if there is no journal
      */
-    Timestamp getCurrentTime() {
-        Date date = new Date();
-        return new Timestamp(date.getTime());
+    long record(MutationJournal.Operation operation, String first, String second) {
+        return record(operation, this.clock.getAsLong(), first, second, 0);
+    }
+
+    /**
+     * Wait until a recorded change (and every change
+     * recorded before it) has been committed to the
+     * journal on disk, before it is acknowledged.
+     *
+     * @param record The number of the record, or 0 if nothing was recorded
+     */
+    void awaitRecorded(long record) {
+        MutationJournal currentJournal = this.journal;
+        if(record > 0 && currentJournal != null) {
+            currentJournal.awaitCommitted(record);
+        }
     }
 
     /**
@@ -99,29 +1182,27 @@ public class Library implements ILibrary {
      * Note that this method does not
      * allow songs from stored albums
      * to be added.
+     *
+     * @param songTitle The title of the song
+     * @param songArtist The artist of the song
+     * @param songDuration The duration of the song (in seconds)
+     * @return True if the song was added, false if it already exists
      */
     @Override
-    public void addSongToLibrary() {
-        System.out.println("Please add the following details: " +
-                "\n\t a. Song duration (in seconds)" +
-                "\n\t b. Song title" +
-                "\n\t c. Song artist");
-        int songDuration = SCANNER.nextInt();
-        SCANNER.nextLine(); // Eliminates the "\n" returned before the next nextLine() method call
-        String songTitle = SCANNER.nextLine().trim();
-        String songArtist = SCANNER.nextLine().trim();
-
-        if(!songExistsInLibrary(songTitle)) {
-            this.song = new Song(songTitle, songDuration, songArtist, getCurrentTime());
-            this.getSongs().add(this.song);
-            if(this.getSongs().contains(this.getSong())) {
-                System.out.println("The song: '" + songTitle + "' by '" + songArtist +
-                        "' has been added to the library successfully.");
+    public boolean addSongToLibrary(String songTitle, String songArtist, int songDuration) {
+        String key = titleKey(songTitle);
+        long recorded;
+        synchronized(titleLock(key)) {
+            if(this.songsByTitle.containsKey(titleSymbol(key))) {
+                return false;
             }
+            long addedTime = getCurrentTime();
+            storeSong(new Song(songTitle, songDuration, songArtist, addedTime));
+            recorded = record(MutationJournal.Operation.ADD_SONG_TO_LIBRARY, addedTime,
+                    songTitle, songArtist, songDuration);
         }
-        else {
-            System.out.println("Error - song already exists!");
-        }
+        awaitRecorded(recorded);
+        return true;
     }
 
     /**
@@ -131,88 +1212,294 @@ public class Library implements ILibrary {
      * Note that this does not
      * include songs that have been
      * stored in albums.
+     *
+     * @param songTitle The title of the song
+     * @return True if the song was removed, false if it was not found
      */
     @Override
-    public void removeSongFromLibrary() {
-        System.out.print("Please type in the song that you want to remove, using its title: ");
-        String songTitle = SCANNER.nextLine().trim();
-
-        if(this.songExistsInLibrary(songTitle)) {
-            for(int i = 0; i < this.getSongs().size(); i++) {
-                if(songTitle.equalsIgnoreCase(this.getSongs().get(i).getTitle())) {
-                    this.getSongs().remove(i);
-                    System.out.println("Song has been removed from the library successfully.");
-                }
+    public boolean removeSongFromLibrary(String songTitle) {
+        String key = titleKey(songTitle);
+        long recorded;
+        synchronized(titleLock(key)) {
+            Song storedSong = this.songsByTitle.get(titleSymbol(key));
+            if(storedSong == null) {
+                return false;
             }
+            discardSong(storedSong);
+            recorded = record(MutationJournal.Operation.REMOVE_SONG_FROM_LIBRARY, songTitle, null);
         }
-        else {
-            System.out.println("Error - song not found and therefore cannot be removed.");
-        }
+        awaitRecorded(recorded);
+        return true;
     }
 
     /**
-     * Print all stored songs in the library
+     * Add a batch of individual
+     * songs to the library.
+     *
+     * The whole batch is checked against the library
+     * (and against itself) in one pass, and the songs
+     * that are new are then added together, all with
+     * the same time. A song is not added if the library
+     * already has a song with its title, or if an earlier
+     * song in the batch has the same title.
+     *
+     * @param songTitles The titles of the songs
+     * @param songArtists The artists of the songs, in the same order
+     * @param songDurations The durations of the songs (in seconds), in the same order
+     * @return For each song, true if it was added, false if it already exists
      */
     @Override
-    public void viewSongsInLibrary() {
-        System.out.println("Songs in library:");
-        for(int i = 0; i < this.getSongs().size(); i++) {
-            String songTitle = this.getSongs().get(i).getTitle();
-            String songArtist = this.getSongs().get(i).getArtist();
-            String duration = this.getSongs().get(i).formatSongDuration(this.getSongs().get(i).getDuration());
-            Timestamp timestamp = this.getSongs().get(i).getTimestamp();
-            System.out.println(songTitle + "\n\t Artist: " + songArtist +
-                    "\n\t Duration: "  + duration +
-                    "\n\t Date Added: " + timestamp + "\n") ;
+    public boolean[] addSongsToLibrary(String[] songTitles, String[] songArtists, int[] songDurations) {
+        String[] keys = new String[songTitles.length];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = titleKey(songTitles[i]);
         }
+        boolean[] added = new boolean[keys.length];
+        long[] recorded = new long[1];
+        withTitleLocks(titleLocksFor(keys), 0, () -> {
+            Set<String> batchKeys = new HashSet<>(keys.length * 2);
+            List<Song> newSongs = new ArrayList<>(keys.length);
+            long addedTime = getCurrentTime();
+            for(int i = 0; i < keys.length; i++) {
+                if(!this.songsByTitle.containsKey(titleSymbol(keys[i])) && batchKeys.add(keys[i])) {
+                    newSongs.add(new Song(songTitles[i], songDurations[i], songArtists[i], addedTime));
+                    added[i] = true;
+                }
+            }
+            if(newSongs.isEmpty()) {
+                return;
+            }
+            storeSongs(newSongs);
+            for(int i = 0; i < keys.length; i++) {
+                if(added[i]) {
+                    recorded[0] = record(MutationJournal.Operation.ADD_SONG_TO_LIBRARY, addedTime,
+                            songTitles[i], songArtists[i], songDurations[i]);
+                }
+            }
+        });
+        awaitRecorded(recorded[0]);
+        return added;
     }
 
     /**
-     * Add a new album to the library
+     * Remove a batch of individual
+     * songs from the library.
+     *
+     * The songs are found in one pass, and then
+     * removed together. A title given twice
+     * is only removed the first time.
+     *
+     * @param songTitles The titles of the songs
+     * @return For each song, true if it was removed, false if it was not found
      */
     @Override
-    public void addAlbumToLibrary() {
-        System.out.println("Please add the following details: " +
-                "\n\t a. Album title" +
-                "\n\t b. Album artist");
-        String albumTitle = SCANNER.nextLine().trim();
-        String albumArtist = SCANNER.nextLine().trim();
+    public boolean[] removeSongsFromLibrary(String[] songTitles) {
+        String[] keys = new String[songTitles.length];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = titleKey(songTitles[i]);
+        }
+        boolean[] removed = new boolean[keys.length];
+        long[] recorded = new long[1];
+        withTitleLocks(titleLocksFor(keys), 0, () -> {
+            Map<String, Song> oldSongs = new HashMap<>(keys.length * 2);
+            for(int i = 0; i < keys.length; i++) {
+                Song storedSong = this.songsByTitle.get(titleSymbol(keys[i]));
+                if(storedSong != null && oldSongs.putIfAbsent(keys[i], storedSong) == null) {
+                    removed[i] = true;
+                }
+            }
+            if(oldSongs.isEmpty()) {
+                return;
+            }
+            discardSongs(new ArrayList<>(oldSongs.values()));
+            for(int i = 0; i < keys.length; i++) {
+                if(removed[i]) {
+                    recorded[0] = record(MutationJournal.Operation.REMOVE_SONG_FROM_LIBRARY, songTitles[i], null);
+                }
+            }
+        });
+        awaitRecorded(recorded[0]);
+        return removed;
+    }
 
-        if(!this.albumExistsInLibrary(albumTitle)) {
-            this.album = new Album(albumTitle, albumArtist, getCurrentTime());
-            this.getAlbums().add(this.album);
-            if(this.getAlbums().contains(this.album)) {
-                System.out.println("The album: '" + albumTitle + "' by '"
-                        + albumArtist + "' has been added successfully.");
+    /**
+     * Get all stored songs in the library
+     *
+     * The list is a copy which does not change, so it
+     * can be read while other threads change the library.
+     *
+     * @return A read-only copy of the stored songs
+     */
+    @Override
+    public List<Song> getSongsInLibrary() {
+        List<Song> snapshot = this.songsSnapshot;
+        if(snapshot == null) {
+            this.catalogueLock.readLock().lock();
+            try {
+                snapshot = Collections.unmodifiableList(listed(this.getSongs(), this.songGaps));
+                this.songsSnapshot = snapshot;
             }
-            else {
-                System.out.println("Error - album could not be added.");
+            finally {
+                this.catalogueLock.readLock().unlock();
             }
         }
-        else {
-            System.out.println("Error - album already exists.");
+        return snapshot;
+    }
+
+    /**
+     * Copy the items of a list,
+     * leaving out its empty places.
+     *
+     * @param items The list, which may hold nulls
+     * @param gaps The number of nulls in the list
+     * @return The items, in the same order
+     */
+    private static <T> List<T> listed(List<T> items, int gaps) {
+        if(gaps == 0) {
+            return new ArrayList<>(items);
+        }
+        List<T> listed = new ArrayList<>(items.size() - gaps);
+        for(T item : items) {
+            if(item != null) {
+                listed.add(item);
+            }
         }
+        return listed;
     }
 
     /**
-     * Remove an existing album from the library
+     * Get the total duration of every
+     * song stored in the library.
+     *
+     * Only the column of durations is read,
+     * rather than visiting every song.
+     *
+     * @return The total duration (in seconds)
+     */
+    long getTotalDuration() {
+        this.catalogueLock.readLock().lock();
+        try {
+            return SongStore.SHARED.totalDuration(this.songRows, this.getSongs().size());
+        }
+        finally {
+            this.catalogueLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the songs most recently
+     * added to the library.
+     *
+     * @param limit The greatest number of songs
+     * @return The songs, newest first
+     */
+    List<Song> getRecentlyAddedSongs(int limit) {
+        this.catalogueLock.readLock().lock();
+        try {
+            return this.songsByTime.newest(limit);
+        }
+        finally {
+            this.catalogueLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the songs added to the
+     * library between two times.
+     *
+     * @param from The earliest time, in epoch milliseconds (inclusive)
+     * @param to The latest time, in epoch milliseconds (exclusive)
+     * @return The songs, oldest first
+     */
+    List<Song> getSongsAddedBetween(long from, long to) {
+        this.catalogueLock.readLock().lock();
+        try {
+            return this.songsByTime.between(from, to);
+        }
+        finally {
+            this.catalogueLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the albums most recently
+     * added to the library.
+     *
+     * @param limit The greatest number of albums
+     * @return The albums, newest first
+     */
+    List<Album> getRecentlyAddedAlbums(int limit) {
+        this.catalogueLock.readLock().lock();
+        try {
+            return this.albumsByTime.newest(limit);
+        }
+        finally {
+            this.catalogueLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the albums added to the
+     * library between two times.
+     *
+     * @param from The earliest time, in epoch milliseconds (inclusive)
+     * @param to The latest time, in epoch milliseconds (exclusive)
+     * @return The albums, oldest first
+     */
+    List<Album> getAlbumsAddedBetween(long from, long to) {
+        this.catalogueLock.readLock().lock();
+        try {
+            return this.albumsByTime.between(from, to);
+        }
+        finally {
+            this.catalogueLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add a new album to the library
+     *
+     * @param albumTitle The title of the album
+     * @param albumArtist The artist of the album
+     * @return True if the album was added, false if it already exists
      */
     @Override
-    public void removeAlbumFromLibrary() {
-        System.out.print("Please type in the album that you want to remove, using its title: ");
-        String albumTitle = SCANNER.nextLine().trim();
-
-        if(this.albumExistsInLibrary(albumTitle)) {
-            for(int i = 0; i < this.getAlbums().size(); i++) {
-                if(albumTitle.equalsIgnoreCase(this.getAlbums().get(i).getTitle())) {
-                    this.getAlbums().remove(i);
-                    System.out.println("Album has been removed from the library successfully.");
-                }
+    public boolean addAlbumToLibrary(String albumTitle, String albumArtist) {
+        String key = titleKey(albumTitle);
+        long recorded;
+        synchronized(titleLock(key)) {
+            if(this.albumsByTitle.containsKey(titleSymbol(key))) {
+                return false;
             }
+            long addedTime = getCurrentTime();
+            storeAlbum(new Album(albumTitle, albumArtist, addedTime));
+            recorded = record(MutationJournal.Operation.ADD_ALBUM_TO_LIBRARY, addedTime,
+                    albumTitle, albumArtist, 0);
         }
-        else {
-            System.out.println("Error - album not found and therefore cannot be removed.");
+        awaitRecorded(recorded);
+        return true;
+    }
+
+    /**
+     * Remove an existing album from the library
+     *
+     * @param albumTitle The title of the album
+     * @return True if the album was removed, false if it was not found
+     */
+    @Override
+    public boolean removeAlbumFromLibrary(String albumTitle) {
+        String key = titleKey(albumTitle);
+        long recorded;
+        synchronized(titleLock(key)) {
+            Album storedAlbum = this.albumsByTitle.get(titleSymbol(key));
+            if(storedAlbum == null) {
+                return false;
+            }
+            discardAlbum(storedAlbum);
+            recorded = record(MutationJournal.Operation.REMOVE_ALBUM_FROM_LIBRARY, albumTitle, null);
         }
+        awaitRecorded(recorded);
+        return true;
     }
 
     /**
@@ -226,38 +1513,19 @@ public class Library implements ILibrary {
      * @return The result
      */
     boolean songExistsInLibrary(String songTitle) {
-        boolean songFound = false;
-        for(int i = 0; i < this.getSongs().size(); i++) {
-            String songTitleInLibrary = this.getSongs().get(i).getTitle();
-            if(songTitle.equalsIgnoreCase(songTitleInLibrary)) {
-                songFound = true;
-                break;
-            }
-        }
-        return songFound;
+        return this.songsByTitle.containsKey(titleSymbol(titleKey(songTitle)));
     }
 
     /**
-     * Enter the album details:
-     *  - album title
-     *  - album artist
+     * Check if an individual song by a
+     * given artist exists in the library.
      *
-     *  This method will be used whenever the
-     *  user is required to either add or remove
-     *  songs from an album, assuming that
-     *  the latter indeed exists.
+     * @param songTitle The song to check, based on its title
+     * @param songArtist The artist of the song
+     * @return The result
      */
-    private static String enterAlbumDetails() {
-        System.out.println("Please enter the following album details: ");
-        System.out.println("\t Album title: ");
-        System.out.println("\t Album artist: ");
-        String albumTitle = SCANNER.nextLine().trim();
-        String albumArtist = SCANNER.nextLine().trim();
-
-        if(!albumTitle.isEmpty() && !albumArtist.isEmpty()) {
-            return albumTitle;
-        }
-        return "Error - '" + albumTitle +  "' by '" + albumArtist + "' not found.";
+    boolean songExistsInLibrary(String songTitle, String songArtist) {
+        return findSong(songTitle, songArtist) != null;
     }
 
     /**
@@ -272,116 +1540,197 @@ public class Library implements ILibrary {
      * @return The result
      */
     boolean albumExistsInLibrary(String albumTitle) {
-        boolean albumFound = false;
-        for(int i = 0; i < this.getAlbums().size(); i++) {
-            if(this.getAlbums().get(i).getTitle().equalsIgnoreCase(albumTitle)) {
-                albumFound = true;
-                break;
-            }
-        }
-        return albumFound;
+        return this.albumsByTitle.containsKey(titleSymbol(titleKey(albumTitle)));
     }
 
     /**
      * Add a new song to a specific album
+     *
+     * @param albumTitle The title of the album
+     * @param songTitle The title of the song
+     * @param songDuration The duration of the song (in seconds)
+     * @return True if the song was added, false if the album was not found
+     * or already contains the song
      */
     @Override
-    public void addSongToAlbum() {
-        System.out.println("Please add the following details: " +
-                "\n\t a. Song duration (in seconds)" +
-                "\n\t b. Song title");
-        int songDuration = SCANNER.nextInt();
-        SCANNER.nextLine(); // Eliminates the "\n" returned before the next nextLine() method call
-        String songTitle = SCANNER.nextLine().trim();
-
-        if(!songExistsInAlbum(songTitle)) {
-            this.song = new Song(songTitle, songDuration, getCurrentTime());
-            if(albumExistsInLibrary(enterAlbumDetails())) {
-                this.getAlbum().getSongs().add(this.song);
-                if(this.getAlbum().getSongs().contains(this.song)) {
-                    System.out.println("Song has been added successfully to the album.");
-                }
-                else {
-                    System.out.println("Error - song could not be added to the album.");
-                }
-            }
-            else {
-                System.out.println("Error - album already exists.");
+    public boolean addSongToAlbum(String albumTitle, String songTitle, int songDuration) {
+        String key = titleKey(albumTitle);
+        long recorded;
+        synchronized(titleLock(key)) {
+            Album storedAlbum = this.albumsByTitle.get(titleSymbol(key));
+            if(storedAlbum == null || storedAlbum.findSong(songTitle) != null) {
+                return false;
             }
+            long addedTime = getCurrentTime();
+            storedAlbum.addSong(new Song(songTitle, songDuration, addedTime));
+            recorded = record(MutationJournal.Operation.ADD_SONG_TO_ALBUM, addedTime,
+                    albumTitle, songTitle, songDuration);
         }
-        else {
-            System.out.println("Error - song already exists.");
-        }
+        awaitRecorded(recorded);
+        return true;
     }
 
     /**
      * Remove a specific song
      * from a given album
+     *
+     * @param albumTitle The title of the album
+     * @param songTitle The title of the song
+     * @return True if the song was removed, false if either could not be found
+     */
+    @Override
+    public boolean removeSongFromAlbum(String albumTitle, String songTitle) {
+        String key = titleKey(albumTitle);
+        long recorded;
+        synchronized(titleLock(key)) {
+            Album storedAlbum = this.albumsByTitle.get(titleSymbol(key));
+            if(storedAlbum == null) {
+                return false;
+            }
+            Song storedSong = storedAlbum.findSong(songTitle);
+            if(storedSong == null) {
+                return false;
+            }
+            storedAlbum.removeSong(storedSong);
+            freeSongs(Collections.singletonList(storedSong));
+            recorded = record(MutationJournal.Operation.REMOVE_SONG_FROM_ALBUM, albumTitle, songTitle);
+        }
+        awaitRecorded(recorded);
+        return true;
+    }
+
+    /**
+     * Add a batch of new songs
+     * to a specific album.
+     *
+     * The batch is checked against the album's
+     * songs (and against itself) in one pass, and the
+     * songs that are new are then added together, all
+     * with the same time.
+     *
+     * @param albumTitle The title of the album
+     * @param songTitles The titles of the songs
+     * @param songDurations The durations of the songs (in seconds), in the same order
+     * @return For each song, true if it was added, false if the album was not found
+     * or already contains the song
      */
     @Override
-    public void removeSongFromAlbum() {
-        if(albumExistsInLibrary(enterAlbumDetails())) {
-            System.out.print("Please type in the song that you want to remove, using its title: ");
-            String songTitle = SCANNER.nextLine().trim();
-            if(songExistsInAlbum(songTitle)) {
-                for(int i = 0; i < this.getAlbums().size(); i++) {
-                    this.getAlbum().getSongs().remove(this.getSongs().get(i));
+    public boolean[] addSongsToAlbum(String albumTitle, String[] songTitles, int[] songDurations) {
+        boolean[] added = new boolean[songTitles.length];
+        String key = titleKey(albumTitle);
+        long recorded = 0;
+        synchronized(titleLock(key)) {
+            Album storedAlbum = this.albumsByTitle.get(titleSymbol(key));
+            if(storedAlbum == null) {
+                return added;
+            }
+            List<Song> albumSongs = storedAlbum.getSongs();
+            Set<String> songKeys = new HashSet<>((albumSongs.size() + songTitles.length) * 2);
+            for(Song albumSong : albumSongs) {
+                songKeys.add(titleKey(albumSong.getTitle()));
+            }
+            List<Song> newSongs = new ArrayList<>(songTitles.length);
+            long addedTime = getCurrentTime();
+            for(int i = 0; i < songTitles.length; i++) {
+                if(songKeys.add(titleKey(songTitles[i]))) {
+                    newSongs.add(new Song(songTitles[i], songDurations[i], addedTime));
+                    added[i] = true;
+                }
+            }
+            storedAlbum.addSongs(newSongs);
+            for(int i = 0; i < songTitles.length; i++) {
+                if(added[i]) {
+                    recorded = record(MutationJournal.Operation.ADD_SONG_TO_ALBUM, addedTime,
+                            albumTitle, songTitles[i], songDurations[i]);
                 }
             }
         }
+        awaitRecorded(recorded);
+        return added;
     }
 
     /**
-     * Check if a song exists
-     * in a given album.
+     * Remove a batch of songs
+     * from a given album.
      *
-     * This method will be used
-     * as part of data validation throughout
-     * the program.
+     * The songs are found in one pass, and
+     * then removed together. A title given
+     * twice is only removed the first time.
      *
-     * @param songTitle The song to check, based on its title
-     * @return The result
+     * @param albumTitle The title of the album
+     * @param songTitles The titles of the songs
+     * @return For each song, true if it was removed, false if either could not be found
      */
-    private boolean songExistsInAlbum(String songTitle) {
-        boolean songFound = false;
-        for(int i = 0; i < this.getAlbum().getSongs().size(); i++) {
-            if(songTitle.equalsIgnoreCase(this.getAlbum().getSongs().get(i).getTitle())) {
-                songFound = true;
-                break;
+    @Override
+    public boolean[] removeSongsFromAlbum(String albumTitle, String[] songTitles) {
+        boolean[] removed = new boolean[songTitles.length];
+        String key = titleKey(albumTitle);
+        long recorded = 0;
+        synchronized(titleLock(key)) {
+            Album storedAlbum = this.albumsByTitle.get(titleSymbol(key));
+            if(storedAlbum == null) {
+                return removed;
+            }
+            List<Song> albumSongs = storedAlbum.getSongs();
+            Map<String, Song> songsByKey = new HashMap<>(albumSongs.size() * 2);
+            for(Song albumSong : albumSongs) {
+                songsByKey.putIfAbsent(titleKey(albumSong.getTitle()), albumSong);
+            }
+            Set<Song> oldSongs = new HashSet<>(songTitles.length * 2);
+            for(int i = 0; i < songTitles.length; i++) {
+                Song storedSong = songsByKey.remove(titleKey(songTitles[i]));
+                if(storedSong != null) {
+                    oldSongs.add(storedSong);
+                    removed[i] = true;
+                }
+            }
+            storedAlbum.removeSongs(oldSongs);
+            freeSongs(oldSongs);
+            for(int i = 0; i < songTitles.length; i++) {
+                if(removed[i]) {
+                    recorded = record(MutationJournal.Operation.REMOVE_SONG_FROM_ALBUM, albumTitle, songTitles[i]);
+                }
             }
         }
-        return songFound;
+        awaitRecorded(recorded);
+        return removed;
     }
 
     /**
-     * Print all stored albums
+     * Get all stored albums
      * in the library.
+     *
+     * The list is a copy which does not change, so it
+     * can be read while other threads change the library.
+     *
+     * @return A read-only copy of the stored albums
      */
     @Override
-    public void viewAlbumsInLibrary() {
-        System.out.println("Albums in library:");
-        System.out.println("**************************");
-        for(int i = 0; i < this.getAlbums().size(); i++) {
-            System.out.println(this.getAlbums().get(i).getTitle() +
-                    " (" + this.getAlbums().get(i).formatAlbumDuration(
-                            this.getAlbums().get(i).calculateAlbumDuration()) + ")");
+    public List<Album> getAlbumsInLibrary() {
+        List<Album> snapshot = this.albumsSnapshot;
+        if(snapshot == null) {
+            this.catalogueLock.readLock().lock();
+            try {
+                snapshot = Collections.unmodifiableList(listed(this.getAlbums(), this.albumGaps));
+                this.albumsSnapshot = snapshot;
+            }
+            finally {
+                this.catalogueLock.readLock().unlock();
+            }
         }
-        System.out.println("**************************");
+        return snapshot;
     }
 
     /**
-     * Print all the songs
+     * Get all the songs
      * from a specific album
+     *
+     * @param albumTitle The title of the album
+     * @return A read-only copy of the album's songs, or null if the album was not found
      */
     @Override
-    public void viewSongsInAlbum() {
-        if(albumExistsInLibrary(enterAlbumDetails())) {
-            System.out.println("Songs in album:");
-            System.out.println("**************************");
-            for(int i = 0; i < this.getAlbum().getSongs().size(); i++) {
-                System.out.println(this.getAlbum().getSongs().get(i).getTitle());
-            }
-            System.out.println("**************************");
-        }
+    public List<Song> getSongsInAlbum(String albumTitle) {
+        Album storedAlbum = findAlbum(albumTitle);
+        return storedAlbum == null ? null : storedAlbum.getSongs();
     }
-}
\ No newline at end of file
+}
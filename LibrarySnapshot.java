@@ -0,0 +1,404 @@
+package Section6.LinkedListChallenge;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will save the library and the playlist
+ * to a compact binary snapshot file, and load them
+ * back again when the application starts.
+ *
+ * The snapshot is laid out as follows:
+ *  - header: magic number (int), format version (short)
+ *  - string table: count (int), then each string as
+ *    a length (int) followed by its UTF-8 bytes
+ *  - library songs: count (int), then each song
+ *  - library albums: count (int), then each album
+ *  - playlist songs: count (int), then each song
+ *  - playlist albums: count (int), then each album
+ *
+ * A song is written as its title and artist (as ids into the
+ * string table, with -1 for no artist), its duration (int) and the
+ * time it was added (epoch milliseconds, as a long). An album is
+ * written as its title, artist and time added, followed by
+ * its songs in the same way as above.
+ *
+ * Every distinct title and artist is therefore only written once,
+ * and the whole file is memory-mapped when it is loaded. The strings
+ * are copied between the file and the shared symbol table as bytes,
+ * so no Strings are made while saving or loading.
+ *
+ * @author Ben Silveston
+ */
+class LibrarySnapshot {
+    private static final int MAGIC = 0x504C5353; // "PLSS"
+    private static final short VERSION = 1;
+    private static final int NO_STRING = -1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The fewest bytes a song, an album (with no
+     * songs) and a string take up in a snapshot.
+     */
+    private static final int SONG_BYTES = 3 * Integer.BYTES + Long.BYTES;
+    private static final int ALBUM_BYTES = 3 * Integer.BYTES + Long.BYTES;
+    private static final int STRING_BYTES = Integer.BYTES;
+
+    /**
+     * The strings written to a snapshot, each one
+     * held as its id in the shared symbol table.
+     */
+    private static class StringTable {
+        /**
+         * The snapshot id of each symbol plus one,
+         * indexed by symbol id (0 if not yet added).
+         */
+        private int[] stringIds = new int[64];
+        private int[] symbolIds = new int[64];
+        private int size;
+
+        /**
+         * Add a symbol to the table
+         * if it is not already there.
+         *
+         * @param symbolId The symbol id, which may be SymbolTable.NONE
+         */
+        void add(int symbolId) {
+            if(symbolId == SymbolTable.NONE) {
+                return;
+            }
+            if(symbolId >= this.stringIds.length) {
+                this.stringIds = Arrays.copyOf(this.stringIds, Math.max(symbolId + 1, this.stringIds.length * 2));
+            }
+            if(this.stringIds[symbolId] == 0) {
+                if(this.size == this.symbolIds.length) {
+                    this.symbolIds = Arrays.copyOf(this.symbolIds, this.size * 2);
+                }
+                this.symbolIds[this.size] = symbolId;
+                this.stringIds[symbolId] = ++this.size;
+            }
+        }
+
+        /**
+         * Get the snapshot id of a symbol.
+         *
+         * @param symbolId The symbol id, which may be SymbolTable.NONE
+         * @return The snapshot id, or NO_STRING for SymbolTable.NONE
+         */
+        int stringId(int symbolId) {
+            return symbolId == SymbolTable.NONE ? NO_STRING : this.stringIds[symbolId] - 1;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * This class only provides static methods.
+     */
+    private LibrarySnapshot() {
+    }
+
+    /**
+     * Save a playlist, and the library
+     * behind it, to a snapshot file.
+     *
+     * The snapshot is written to a temporary file first,
+     * which then replaces the existing snapshot, so a failed
+     * save never leaves a partly written snapshot behind.
+     *
+     * @param playlist The playlist to save
+     * @param file The snapshot file
+     * @throws IOException If the snapshot could not be written
+     */
+    static void save(Playlist playlist, Path file) throws IOException {
+        // The library's and playlist's lists are read once, so that the
+        // snapshot is consistent even if another thread changes them
+        Library library = playlist.getLibrary();
+        List<Song> librarySongs = library.getSongsInLibrary();
+        List<Album> libraryAlbums = library.getAlbumsInLibrary();
+        List<Song> playlistSongs = new ArrayList<>(playlist.getStoredSongs().size());
+        for(Song song : playlist.getPlaylistOfSongs()) {
+            playlistSongs.add(song);
+        }
+        List<Album> playlistAlbums = playlist.getPlaylistOfAlbums();
+        Map<Album, List<Song>> albumSongs = new IdentityHashMap<>();
+        StringTable strings = new StringTable();
+        for(Song song : librarySongs) {
+            internSong(song, strings);
+        }
+        for(Album album : libraryAlbums) {
+            internAlbum(album, albumSongs, strings);
+        }
+        for(Song song : playlistSongs) {
+            internSong(song, strings);
+        }
+        for(Album album : playlistAlbums) {
+            internAlbum(album, albumSongs, strings);
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try(DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporaryFile), BUFFER_SIZE))) {
+                output.writeInt(MAGIC);
+                output.writeShort(VERSION);
+                output.writeInt(strings.size);
+                for(int i = 0; i < strings.size; i++) {
+                    byte[] bytes = SymbolTable.SHARED.getBytes(strings.symbolIds[i]);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+                writeSongs(output, librarySongs, librarySongs.size(), strings);
+                writeAlbums(output, libraryAlbums, albumSongs, strings);
+                writeSongs(output, playlistSongs, playlistSongs.size(), strings);
+                writeAlbums(output, playlistAlbums, albumSongs, strings);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Load a playlist, and the library
+     * behind it, from a snapshot file.
+     *
+     * @param file The snapshot file
+     * @return The loaded playlist
+     * @throws IOException If the snapshot could not be read or is not valid
+     */
+    static Playlist load(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to be loaded: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.remaining() < 6 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a playlist snapshot: " + file);
+            }
+            short version = buffer.getShort();
+            if(version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+
+            // Each string goes straight from the file into the
+            // shared symbol table, without making a String
+            int[] strings = new int[readCount(buffer, STRING_BYTES)];
+            byte[] bytes = new byte[256];
+            for(int i = 0; i < strings.length; i++) {
+                int length = readCount(buffer, 1);
+                if(length > bytes.length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                buffer.get(bytes, 0, length);
+                strings[i] = SymbolTable.SHARED.intern(bytes, 0, length);
+            }
+
+            List<Song> songs = readSongs(buffer, strings);
+            List<Album> albums = readAlbums(buffer, strings);
+            Library library = new Library(songs, albums);
+            PlaybackQueue storedSongs = new PlaybackQueue(library);
+            for(Song song : readSongs(buffer, strings)) {
+                // The playlist refers to the library's own copy of each song where there is one
+                Song librarySong = song.getArtist() == null ? library.findSong(song.getTitle())
+                        : library.findSong(song.getTitle(), song.getArtist());
+                storedSongs.add(librarySong != null ? librarySong : song);
+                if(librarySong != null) {
+                    // Nothing else holds the copy read, so its row is freed straight away
+                    SongStore.SHARED.free(song);
+                }
+            }
+            List<Album> storedAlbums = new ArrayList<>();
+            for(Album album : readAlbums(buffer, strings)) {
+                // Likewise the library's own album, which the playlist plays the songs of
+                Album libraryAlbum = library.findAlbum(album.getTitle());
+                storedAlbums.add(libraryAlbum != null ? libraryAlbum : album);
+                if(libraryAlbum != null) {
+                    for(Song albumSong : album.getSongs()) {
+                        SongStore.SHARED.free(albumSong);
+                    }
+                }
+            }
+            return new Playlist(library, storedAlbums, storedSongs);
+        }
+        catch(RuntimeException e) {
+            // A truncated or corrupt file shows up as a buffer underflow or bad string id
+            throw new IOException("Corrupt playlist snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Add a song's title and artist
+     * to the string table.
+     *
+     * @param song The song
+     * @param strings The string table
+     */
+    private static void internSong(Song song, StringTable strings) {
+        strings.add(song.getTitleId());
+        strings.add(song.getArtistId());
+    }
+
+    /**
+     * Add an album's title and artist,
+     * and those of its songs, to the string table.
+     *
+     * The album's songs are kept, so that the same
+     * songs are written even if the album changes.
+     *
+     * @param album The album
+     * @param albumSongs The songs of each album added so far
+     * @param strings The string table
+     */
+    private static void internAlbum(Album album, Map<Album, List<Song>> albumSongs, StringTable strings) {
+        strings.add(album.getTitleId());
+        strings.add(album.getArtistId());
+        List<Song> songs = album.getSongs();
+        albumSongs.put(album, songs);
+        for(Song song : songs) {
+            internSong(song, strings);
+        }
+    }
+
+    /**
+     * Write a count of songs
+     * followed by each song.
+     *
+     * @param output The snapshot being written
+     * @param songs The songs to write
+     * @param count The number of songs
+     * @param strings The string table
+     * @throws IOException If the songs could not be written
+     */
+    private static void writeSongs(DataOutputStream output, Iterable<Song> songs, int count,
+                                   StringTable strings) throws IOException {
+        output.writeInt(count);
+        for(Song song : songs) {
+            output.writeInt(strings.stringId(song.getTitleId()));
+            output.writeInt(strings.stringId(song.getArtistId()));
+            output.writeInt(song.getDuration());
+            output.writeLong(song.getAddedTime());
+        }
+    }
+
+    /**
+     * Write a count of albums
+     * followed by each album and its songs.
+     *
+     * @param output The snapshot being written
+     * @param albums The albums to write
+     * @param albumSongs The songs of each album, as added to the string table
+     * @param strings The string table
+     * @throws IOException If the albums could not be written
+     */
+    private static void writeAlbums(DataOutputStream output, List<Album> albums, Map<Album, List<Song>> albumSongs,
+                                    StringTable strings) throws IOException {
+        output.writeInt(albums.size());
+        for(Album album : albums) {
+            output.writeInt(strings.stringId(album.getTitleId()));
+            output.writeInt(strings.stringId(album.getArtistId()));
+            output.writeLong(album.getAddedTime());
+            List<Song> songs = albumSongs.get(album);
+            writeSongs(output, songs, songs.size(), strings);
+        }
+    }
+
+    /**
+     * Read a count of items, checking that the
+     * rest of the snapshot is long enough to hold
+     * them before anything is made to hold them.
+     *
+     * A corrupt count would otherwise ask for more
+     * memory than there is, which is an error rather
+     * than an exception and so is not reported as a
+     * corrupt snapshot.
+     *
+     * @param buffer The snapshot being read
+     * @param itemBytes The fewest bytes each item takes up
+     * @return The count
+     */
+    private static int readCount(ByteBuffer buffer, int itemBytes) {
+        int count = buffer.getInt();
+        if(count < 0 || count > buffer.remaining() / itemBytes) {
+            throw new IllegalStateException("Count of " + count + " is larger than the rest of the snapshot");
+        }
+        return count;
+    }
+
+    /**
+     * Read a string id and look up its
+     * id in the shared symbol table.
+     *
+     * @param buffer The snapshot being read
+     * @param strings The symbol id of each string in the string table
+     * @return The symbol id, or SymbolTable.NONE if no string was recorded
+     */
+    private static int readString(ByteBuffer buffer, int[] strings) {
+        int id = buffer.getInt();
+        return id == NO_STRING ? SymbolTable.NONE : strings[id];
+    }
+
+    /**
+     * Read a count of songs
+     * followed by each song.
+     *
+     * @param buffer The snapshot being read
+     * @param strings The symbol id of each string in the string table
+     * @return The songs read
+     */
+    private static List<Song> readSongs(ByteBuffer buffer, int[] strings) {
+        int count = readCount(buffer, SONG_BYTES);
+        List<Song> songs = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            int title = readString(buffer, strings);
+            int artist = readString(buffer, strings);
+            int duration = buffer.getInt();
+            long addedTime = buffer.getLong();
+            songs.add(new Song(title, duration, artist, addedTime));
+        }
+        return songs;
+    }
+
+    /**
+     * Read a count of albums
+     * followed by each album and its songs.
+     *
+     * @param buffer The snapshot being read
+     * @param strings The symbol id of each string in the string table
+     * @return The albums read
+     */
+    private static List<Album> readAlbums(ByteBuffer buffer, int[] strings) {
+        int count = readCount(buffer, ALBUM_BYTES);
+        List<Album> albums = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            int title = readString(buffer, strings);
+            int artist = readString(buffer, strings);
+            Album album = new Album(title, artist, buffer.getLong());
+            for(Song song : readSongs(buffer, strings)) {
+                album.addSong(song);
+            }
+            albums.add(album);
+        }
+        return albums;
+    }
+}
@@ -0,0 +1,549 @@
+package Section6.LinkedListChallenge;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class represents an append-only journal of every
+ * change made to the library and the playlist.
+ *
+ * Changes are recorded as they happen, and replayed on top
+ * of the latest snapshot when the application next starts.
+ * This means that nothing is lost if the application stops
+ * without saving, and the whole library does not need to be
+ * rewritten for every change.
+ *
+ * Records are gathered in memory and committed to disk in groups:
+ * a background thread writes and syncs everything recorded since
+ * the last commit as soon as there is anything to commit, so the
+ * changes recorded while one sync is under way all share the next.
+ * Recording a change waits until the group holding it has been
+ * synced, so a change is never acknowledged before it is on disk.
+ * A change can also be recorded without waiting, and waited for
+ * later, so that a batch of changes only waits once.
+ *
+ * Each record is laid out as follows:
+ *  - length of the record body (int)
+ *  - operation (byte)
+ *  - time of the change, in epoch milliseconds (long)
+ *  - first and second text values, each as a length (int, or -1
+ *    for none) followed by its UTF-8 bytes
+ *  - number value, e.g. a duration (int)
+ *  - CRC32 checksum of the record body (int)
+ *
+ * A record that was only partly written when the application
+ * stopped fails its checksum and is discarded, along with
+ * anything after it.
+ *
+ * @author Ben Silveston
+ */
+class MutationJournal implements Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+    private static final int COMMIT_THRESHOLD = 1 << 20;
+    private static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 0;
+
+    private FileChannel channel;
+    private ByteBuffer pending;
+    private ByteBuffer committing;
+    private long commitIntervalMillis;
+    private Thread committer;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * The number of records made so far,
+     * and the number of those synced to disk.
+     */
+    private long recorded;
+    private long committed;
+    private final Object recordLock = new Object();
+    private final Object commitLock = new Object();
+    private final Object committedLock = new Object();
+
+    /**
+     * The changes that can be recorded.
+     */
+    enum Operation {
+        ADD_SONG_TO_LIBRARY,
+        REMOVE_SONG_FROM_LIBRARY,
+        ADD_ALBUM_TO_LIBRARY,
+        REMOVE_ALBUM_FROM_LIBRARY,
+        ADD_SONG_TO_ALBUM,
+        REMOVE_SONG_FROM_ALBUM,
+        ADD_SONG_TO_PLAYLIST,
+        REMOVE_SONG_FROM_PLAYLIST,
+        ADD_ALBUM_TO_PLAYLIST,
+        REMOVE_ALBUM_FROM_PLAYLIST
+    }
+
+    /**
+     * Constructor
+     *
+     * Any partly written record left at the
+     * end of the journal is discarded first.
+     *
+     * @param file The journal file, which is created if it does not exist
+     * @param commitIntervalMillis The time to wait for more changes before committing, or 0 to commit at once
+     * @throws IOException If the journal could not be opened
+     */
+    MutationJournal(Path file, long commitIntervalMillis) throws IOException {
+        long validLength = Files.exists(file) ? scan(file, null) : 0;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.truncate(validLength);
+        this.channel.position(validLength);
+        this.pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.committing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.committer = new Thread(this::runCommitter, "journal-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Constructor
+     *
+     * This constructor will commit changes
+     * as soon as they are recorded.
+     *
+     * @param file The journal file, which is created if it does not exist
+     * @throws IOException If the journal could not be opened
+     */
+    MutationJournal(Path file) throws IOException {
+        this(file, DEFAULT_COMMIT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Record a change, and wait until
+     * it has been committed to disk.
+     *
+     * @param operation The change made
+     * @param timeMillis The time of the change, in epoch milliseconds
+     * @param first The first text value, or null
+     * @param second The second text value, or null
+     * @param number The number value, or 0
+     */
+    void append(Operation operation, long timeMillis, String first, String second, int number) {
+        awaitCommitted(record(operation, timeMillis, first, second, number));
+    }
+
+    /**
+     * Record a change without waiting
+     * for it to be committed.
+     *
+     * The change is committed to disk by the next group
+     * commit, which can be waited for with awaitCommitted().
+     *
+     * @param operation The change made
+     * @param timeMillis The time of the change, in epoch milliseconds
+     * @param first The first text value, or null
+     * @param second The second text value, or null
+     * @param number The number value, or 0
+     * @return The number of the record, to pass to awaitCommitted()
+     */
+    long record(Operation operation, long timeMillis, String first, String second, int number) {
+        if(this.closed) {
+            throw new IllegalStateException("The journal has been closed.");
+        }
+        if(this.failure != null) {
+            throw new UncheckedIOException("The journal could not be written.", this.failure);
+        }
+        byte[] firstBytes = first == null ? null : first.getBytes(StandardCharsets.UTF_8);
+        byte[] secondBytes = second == null ? null : second.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 1 + 8 + 4 + (firstBytes == null ? 0 : firstBytes.length)
+                + 4 + (secondBytes == null ? 0 : secondBytes.length) + 4;
+
+        synchronized(this.recordLock) {
+            this.pending = ensureCapacity(this.pending, 4 + bodyLength + 4);
+            boolean wasEmpty = this.pending.position() == 0;
+            this.pending.putInt(bodyLength);
+            int bodyStart = this.pending.position();
+            this.pending.put((byte) operation.ordinal());
+            this.pending.putLong(timeMillis);
+            putBytes(this.pending, firstBytes);
+            putBytes(this.pending, secondBytes);
+            this.pending.putInt(number);
+            CRC32 checksum = new CRC32();
+            checksum.update(this.pending.array(), bodyStart, bodyLength);
+            this.pending.putInt((int) checksum.getValue());
+            if(wasEmpty || this.pending.position() >= COMMIT_THRESHOLD) {
+                this.recordLock.notifyAll();
+            }
+            return ++this.recorded;
+        }
+    }
+
+    /**
+     * Wait until a recorded change, and every
+     * change recorded before it, has been
+     * committed to disk.
+     *
+     * @param record The number of the record, as returned by record()
+     */
+    void awaitCommitted(long record) {
+        boolean interrupted = false;
+        synchronized(this.committedLock) {
+            while(this.committed < record && this.failure == null) {
+                try {
+                    this.committedLock.wait();
+                }
+                catch(InterruptedException e) {
+                    // The change must still be on disk before it is acknowledged
+                    interrupted = true;
+                }
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if(this.committed < record) {
+            throw new UncheckedIOException("The journal could not be written.", this.failure);
+        }
+    }
+
+    /**
+     * Mark every change up to a record as
+     * committed, waking anyone waiting for them.
+     *
+     * @param record The number of the last record committed
+     */
+    private void markCommitted(long record) {
+        synchronized(this.committedLock) {
+            this.committed = Math.max(this.committed, record);
+            this.committedLock.notifyAll();
+        }
+    }
+
+    /**
+     * Commit every change recorded so far,
+     * writing it to disk and syncing the file.
+     *
+     * @throws IOException If the changes could not be committed
+     */
+    void commit() throws IOException {
+        synchronized(this.commitLock) {
+            long upTo;
+            synchronized(this.recordLock) {
+                ByteBuffer recordedChanges = this.pending;
+                this.pending = this.committing;
+                this.committing = recordedChanges;
+                upTo = this.recorded;
+            }
+            this.committing.flip();
+            try {
+                if(this.committing.hasRemaining()) {
+                    while(this.committing.hasRemaining()) {
+                        this.channel.write(this.committing);
+                    }
+                    this.channel.force(false);
+                }
+            }
+            catch(IOException e) {
+                this.failure = e;
+                // Anyone waiting is told that their change was not committed
+                markCommitted(0);
+                throw e;
+            }
+            this.committing.clear();
+            markCommitted(upTo);
+        }
+    }
+
+    /**
+     * Discard every change in the journal,
+     * including any not yet committed.
+     *
+     * This is used once a snapshot containing
+     * all the changes so far has been saved.
+     *
+     * @throws IOException If the journal could not be cleared
+     */
+    void reset() throws IOException {
+        synchronized(this.commitLock) {
+            long upTo;
+            synchronized(this.recordLock) {
+                this.pending.clear();
+                upTo = this.recorded;
+            }
+            this.channel.truncate(0);
+            this.channel.position(0);
+            this.channel.force(true);
+            // The discarded changes are all in the saved snapshot
+            markCommitted(upTo);
+        }
+    }
+
+    /**
+     * Commit any remaining changes
+     * and close the journal.
+     *
+     * @throws IOException If the remaining changes could not be committed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized(this.commitLock) {
+            if(this.closed) {
+                return;
+            }
+            this.closed = true;
+        }
+        synchronized(this.recordLock) {
+            this.recordLock.notifyAll();
+        }
+        try {
+            this.committer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            commit();
+        }
+        finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Commit recorded changes as soon as there
+     * are any (after waiting the commit interval
+     * for more, unless enough have been recorded)
+     * until the journal is closed.
+     */
+    private void runCommitter() {
+        while(!this.closed) {
+            synchronized(this.recordLock) {
+                try {
+                    while(this.pending.position() == 0 && !this.closed) {
+                        this.recordLock.wait();
+                    }
+                    if(this.commitIntervalMillis > 0 && this.pending.position() < COMMIT_THRESHOLD && !this.closed) {
+                        this.recordLock.wait(this.commitIntervalMillis);
+                    }
+                }
+                catch(InterruptedException e) {
+                    return;
+                }
+            }
+            try {
+                commit();
+            }
+            catch(IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replay every change in a journal
+     * on to a playlist and its library.
+     *
+     * Each change is given the time at which it was originally
+     * made. The playlist should not be recording to a journal
+     * while this happens.
+     *
+     * @param file The journal file
+     * @param playlist The playlist to replay the changes on to
+     * @return The number of changes replayed
+     * @throws IOException If the journal could not be read
+     */
+    static long replay(Path file, Playlist playlist) throws IOException {
+        if(!Files.exists(file)) {
+            return 0;
+        }
+        long[] replayed = new long[1];
+        scan(file, (operation, timeMillis, first, second, number) -> {
+            apply(playlist, operation, timeMillis, first, second, number);
+            replayed[0]++;
+        });
+        return replayed[0];
+    }
+
+    /**
+     * Receives each valid record
+     * read from a journal.
+     */
+    private interface RecordHandler {
+        /**
+         * Handle a single record.
+         *
+         * @param operation The change made
+         * @param timeMillis The time of the change, in epoch milliseconds
+         * @param first The first text value
+         * @param second The second text value
+         * @param number The number value
+         */
+        void handle(Operation operation, long timeMillis, String first, String second, int number);
+    }
+
+    /**
+     * Read every valid record in a journal,
+     * stopping at the first record that is
+     * incomplete or fails its checksum.
+     *
+     * @param file The journal file
+     * @param handler Receives each record, or null to only validate the journal
+     * @return The length of the journal up to the end of the last valid record
+     * @throws IOException If the journal could not be read
+     */
+    private static long scan(Path file, RecordHandler handler) throws IOException {
+        long validLength = 0;
+        byte[] body = new byte[256];
+        try(DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), INITIAL_BUFFER_SIZE))) {
+            while(true) {
+                int bodyLength = input.readInt();
+                if(bodyLength < 21 || bodyLength > COMMIT_THRESHOLD * 16) {
+                    break;
+                }
+                if(bodyLength > body.length) {
+                    body = new byte[bodyLength];
+                }
+                input.readFully(body, 0, bodyLength);
+                int storedChecksum = input.readInt();
+                CRC32 checksum = new CRC32();
+                checksum.update(body, 0, bodyLength);
+                if((int) checksum.getValue() != storedChecksum) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.wrap(body, 0, bodyLength);
+                int operation = record.get();
+                if(operation < 0 || operation >= Operation.values().length) {
+                    break;
+                }
+                long timeMillis = record.getLong();
+                String first = getString(record);
+                String second = getString(record);
+                int number = record.getInt();
+                if(handler != null) {
+                    handler.handle(Operation.values()[operation], timeMillis, first, second, number);
+                }
+                validLength += 4 + bodyLength + 4;
+            }
+        }
+        catch(EOFException e) {
+            // The end of the journal, or a partly written final record
+        }
+        return validLength;
+    }
+
+    /**
+     * Apply a single recorded change
+     * to a playlist and its library.
+     *
+     * @param playlist The playlist to apply the change to
+     * @param operation The change made
+     * @param timeMillis The time of the change, in epoch milliseconds
+     * @param first The first text value
+     * @param second The second text value
+     * @param number The number value
+     */
+    private static void apply(Playlist playlist, Operation operation, long timeMillis,
+                              String first, String second, int number) {
+        Library library = playlist.getLibrary();
+        library.setClock(() -> timeMillis);
+        try {
+            switch(operation) {
+                case ADD_SONG_TO_LIBRARY:
+                    library.addSongToLibrary(first, second, number);
+                    break;
+                case REMOVE_SONG_FROM_LIBRARY:
+                    library.removeSongFromLibrary(first);
+                    break;
+                case ADD_ALBUM_TO_LIBRARY:
+                    library.addAlbumToLibrary(first, second);
+                    break;
+                case REMOVE_ALBUM_FROM_LIBRARY:
+                    library.removeAlbumFromLibrary(first);
+                    break;
+                case ADD_SONG_TO_ALBUM:
+                    library.addSongToAlbum(first, second, number);
+                    break;
+                case REMOVE_SONG_FROM_ALBUM:
+                    library.removeSongFromAlbum(first, second);
+                    break;
+                case ADD_SONG_TO_PLAYLIST:
+                    playlist.addSongToPlaylist(first);
+                    break;
+                case REMOVE_SONG_FROM_PLAYLIST:
+                    playlist.removeSongFromPlaylist(first);
+                    break;
+                case ADD_ALBUM_TO_PLAYLIST:
+                    playlist.addAlbumToPlaylist(first);
+                    break;
+                case REMOVE_ALBUM_FROM_PLAYLIST:
+                    playlist.removeAlbumFromPlaylist(first);
+                    break;
+            }
+        }
+        finally {
+            library.setClock(null);
+        }
+    }
+
+    /**
+     * Make sure that a buffer has room
+     * for a number of extra bytes, replacing
+     * it with a larger copy if needed.
+     *
+     * @param buffer The buffer
+     * @param extra The number of extra bytes needed
+     * @return The buffer, or its larger replacement
+     */
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int extra) {
+        if(buffer.remaining() >= extra) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    /**
+     * Write a text value to a record.
+     *
+     * @param buffer The buffer holding the record
+     * @param bytes The UTF-8 bytes of the value, or null for none
+     */
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if(bytes == null) {
+            buffer.putInt(-1);
+        }
+        else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Read a text value from a record.
+     *
+     * @param record The record
+     * @return The value, or null for none
+     */
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if(length < 0) {
+            return null;
+        }
+        String value = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,866 @@
+package Section6.LinkedListChallenge;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class represents the queue of songs
+ * that the playlist will play.
+ *
+ * Rather than holding its own copy of each song, the queue
+ * holds the ids that the library has given to its songs, in
+ * playing order, in a single int array. Together with a map from
+ * each id to its place in the array (used to stop a song being
+ * added twice, and to find a song without searching) this costs
+ * a few dozen bytes per song, so a great many playlists can
+ * share one library. Each id is retained from the library while
+ * it is queued, so a song that leaves the library keeps its id
+ * until the queue lets it go.
+ *
+ * Removing a song leaves its place empty rather than moving
+ * every later song along, so it takes the same time however
+ * long the queue is. The empty places are skipped over, and are
+ * closed up in one pass once they make up half of the array.
+ *
+ * A cursor points at the song that is currently playing,
+ * so skipping forwards, skipping backwards and repeating a song
+ * do not need to start again from the top of the playlist.
+ *
+ * Whole albums can be queued too. The queue holds a reference
+ * to the library's album in a single place, rather than a copy
+ * of each of its songs, and only looks up the album's songs as
+ * they are played. So queuing an album of a thousand songs costs
+ * the same as queuing one song, and the queue plays the album's
+ * songs as they are at the time, even if the album has changed.
+ *
+ * The queue can also be played in a random order, chosen
+ * a song (or album) at a time by a ShuffleOrder, while the
+ * songs themselves stay in the order they were added. An
+ * album is played through in its own order when it is reached.
+ *
+ * @author Ben Silveston
+ */
+class PlaybackQueue implements Iterable<Song> {
+    private static final int NOTHING_PLAYING = -1;
+    private static final int NOT_QUEUED = -1;
+
+    /**
+     * The id held in a place whose
+     * song has been removed.
+     */
+    private static final int REMOVED = -1;
+
+    /**
+     * The id held in the place of an album, less the
+     * album's own id, so that album places can be told
+     * apart from song ids and from removed places.
+     */
+    private static final int FIRST_ALBUM = -2;
+
+    private Library library;
+
+    /**
+     * The id of each song in playing order, or for
+     * a queued album, FIRST_ALBUM less its id.
+     */
+    private int[] songIds;
+
+    /**
+     * The number of places used in the array
+     * of ids, including those of removed songs.
+     */
+    private int end;
+    private int size;
+    private int current;
+
+    /**
+     * The song being played of the album at the
+     * cursor (or chosen by the shuffle), counting from 0.
+     */
+    private int track;
+
+    /**
+     * The place in the array of ids of each queued song, by id.
+     */
+    private IntIntHashMap positions;
+
+    /**
+     * The queued albums, and their places in
+     * the array of ids, by album id.
+     */
+    private Map<Integer, Album> albums;
+    private IntIntHashMap albumPositions;
+
+    /**
+     * The random order being played,
+     * or null when playing in order.
+     */
+    private ShuffleOrder shuffle;
+
+    /**
+     * The ids of the queued songs that the library no longer
+     * lists (they have been removed, perhaps with a new song
+     * added under the same title, or were never listed), by
+     * case-folded title, or null until there are any. A song
+     * is not queued while a song the library no longer lists
+     * with its title is, so no two of these share a title.
+     */
+    private Map<String, Integer> unlistedSongs;
+
+    /**
+     * The ids of queued songs that the library has told the
+     * queue it no longer lists, waiting to be put in the map
+     * of those songs. The library may add to these at any time,
+     * so they are guarded by the queue's own monitor.
+     */
+    private int[] unlistedInbox;
+    private int unlistedInboxCount;
+    private volatile boolean unlistedPending;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create
+     * an empty queue, with nothing playing.
+     *
+     * @param library The library holding the queued songs
+     */
+    PlaybackQueue(Library library) {
+        this.library = library;
+        this.songIds = new int[8];
+        this.current = NOTHING_PLAYING;
+        this.positions = new IntIntHashMap();
+        this.albums = new HashMap<>();
+        this.albumPositions = new IntIntHashMap();
+    }
+
+    /**
+     * Get the number of songs
+     * queued on their own.
+     *
+     * @return The number of songs, not counting the songs of queued albums
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Check whether the queue
+     * contains any songs or albums.
+     *
+     * @return The result
+     */
+    boolean isEmpty() {
+        return size == 0 && albums.isEmpty();
+    }
+
+    /**
+     * Add a song to the end of the queue.
+     *
+     * A song is not added if it is already queued, or
+     * if a song with the same title that the library no
+     * longer lists is queued.
+     *
+     * @param song The song to be added, as held by the library
+     * @return True if the song was added, false if it (or its title) is already queued,
+     * or it has been freed since it was found
+     */
+    boolean add(Song song) {
+        if(isQueued(song)) {
+            return false;
+        }
+        int songId = this.library.retain(song, this);
+        if(songId == Song.NO_ID) {
+            return false;
+        }
+        if(titleIsQueuedUnlisted(song)) {
+            this.library.release(songId, this);
+            return false;
+        }
+        if(this.end == this.songIds.length) {
+            this.songIds = Arrays.copyOf(this.songIds, this.end * 2);
+        }
+        this.positions.put(songId, this.end);
+        this.songIds[this.end++] = songId;
+        this.size++;
+        if(this.shuffle != null) {
+            this.shuffle.add(songId, this.songIds);
+        }
+        noteIfUnlisted(song);
+        return true;
+    }
+
+    /**
+     * Add a batch of songs to the end of the queue.
+     *
+     * The array of ids grows at most once
+     * for the whole batch. As with a single song,
+     * a song is not added if it, or a song with the
+     * same title that the library no longer lists,
+     * is already queued.
+     *
+     * @param songs The songs to be added, as held by the library
+     * @return For each song, true if it was added, false if it (or its title) is already queued,
+     * or it has been freed since it was found
+     */
+    boolean[] addAll(List<Song> songs) {
+        boolean[] added = new boolean[songs.size()];
+        if(this.end + songs.size() > this.songIds.length) {
+            this.songIds = Arrays.copyOf(this.songIds, Math.max(this.end + songs.size(), this.end * 2));
+        }
+        for(int i = 0; i < added.length; i++) {
+            if(isQueued(songs.get(i))) {
+                continue;
+            }
+            int songId = this.library.retain(songs.get(i), this);
+            if(songId == Song.NO_ID) {
+                continue;
+            }
+            if(titleIsQueuedUnlisted(songs.get(i))) {
+                this.library.release(songId, this);
+            }
+            else {
+                this.positions.put(songId, this.end);
+                this.songIds[this.end++] = songId;
+                this.size++;
+                if(this.shuffle != null) {
+                    this.shuffle.add(songId, this.songIds);
+                }
+                noteIfUnlisted(songs.get(i));
+                added[i] = true;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Add an album to the end of the queue.
+     *
+     * Only a reference to the album is queued,
+     * however many songs it has.
+     *
+     * @param album The album to be added, as held by the library
+     * @return True if the album was added, false if it is already queued
+     */
+    boolean addAlbum(Album album) {
+        if(this.albumPositions.get(album.getId(), NOT_QUEUED) != NOT_QUEUED) {
+            return false;
+        }
+        if(this.end == this.songIds.length) {
+            this.songIds = Arrays.copyOf(this.songIds, this.end * 2);
+        }
+        this.library.retainAlbum(album);
+        int entry = FIRST_ALBUM - album.getId();
+        this.albums.put(album.getId(), album);
+        this.albumPositions.put(album.getId(), this.end);
+        this.songIds[this.end++] = entry;
+        if(this.shuffle != null) {
+            this.shuffle.add(entry, this.songIds);
+        }
+        return true;
+    }
+
+    /**
+     * Remove an album from the queue.
+     *
+     * @param album The album to be removed
+     * @return True if the album was removed, false if it was not in the queue
+     */
+    boolean removeAlbum(Album album) {
+        int position = this.albumPositions.get(album.getId(), NOT_QUEUED);
+        if(position == NOT_QUEUED) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    /**
+     * Check whether a song is in the queue,
+     * using the song's title.
+     *
+     * The library's song with that title is
+     * looked up in the map of queued ids, and
+     * then the queued songs the library no
+     * longer has under that title.
+     *
+     * @param songTitle The title of the song
+     * @return The result
+     */
+    boolean contains(String songTitle) {
+        return positionOf(songTitle) >= 0;
+    }
+
+    /**
+     * Find a song in the queue,
+     * using the song's title.
+     *
+     * @param songTitle The title of the song
+     * @return The song, or null if it is not in the queue
+     */
+    Song find(String songTitle) {
+        int position = positionOf(songTitle);
+        return position < 0 ? null : this.library.songById(this.songIds[position]);
+    }
+
+    /**
+     * Find where a song is in the queue,
+     * using the song's title.
+     *
+     * The library's song with that title is looked
+     * up in the map of queued ids. If that song is not
+     * queued, the queue may still hold a song with the
+     * title that has since left the library (perhaps
+     * replaced by a new song with the same title), so the
+     * queued songs the library no longer lists are checked.
+     *
+     * @param songTitle The title of the song
+     * @return The position of the song, or -1 if it is not in the queue
+     */
+    private int positionOf(String songTitle) {
+        Song librarySong = this.library.findSong(songTitle);
+        if(librarySong != null) {
+            // A song removed from the library meanwhile may have given its id to a queued song
+            int position = indexOf(librarySong.getId());
+            if(position != NOT_QUEUED && this.library.songById(this.songIds[position]) == librarySong) {
+                return position;
+            }
+        }
+        Map<String, Integer> unlisted = unlistedSongs();
+        if(unlisted.isEmpty()) {
+            return -1;
+        }
+        Integer unlistedId = unlisted.get(Library.titleKey(songTitle));
+        return unlistedId == null ? -1 : indexOf(unlistedId);
+    }
+
+    /**
+     * Check whether a song that the library no longer
+     * lists is queued with the same title as a song.
+     *
+     * @param song The song
+     * @return True if such a song is queued, false otherwise
+     */
+    private boolean titleIsQueuedUnlisted(Song song) {
+        Map<String, Integer> unlisted = unlistedSongs();
+        return !unlisted.isEmpty() && unlisted.containsKey(Library.titleKey(song.getTitle()));
+    }
+
+    /**
+     * Check whether a song is already queued.
+     *
+     * @param song The song
+     * @return True if the song is queued, false otherwise
+     */
+    private boolean isQueued(Song song) {
+        int songId = song.getId();
+        return songId != Song.NO_ID && indexOf(songId) != NOT_QUEUED && this.library.songById(songId) == song;
+    }
+
+    /**
+     * Get the queued songs that
+     * the library no longer lists.
+     *
+     * The songs the library has said it no longer
+     * lists since the last call are added first.
+     *
+     * @return The ids of the songs, by case-folded title
+     */
+    private Map<String, Integer> unlistedSongs() {
+        if(this.unlistedPending) {
+            int[] inbox;
+            int count;
+            synchronized(this) {
+                inbox = this.unlistedInbox;
+                count = this.unlistedInboxCount;
+                this.unlistedInbox = null;
+                this.unlistedInboxCount = 0;
+                this.unlistedPending = false;
+            }
+            for(int i = 0; i < count; i++) {
+                // The song may have been removed from the queue since, and its id given to another song
+                if(indexOf(inbox[i]) != NOT_QUEUED) {
+                    noteIfUnlisted(this.library.songById(inbox[i]));
+                }
+            }
+        }
+        return this.unlistedSongs == null ? Collections.emptyMap() : this.unlistedSongs;
+    }
+
+    /**
+     * Note a queued song if the
+     * library does not list it.
+     *
+     * @param song The song
+     */
+    private void noteIfUnlisted(Song song) {
+        if(!this.library.isListed(song)) {
+            if(this.unlistedSongs == null) {
+                this.unlistedSongs = new HashMap<>();
+            }
+            this.unlistedSongs.putIfAbsent(Library.titleKey(song.getTitle()), song.getId());
+        }
+    }
+
+    /**
+     * Note that the library no longer lists a queued song.
+     *
+     * This is called by the library, from any thread, while
+     * the queue may be in use, so the id is only put aside
+     * until the queue next looks for such songs.
+     *
+     * @param songId The id of the song
+     */
+    synchronized void noteUnlisted(int songId) {
+        if(this.unlistedInbox == null) {
+            this.unlistedInbox = new int[4];
+        }
+        else if(this.unlistedInboxCount == this.unlistedInbox.length) {
+            this.unlistedInbox = Arrays.copyOf(this.unlistedInbox, this.unlistedInboxCount * 2);
+        }
+        this.unlistedInbox[this.unlistedInboxCount++] = songId;
+        this.unlistedPending = true;
+    }
+
+    /**
+     * Find where a song id is in the queue.
+     *
+     * @param songId The id of the song
+     * @return The position of the song, or -1 if it is not in the queue
+     */
+    private int indexOf(int songId) {
+        return this.positions.get(songId, NOT_QUEUED);
+    }
+
+    /**
+     * Remove a song from the queue,
+     * using the song's title.
+     *
+     * If the song being removed is the one
+     * currently playing then the cursor
+     * moves on to the next song (or back to the
+     * previous one at the end of the queue).
+     *
+     * @param songTitle The title of the song
+     * @return True if the song was removed, false if it was not in the queue
+     */
+    boolean remove(String songTitle) {
+        int position = positionOf(songTitle);
+        if(position < 0) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    /**
+     * Remove a batch of songs from the queue,
+     * using the songs' titles.
+     *
+     * Each song is found as it would be on its own,
+     * using the map of queued ids and then the queued
+     * songs that have since left the library, and is
+     * then removed.
+     *
+     * @param songTitles The titles of the songs
+     * @return For each title, the song removed, or null if it was not in the queue
+     */
+    Song[] removeAll(String[] songTitles) {
+        Song[] removed = new Song[songTitles.length];
+        for(int i = 0; i < songTitles.length; i++) {
+            int position = positionOf(songTitles[i]);
+            if(position >= 0) {
+                removed[i] = this.library.songById(this.songIds[position]);
+                removeAt(position);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove the song that is
+     * currently playing from the queue.
+     *
+     * The songs of a queued album cannot be
+     * removed one at a time, so nothing is
+     * removed while one of those is playing.
+     *
+     * @return The removed song, or null if nothing is playing or an album is playing
+     */
+    Song removeCurrent() {
+        int entry = currentEntry();
+        if(entry < 0) {
+            return null;
+        }
+        Song song = this.library.songById(entry);
+        removeAt(indexOf(entry));
+        return song;
+    }
+
+    /**
+     * Remove the song at a position in the queue,
+     * moving the cursor off it if required.
+     *
+     * The place is left empty, unless half
+     * of the places are now empty, in which
+     * case the queue is closed up.
+     *
+     * @param position The position of the song
+     */
+    private void removeAt(int position) {
+        int entry = this.songIds[position];
+        if(this.shuffle != null) {
+            int playing = this.shuffle.current();
+            this.shuffle.remove(entry);
+            if(this.shuffle.current() != playing) {
+                this.track = 0;
+            }
+        }
+        if(entry >= 0) {
+            this.positions.remove(entry);
+            this.size--;
+            if(this.unlistedSongs != null && !this.unlistedSongs.isEmpty()) {
+                this.unlistedSongs.remove(Library.titleKey(this.library.songById(entry).getTitle()), entry);
+            }
+            this.library.release(entry, this);
+        }
+        else {
+            this.library.releaseAlbum(this.albums.remove(FIRST_ALBUM - entry));
+            this.albumPositions.remove(FIRST_ALBUM - entry);
+        }
+        this.songIds[position] = REMOVED;
+        if(position == this.current) {
+            // The cursor moves on to the next song, or if this was
+            // the last song, back to the new last song
+            int next = nextPosition(position);
+            this.current = next != NOTHING_PLAYING ? next : previousPosition(position);
+            this.track = next != NOTHING_PLAYING ? 0 : lastTrack(this.current);
+        }
+        int queued = this.size + this.albums.size();
+        if(queued == 0) {
+            this.end = 0;
+            this.current = NOTHING_PLAYING;
+        }
+        else if((this.end - queued) * 2 >= this.end) {
+            compact();
+        }
+    }
+
+    /**
+     * Remove every song and album from the
+     * queue, handing each back to the library.
+     */
+    void clear() {
+        for(int position = 0; position < this.end; position++) {
+            int entry = this.songIds[position];
+            if(entry >= 0) {
+                this.library.release(entry, this);
+            }
+            else if(entry != REMOVED) {
+                this.library.releaseAlbum(this.albums.get(FIRST_ALBUM - entry));
+            }
+        }
+        this.songIds = new int[8];
+        this.end = 0;
+        this.size = 0;
+        this.current = NOTHING_PLAYING;
+        this.track = 0;
+        this.shuffle = null;
+        this.positions = new IntIntHashMap();
+        this.albums.clear();
+        this.albumPositions = new IntIntHashMap();
+        this.unlistedSongs = null;
+        synchronized(this) {
+            this.unlistedInboxCount = 0;
+            this.unlistedPending = false;
+        }
+    }
+
+    /**
+     * Close up the places left
+     * empty by removed songs.
+     */
+    private void compact() {
+        int kept = 0;
+        int newCurrent = NOTHING_PLAYING;
+        for(int position = 0; position < this.end; position++) {
+            int entry = this.songIds[position];
+            if(entry == REMOVED) {
+                continue;
+            }
+            if(position == this.current) {
+                newCurrent = kept;
+            }
+            if(entry >= 0) {
+                this.positions.put(entry, kept);
+            }
+            else {
+                this.albumPositions.put(FIRST_ALBUM - entry, kept);
+            }
+            this.songIds[kept++] = entry;
+        }
+        this.end = kept;
+        this.current = newCurrent;
+    }
+
+    /**
+     * Find the next position that holds a
+     * song, or an album with at least one song.
+     *
+     * @param position The position to start after
+     * @return The next position, or NOTHING_PLAYING if there are none
+     */
+    private int nextPosition(int position) {
+        for(int i = position + 1; i < this.end; i++) {
+            if(trackCount(this.songIds[i]) > 0) {
+                return i;
+            }
+        }
+        return NOTHING_PLAYING;
+    }
+
+    /**
+     * Find the previous position that holds a
+     * song, or an album with at least one song.
+     *
+     * @param position The position to start before
+     * @return The previous position, or NOTHING_PLAYING if there are none
+     */
+    private int previousPosition(int position) {
+        for(int i = position - 1; i >= 0; i--) {
+            if(trackCount(this.songIds[i]) > 0) {
+                return i;
+            }
+        }
+        return NOTHING_PLAYING;
+    }
+
+    /**
+     * Get the number of songs
+     * a place in the queue holds.
+     *
+     * @param entry The id held in the place
+     * @return 1 for a song, the number of songs for an album, or 0 for a removed place
+     */
+    private int trackCount(int entry) {
+        if(entry >= 0) {
+            return 1;
+        }
+        return entry == REMOVED ? 0 : this.albums.get(FIRST_ALBUM - entry).getNumberOfSongs();
+    }
+
+    /**
+     * Get the last song of the
+     * album at a position, if any.
+     *
+     * @param position The position, or NOTHING_PLAYING
+     * @return The number of the last song, or 0 if the position does not hold an album
+     */
+    private int lastTrack(int position) {
+        return position == NOTHING_PLAYING ? 0 : Math.max(0, trackCount(this.songIds[position]) - 1);
+    }
+
+    /**
+     * Get the id held in the place
+     * that is currently playing.
+     *
+     * @return The id, or ShuffleOrder.NONE if nothing is playing
+     */
+    private int currentEntry() {
+        if(this.shuffle != null) {
+            return this.shuffle.current();
+        }
+        return this.current == NOTHING_PLAYING ? ShuffleOrder.NONE : this.songIds[this.current];
+    }
+
+    /**
+     * Move the cursor to the first
+     * song in the queue.
+     *
+     * @return The first song, or null if the queue is empty
+     */
+    Song start() {
+        this.shuffle = null;
+        this.current = nextPosition(-1);
+        this.track = 0;
+        return current();
+    }
+
+    /**
+     * Start playing the queue in
+     * a new random order.
+     *
+     * Nothing is done to the songs up front,
+     * so this is just as quick for a long queue.
+     *
+     * @param random The source of the random order
+     * @return The first song, or null if the queue is empty
+     */
+    Song startShuffle(Random random) {
+        if(this.end != this.size + this.albums.size()) {
+            // The shuffle starts from the queue's own ids, so they must have no gaps
+            compact();
+        }
+        this.current = NOTHING_PLAYING;
+        this.shuffle = new ShuffleOrder(this.songIds, this.end, random);
+        return nextShuffled();
+    }
+
+    /**
+     * Check whether the queue is
+     * being played in a random order.
+     *
+     * @return The result
+     */
+    boolean isShuffled() {
+        return this.shuffle != null;
+    }
+
+    /**
+     * Get the song that is
+     * currently playing.
+     *
+     * @return The current song, or null if nothing is playing
+     */
+    Song current() {
+        int entry = currentEntry();
+        if(entry >= 0) {
+            return this.library.songById(entry);
+        }
+        if(entry == ShuffleOrder.NONE) {
+            return null;
+        }
+        // The album is read as it is now, so it may have fewer songs than when the song started
+        List<Song> tracks = this.albums.get(FIRST_ALBUM - entry).getSongs();
+        return tracks.isEmpty() ? null : tracks.get(Math.min(this.track, tracks.size() - 1));
+    }
+
+    /**
+     * Move on to the next song or album
+     * chosen by the shuffle, passing over
+     * any albums that have no songs.
+     *
+     * @return The first song chosen, or null if every song has been played
+     */
+    private Song nextShuffled() {
+        int entry;
+        do {
+            entry = this.shuffle.next();
+        } while(entry != ShuffleOrder.NONE && trackCount(entry) == 0);
+        this.track = 0;
+        return entry == ShuffleOrder.NONE ? null : current();
+    }
+
+    /**
+     * Move the cursor forwards
+     * to the next song.
+     *
+     * The cursor does not move if
+     * the end of the queue has been reached
+     * (or every song has been played, when shuffled).
+     *
+     * @return The next song, or null at the end of the queue
+     */
+    Song next() {
+        int entry = currentEntry();
+        if(entry != ShuffleOrder.NONE && this.track + 1 < trackCount(entry)) {
+            // The next song of the album playing
+            this.track++;
+            return current();
+        }
+        if(this.shuffle != null) {
+            int playing = this.track;
+            Song song = nextShuffled();
+            if(song == null) {
+                this.track = playing;
+            }
+            return song;
+        }
+        int next = this.current == NOTHING_PLAYING ? NOTHING_PLAYING : nextPosition(this.current);
+        if(next == NOTHING_PLAYING) {
+            return null;
+        }
+        this.current = next;
+        this.track = 0;
+        return current();
+    }
+
+    /**
+     * Move the cursor backwards
+     * to the previous song.
+     *
+     * The cursor does not move if
+     * the start of the queue has been reached.
+     *
+     * @return The previous song, or null at the start of the queue
+     */
+    Song previous() {
+        int entry = currentEntry();
+        if(entry != ShuffleOrder.NONE && this.track > 0 && trackCount(entry) > 0) {
+            // The previous song of the album playing
+            this.track = Math.min(this.track, trackCount(entry)) - 1;
+            return current();
+        }
+        if(this.shuffle != null) {
+            int previous;
+            do {
+                previous = this.shuffle.previous();
+            } while(previous != ShuffleOrder.NONE && trackCount(previous) == 0);
+            if(previous == ShuffleOrder.NONE) {
+                return null;
+            }
+            this.track = Math.max(0, trackCount(previous) - 1);
+            return current();
+        }
+        int previous = this.current <= 0 ? NOTHING_PLAYING : previousPosition(this.current);
+        if(previous == NOTHING_PLAYING) {
+            return null;
+        }
+        this.current = previous;
+        this.track = lastTrack(previous);
+        return current();
+    }
+
+    /**
+     * Iterate over the songs queued on
+     * their own, from first to last.
+     *
+     * The songs of queued albums are left
+     * out, as the albums are listed apart.
+     *
+     * @return An iterator over the queue
+     */
+    @Override
+    public Iterator<Song> iterator() {
+        return new Iterator<Song>() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                while(position < end && songIds[position] < 0) {
+                    position++;
+                }
+                return position < end;
+            }
+
+            @Override
+            public Song next() {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return library.songById(songIds[position++]);
+            }
+        };
+    }
+}
@@ -1,10 +1,13 @@
 package Section6.LinkedListChallenge;
 
-import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Iterator;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Java Programming Masterclass for Software Developers
@@ -24,9 +27,44 @@ import java.util.Scanner;
  */
 public class Playlist implements IPlaylist {
     private Library library;
-    private List<Song> storedSongs;
-    private List<Album> storedAlbums;
-    private static final Scanner SCANNER = new Scanner(System.in);
+    private PlaybackQueue storedSongs;
+
+    /**
+     * The stored albums by title, in the order they
+     * were added, so that an album can be removed
+     * without searching a list for it.
+     */
+    private Map<String, Album> albumsByTitle;
+
+    /**
+     * The time each stored album was added to the
+     * playlist, by album id, which orders the albums
+     * in the time index.
+     */
+    private Map<Integer, Long> albumAddedTimes;
+
+    /**
+     * The search and time indexes of the playlist's songs
+     * and albums. Each costs far more per song than the queue
+     * itself, so it is only built when the playlist is first
+     * searched or listed by time (and is null until then),
+     * and is kept up to date from then on.
+     */
+    private SearchIndex<Song> songIndex;
+    private SearchIndex<Album> albumIndex;
+    private TimeIndex<Song> songsByTime;
+    private TimeIndex<Album> albumsByTime;
+    private boolean journaled;
+    private Random random;
+
+    /**
+     * Held by whichever thread is using the playlist,
+     * when it is shared between threads (such as by the
+     * HTTP server). It is a lock rather than the playlist's
+     * monitor so that a virtual thread waiting on the library
+     * while holding it does not pin its carrier thread.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * Constructor
@@ -37,13 +75,39 @@ public class Playlist implements IPlaylist {
      *
      * @param library The library containing all songs and albums to be added to the playlist
      * @param storedAlbums The list of stored albums
-     * @param storedSongs The list of stored songs
+     * @param storedSongs The queue of stored songs
      */
-    Playlist(Library library, List<Album> storedAlbums, List<Song> storedSongs) {
+    Playlist(Library library, List<Album> storedAlbums, PlaybackQueue storedSongs) {
+        this(library, storedAlbums, storedSongs, true);
+    }
+
+    /**
+     * Constructor
+     *
+     * This constructor will create a playlist whose changes
+     * are only recorded in the library's journal if asked to,
+     * so that many playlists can share one library without their
+     * changes being replayed into each other.
+     *
+     * @param library The library containing all songs and albums to be added to the playlist
+     * @param storedAlbums The list of stored albums
+     * @param storedSongs The queue of stored songs
+     * @param journaled True if changes to the playlist are recorded in the library's journal
+     */
+    Playlist(Library library, List<Album> storedAlbums, PlaybackQueue storedSongs, boolean journaled) {
         this.library = library;
-        this.storedAlbums = storedAlbums;
+        this.journaled = journaled;
+        this.random = new Random();
         this.storedSongs = storedSongs;
+        this.albumsByTitle = new LinkedHashMap<>();
+        this.albumAddedTimes = new HashMap<>();
+        for(Album storedAlbum : storedAlbums) {
+            storedSongs.addAlbum(storedAlbum);
+            this.albumsByTitle.put(Library.titleKey(storedAlbum.getTitle()), storedAlbum);
+            this.albumAddedTimes.put(storedAlbum.getId(), library.getCurrentTime());
+        }
     }
+
     /**
      * Get the library object data
      *
@@ -54,124 +118,288 @@ public class Playlist implements IPlaylist {
     }
 
     /**
-     * Get the list of stored albums
+     * Get the lock held while using the playlist
+     * from a thread that shares it with others.
      *
-     * @return The current list
+     * @return The lock
      */
-    private List<Album> getStoredAlbums() {
-        return storedAlbums;
+    ReentrantLock getLock() {
+        return lock;
     }
 
     /**
-     * Get the list of individually stored songs
+     * Get the queue of individually stored songs
      *
-     * @return The current list
+     * @return The current queue
      */
-    private List<Song> getStoredSongs() {
+    PlaybackQueue getStoredSongs() {
         return storedSongs;
     }
 
     /**
-     * Enter the song details
-     * for use in all playlist methods.
-     *
-     * This method prevents repeated
-     * Scanner messaging code in other methods that would
-     * otherwise be present.
+     * Get the search index of the playlist's
+     * songs, building it on first use.
      *
-     * @return The song title that will be used in other playlist methods
+     * @return The index
      */
-    private String enterSongTitle() {
-        System.out.print("Please enter the song's title: ");
-        String songTitle = SCANNER.nextLine().trim();
-        if(!songTitle.isEmpty()) {
-            if(this.getLibrary().songExistsInLibrary(songTitle)) {
-                return songTitle;
+    private SearchIndex<Song> getSongIndex() {
+        if(this.songIndex == null) {
+            this.songIndex = new SearchIndex<>();
+            for(Song storedSong : this.getStoredSongs()) {
+                this.songIndex.add(storedSong, storedSong.getTitle(), storedSong.getArtist());
             }
-            else {
-                return "Error - song title not found.";
+        }
+        return songIndex;
+    }
+
+    /**
+     * Get the time index of the playlist's
+     * songs, building it on first use.
+     *
+     * @return The index
+     */
+    private TimeIndex<Song> getSongsByTime() {
+        if(this.songsByTime == null) {
+            this.songsByTime = new TimeIndex<>(Song::getRow);
+            for(Song storedSong : this.getStoredSongs()) {
+                this.songsByTime.add(storedSong, storedSong.getAddedTime());
             }
         }
-        return "Error - song title not entered.";
+        return songsByTime;
     }
 
     /**
-     * Enter the album details
+     * Get the search index of the playlist's
+     * albums, building it on first use.
      *
-     * This method will be used for all playlist
-     * methods associated with albums
+     * @return The index
+     */
+    private SearchIndex<Album> getAlbumIndex() {
+        if(this.albumIndex == null) {
+            this.albumIndex = new SearchIndex<>();
+            for(Album storedAlbum : this.albumsByTitle.values()) {
+                this.albumIndex.add(storedAlbum, storedAlbum.getTitle(), storedAlbum.getArtist());
+            }
+        }
+        return albumIndex;
+    }
+
+    /**
+     * Get the time index of the playlist's
+     * albums, building it on first use.
      *
-     * @return The album title that will be used in other playlist methods
+     * @return The index
      */
-    private String enterAlbumTitle() {
-        System.out.print("Please enter the album's title: ");
-        String albumTitle = SCANNER.nextLine().trim();
-        if(!albumTitle.isEmpty()) {
-            if(this.getLibrary().albumExistsInLibrary(albumTitle)) {
-                return albumTitle;
+    private TimeIndex<Album> getAlbumsByTime() {
+        if(this.albumsByTime == null) {
+            this.albumsByTime = new TimeIndex<>(Album::getId);
+            for(Album storedAlbum : this.albumsByTitle.values()) {
+                this.albumsByTime.add(storedAlbum, this.albumAddedTimes.get(storedAlbum.getId()));
             }
         }
-        else {
-            return "Error - album title not entered.";
+        return albumsByTime;
+    }
+
+    /**
+     * Add a song to the indexes
+     * that have been built so far.
+     *
+     * @param song The song
+     */
+    private void indexSong(Song song) {
+        if(this.songIndex != null) {
+            this.songIndex.add(song, song.getTitle(), song.getArtist());
+        }
+        if(this.songsByTime != null) {
+            this.songsByTime.add(song, song.getAddedTime());
+        }
+    }
+
+    /**
+     * Remove a song from the indexes
+     * that have been built so far.
+     *
+     * @param song The song
+     */
+    private void unindexSong(Song song) {
+        if(this.songIndex != null) {
+            this.songIndex.remove(song);
+        }
+        if(this.songsByTime != null) {
+            this.songsByTime.remove(song, song.getAddedTime());
+        }
+    }
+
+    /**
+     * Add a song to the playlist
+     * in (descending) chronological order.
+     *
+     * The song is queued to be played after
+     * the songs already in the playlist, and is
+     * placed among them by the time it was added
+     * to the library in the time index, so the
+     * newest song is always at the top of the list.
+     * A song with no recorded time goes at the end.
+     *
+     * @param song The song to be added to the playlist
+     */
+    @Override
+    public void addInChronologicalOrder(Song song) {
+        if(this.getStoredSongs().add(song)) {
+            indexSong(song);
+        }
+    }
+
+    /**
+     * Add an album to the playlist
+     * in (descending) chronological order.
+     *
+     * The album is queued to be played after
+     * the songs already in the playlist, and is
+     * placed among the albums already in the playlist
+     * by the time it was added to the playlist in the
+     * time index, so the newest album is always at the
+     * top of the list.
+     *
+     * @param album The album to be added to the playlist
+     */
+    @Override
+    public void addInChronologicalOrder(Album album) {
+        String key = Library.titleKey(album.getTitle());
+        if(this.albumsByTitle.containsKey(key)) {
+            return;
+        }
+        long addedTime = this.getLibrary().getCurrentTime();
+        this.getStoredSongs().addAlbum(album);
+        this.albumsByTitle.put(key, album);
+        this.albumAddedTimes.put(album.getId(), addedTime);
+        if(this.albumIndex != null) {
+            this.albumIndex.add(album, album.getTitle(), album.getArtist());
+        }
+        if(this.albumsByTime != null) {
+            this.albumsByTime.add(album, addedTime);
         }
-        return "Error - album title not entered.";
     }
 
     /**
      * Add an individual song to the playlist
      *
-     * This methods gives the user the option
-     * to add specific songs from the album
-     * rather than the entire album.
+     * The song must already be stored
+     * in the library. The playlist holds the library's
+     * own song rather than a copy of it.
+     *
+     * @param songTitle The title of the song
+     * @return True if the song was added, false if it is not in the library
+     * or is already in the playlist
      */
     @Override
-    public void addSongToPlaylist() {
-        System.out.println("Please add the following details: " +
-                "\n\t a. Song duration" +
-                "\n\t b. Song title" +
-                "\n\t c. Song artist");
-        int songDuration = SCANNER.nextInt();
-        SCANNER.nextLine(); // Eliminates the "\n" returned before the next nextLine() method call
-        String songTitle = SCANNER.nextLine().trim();
-        String songArtist = SCANNER.nextLine().trim();
-
-        if(this.getLibrary().songExistsInLibrary(songTitle)) {
-            if(!songIsInPlaylist(songTitle)) {
-                Song song = new Song(songTitle, songDuration, songArtist, this.getLibrary().getCurrentTime());
-                this.getStoredSongs().add(song);
-                if(this.getStoredSongs().contains(song)) {
-                    System.out.println("Song has been added to the playlist successfully.");
-                }
-                else {
-                    System.out.println("Error - song could not be added.");
-                }
-            }
-            else {
-                System.out.println("Error - song is already in the playlist.");
-            }
+    public boolean addSongToPlaylist(String songTitle) {
+        Song storedSong = this.getLibrary().findSong(songTitle);
+        // The queue turns the song away if it (or its title) is already in the playlist
+        if(storedSong == null || !this.getStoredSongs().add(storedSong)) {
+            return false;
         }
-        else {
-            System.out.println("Error - song does not exist.");
+        indexSong(storedSong);
+        if(this.journaled) {
+            long recorded = this.getLibrary().record(MutationJournal.Operation.ADD_SONG_TO_PLAYLIST,
+                    this.getLibrary().getCurrentTime(), songTitle, null, 0);
+            this.getLibrary().awaitRecorded(recorded);
         }
+        return true;
     }
 
     /**
      * Remove an individual song from the playlist
+     *
+     * @param songTitle The title of the song
+     * @return True if the song was removed, false if it was not in the playlist
+     */
+    @Override
+    public boolean removeSongFromPlaylist(String songTitle) {
+        Song storedSong = this.getStoredSongs().find(songTitle);
+        if(storedSong == null || !this.getStoredSongs().remove(songTitle)) {
+            return false;
+        }
+        unindexSong(storedSong);
+        if(this.journaled) {
+            long recorded = this.getLibrary().record(MutationJournal.Operation.REMOVE_SONG_FROM_PLAYLIST,
+                    songTitle, null);
+            this.getLibrary().awaitRecorded(recorded);
+        }
+        return true;
+    }
+
+    /**
+     * Add a batch of individual
+     * songs to the playlist.
+     *
+     * Each song is found in the library and checked
+     * against the playlist's set of queued songs in
+     * one pass, and the songs that are new are then
+     * queued together.
+     *
+     * @param songTitles The titles of the songs
+     * @return For each song, true if it was added, false if it is not in the library
+     * or is already in the playlist
      */
     @Override
-    public void removeSongFromPlaylist() {
-        System.out.print("Please type in the song that you want to remove, using its title: ");
-        String songTitle = SCANNER.nextLine().trim();
-
-        for(int i = 0; i < this.getStoredSongs().size(); i++) {
-            if(songTitle.equalsIgnoreCase(this.getStoredSongs().get(i).getTitle())) {
-                this.getStoredSongs().remove(this.getStoredSongs().get(i));
-                System.out.println("Song has been removed from the playlist successfully.");
+    public boolean[] addSongsToPlaylist(String[] songTitles) {
+        List<Song> librarySongs = new ArrayList<>(songTitles.length);
+        int[] titleOf = new int[songTitles.length];
+        for(int i = 0; i < songTitles.length; i++) {
+            Song storedSong = this.getLibrary().findSong(songTitles[i]);
+            if(storedSong != null) {
+                titleOf[librarySongs.size()] = i;
+                librarySongs.add(storedSong);
             }
-            else {
-                System.out.println("Error - song not found.");
+        }
+        boolean[] queued = this.getStoredSongs().addAll(librarySongs);
+        boolean[] added = new boolean[songTitles.length];
+        long recorded = 0;
+        long addedTime = this.journaled ? this.getLibrary().getCurrentTime() : 0;
+        for(int i = 0; i < queued.length; i++) {
+            if(queued[i]) {
+                indexSong(librarySongs.get(i));
+                added[titleOf[i]] = true;
+                if(this.journaled) {
+                    recorded = this.getLibrary().record(MutationJournal.Operation.ADD_SONG_TO_PLAYLIST,
+                            addedTime, songTitles[titleOf[i]], null, 0);
+                }
+            }
+        }
+        this.getLibrary().awaitRecorded(recorded);
+        return added;
+    }
+
+    /**
+     * Remove a batch of individual
+     * songs from the playlist.
+     *
+     * The songs are found and then removed
+     * from the queue together, which is only
+     * closed up once.
+     *
+     * @param songTitles The titles of the songs
+     * @return For each song, true if it was removed, false if it was not in the playlist
+     */
+    @Override
+    public boolean[] removeSongsFromPlaylist(String[] songTitles) {
+        Song[] removedSongs = this.getStoredSongs().removeAll(songTitles);
+        boolean[] removed = new boolean[songTitles.length];
+        long recorded = 0;
+        for(int i = 0; i < removedSongs.length; i++) {
+            Song storedSong = removedSongs[i];
+            if(storedSong != null) {
+                unindexSong(storedSong);
+                removed[i] = true;
+                if(this.journaled) {
+                    recorded = this.getLibrary().record(MutationJournal.Operation.REMOVE_SONG_FROM_PLAYLIST,
+                            songTitles[i], null);
+                }
             }
         }
+        this.getLibrary().awaitRecorded(recorded);
+        return removed;
     }
 
     /**
@@ -186,18 +414,8 @@ public class Playlist implements IPlaylist {
      * @param songTitle The title of the song
      * @return The result
      */
-    private boolean songIsInPlaylist(String songTitle) {
-        ListIterator<Song> songListIterator = this.getStoredSongs().listIterator();
-        boolean songInPlaylist = false;
-        if(!this.getStoredSongs().isEmpty()) {
-            while(songListIterator.hasNext()) {
-                if(songListIterator.next().getTitle().equalsIgnoreCase(songTitle)) {
-                    songInPlaylist = true;
-                    break;
-                }
-            }
-        }
-        return songInPlaylist;
+    boolean songIsInPlaylist(String songTitle) {
+        return this.getStoredSongs().contains(songTitle);
     }
 
     /**
@@ -211,42 +429,73 @@ public class Playlist implements IPlaylist {
      *
      * This method will not allow the user
      * to add individual songs from each stored album.
+     *
+     * The playlist refers to the library's own
+     * album rather than a copy of it, and plays
+     * its songs as they are when they are reached.
+     *
+     * @param albumTitle The title of the album
+     * @return True if the album was added, false if it is not in the library
+     * or is already in the playlist
      */
     @Override
-    public void addAlbumToPlaylist() {
-        System.out.println("Please add the following details: " +
-                "\n\t a. Album title" +
-                "\n\t b. Album artist");
-        String albumTitle = SCANNER.nextLine().trim();
-        String albumArtist = SCANNER.nextLine().trim();
-
-        if(this.getLibrary().albumExistsInLibrary(albumTitle)) {
-            if(!albumIsInPlaylist(albumTitle)) {
-                Album album = new Album(albumTitle, albumArtist, this.getLibrary().getCurrentTime());
-                this.getStoredAlbums().add(album);
-                if(this.getStoredAlbums().contains(album)) {
-                    System.out.println("Album has been added to the playlist successfully.");
-                }
-            }
-            else {
-                System.out.println("Error - album is already in the playlist!");
-            }
+    public boolean addAlbumToPlaylist(String albumTitle) {
+        Album storedAlbum = this.getLibrary().findAlbum(albumTitle);
+        if(storedAlbum == null || albumIsInPlaylist(albumTitle)) {
+            return false;
         }
-        else {
-            System.out.println("Error - album does not exist!");
+        addInChronologicalOrder(storedAlbum);
+        if(this.journaled) {
+            long recorded = this.getLibrary().record(MutationJournal.Operation.ADD_ALBUM_TO_PLAYLIST,
+                    this.getLibrary().getCurrentTime(), albumTitle, null, 0);
+            this.getLibrary().awaitRecorded(recorded);
         }
+        return true;
     }
 
     /**
      * Remove a stored album from the playlist.
+     *
+     * @param albumTitle The title of the album
+     * @return True if the album was removed, false if it was not in the playlist
      */
     @Override
-    public void removeAlbumFromPlaylist() {
-        System.out.print("Please type in the album that you want to remove, using its title: ");
-        String albumTitle = SCANNER.nextLine().trim();
-        if(albumIsInPlaylist(albumTitle)) {
-            this.getStoredAlbums().remove(this.getLibrary().getAlbum());
+    public boolean removeAlbumFromPlaylist(String albumTitle) {
+        Album storedAlbum = searchForAlbum(albumTitle);
+        if(storedAlbum == null) {
+            return false;
+        }
+        this.getStoredSongs().removeAlbum(storedAlbum);
+        this.albumsByTitle.remove(Library.titleKey(storedAlbum.getTitle()));
+        long addedTime = this.albumAddedTimes.remove(storedAlbum.getId());
+        if(this.albumIndex != null) {
+            this.albumIndex.remove(storedAlbum);
         }
+        if(this.albumsByTime != null) {
+            this.albumsByTime.remove(storedAlbum, addedTime);
+        }
+        if(this.journaled) {
+            long recorded = this.getLibrary().record(MutationJournal.Operation.REMOVE_ALBUM_FROM_PLAYLIST,
+                    albumTitle, null);
+            this.getLibrary().awaitRecorded(recorded);
+        }
+        return true;
+    }
+
+    /**
+     * Remove every song and album from the playlist,
+     * handing them all back to the library.
+     *
+     * This is not recorded in the library's journal.
+     */
+    void clear() {
+        this.getStoredSongs().clear();
+        this.albumsByTitle.clear();
+        this.albumAddedTimes.clear();
+        this.songIndex = null;
+        this.albumIndex = null;
+        this.songsByTime = null;
+        this.albumsByTime = null;
     }
 
     /**
@@ -259,18 +508,8 @@ public class Playlist implements IPlaylist {
      * @param albumTitle The title of the album
      * @return The result
      */
-    private boolean albumIsInPlaylist(String albumTitle) {
-        ListIterator<Album> albumListIterator = this.getStoredAlbums().listIterator();
-        boolean albumInPlaylist = false;
-        if(!this.getStoredAlbums().isEmpty()) {
-            while(albumListIterator.hasNext()) {
-                if(albumListIterator.next().getTitle().equalsIgnoreCase(albumTitle)) {
-                    albumInPlaylist = true;
-                    break;
-                }
-            }
-        }
-        return albumInPlaylist;
+    boolean albumIsInPlaylist(String albumTitle) {
+        return searchForAlbum(albumTitle) != null;
     }
 
     /**
@@ -280,33 +519,29 @@ public class Playlist implements IPlaylist {
      * The first song in the
      * playlist will therefore be played
      * first.
+     *
+     * @return The first song, or null if the playlist is empty
      */
     @Override
-    public void play() {
-        ListIterator<Song> songListIterator = this.getStoredSongs().listIterator();
-        boolean hasNotFinishedSkipping = true;
-        System.out.println("Now playing: " + "\n\t Song: " + songListIterator.next().getTitle());
-        do {
-            System.out.println("Press 1 to skip forwards");
-            System.out.println("Press 2 to skip backwards");
-            System.out.println("Press 3 to repeat");
-            System.out.println("Press 4 to exit");
-
-            byte selection = SCANNER.nextByte();
-            switch(selection) {
-                case 1:
-                    skipForwards();
-                    break;
-                case 2:
-                    skipBackwards();
-                    break;
-                case 3:
-                    repeat();
-                case 4:
-                    hasNotFinishedSkipping = false;
-                    break;
-            }
-        } while(hasNotFinishedSkipping);
+    public Song play() {
+        return this.getStoredSongs().start();
+    }
+
+    /**
+     * Play the playlist in a
+     * random order, without
+     * playing any song twice.
+     *
+     * The order is chosen a song at a time
+     * as the playlist is skipped through, so
+     * nothing is done up front however long
+     * the playlist is.
+     *
+     * @return The first song, or null if the playlist is empty
+     */
+    @Override
+    public Song shuffle() {
+        return this.getStoredSongs().startShuffle(this.random);
     }
 
     /**
@@ -317,121 +552,170 @@ public class Playlist implements IPlaylist {
      * In other words the song
      * will play at least twice
      * consecutively.
+     *
+     * @return The song being repeated, or null if nothing is playing
      */
     @Override
-    public void repeat() {
-        ListIterator<Song> songListIterator = this.getStoredSongs().listIterator();
-        if(songListIterator.hasNext()) {
-            System.out.println("Now playing: " + "\n\t Song: " + songListIterator.next().getTitle() + "(repeat).");
-        }
-        else if(songListIterator.hasPrevious()) {
-            System.out.println("Now playing: " + "\n\t Song: " + songListIterator.previous().getTitle() + "(repeat).");
-        }
+    public Song repeat() {
+        return this.getStoredSongs().current();
     }
 
     /**
      * Skip to the next song
      * in the playlist
+     *
+     * @return The next song, or null at the end of the playlist
      */
     @Override
-    public void skipForwards() {
-        ListIterator<Song> songListIterator = this.getStoredSongs().listIterator();
-        if(songListIterator.hasNext()) {
-            songListIterator.next();
-            System.out.println("Now playing: " + "\n\t Song: " + songListIterator.next().getTitle());
-        }
-        else {
-            System.out.println("Reached the end of the playlist...");
-        }
+    public Song skipForwards() {
+        return this.getStoredSongs().next();
     }
 
     /**
      * Skip to the previous song
      * in the playlist
+     *
+     * @return The previous song, or null at the start of the playlist
      */
     @Override
-    public void skipBackwards() {
-        ListIterator<Song> songListIterator = this.getStoredSongs().listIterator();
-        if(songListIterator.hasPrevious()) {
-            songListIterator.previous();
-            System.out.println("Now playing: " + "\n\t Song: " + songListIterator.previous().getTitle());
-        }
-        else {
-            System.out.println("Reached the start of the playlist...");
-        }
+    public Song skipBackwards() {
+        return this.getStoredSongs().previous();
     }
 
     /**
      * Search for an individual song
      * in the playlist.
+     *
+     * @param songTitle The title of the song
+     * @return The song, or null if it is not in the playlist
      */
     @Override
-    public void searchForSong() {
-        for(int i = 0; i < this.getStoredSongs().size(); i++) {
-            if(this.getStoredSongs().get(i).getTitle().equalsIgnoreCase(enterSongTitle())) {
-                String songTitle = this.getStoredSongs().get(i).getTitle();
-                String songArtist = this.getStoredSongs().get(i).getArtist();
-                String duration = this.getStoredSongs().get(i).formatSongDuration(
-                        this.getStoredSongs().get(i).getDuration());
-                Timestamp timestamp = this.getStoredSongs().get(i).getTimestamp();
-                System.out.println(songTitle + "\n\t Artist: " + songArtist +
-                        "\n\t Duration: "  + duration +
-                       "\n\t Date Added: " + timestamp);
-            }
-        }
+    public Song searchForSong(String songTitle) {
+        return this.getStoredSongs().find(songTitle);
     }
 
     /**
      * Search for an individual album
      * in the playlist.
+     *
+     * @param albumTitle The title of the album
+     * @return The album, or null if it is not in the playlist
      */
     @Override
-    public void searchForAlbum() {
-        if(albumIsInPlaylist(enterAlbumTitle())) {
-            System.out.println("Albums in playlist:");
-            for(int i = 0; i < this.getStoredAlbums().size(); i++) {
-                String songTitle = this.getStoredAlbums().get(i).getTitle();
-                String songArtist = this.getStoredAlbums().get(i).getArtist();
-                String duration = this.getStoredAlbums().get(i).formatAlbumDuration(
-                        this.getStoredAlbums().get(i).getDuration());
-                Timestamp timestamp = this.getStoredAlbums().get(i).getTimestamp();
-                System.out.println(songTitle + "\n\t Artist: " + songArtist +
-                        "\n\t Duration: "  + duration +
-                        "\n\t Date Added: " + timestamp);
-            }
-        }
-        else {
-            System.out.println("Error - album is not in the playlist.");
-        }
+    public Album searchForAlbum(String albumTitle) {
+        return this.albumsByTitle.get(Library.titleKey(albumTitle));
+    }
+
+    /**
+     * Search for the songs in the playlist
+     * best matching part of a title or artist.
+     *
+     * @param query The words to search for
+     * @param limit The greatest number of results
+     * @return The matching songs, best match first
+     */
+    @Override
+    public List<Song> searchSongs(String query, int limit) {
+        return getSongIndex().search(query, limit);
+    }
+
+    /**
+     * Search for the albums in the playlist
+     * best matching part of a title or artist.
+     *
+     * @param query The words to search for
+     * @param limit The greatest number of results
+     * @return The matching albums, best match first
+     */
+    @Override
+    public List<Album> searchAlbums(String query, int limit) {
+        return getAlbumIndex().search(query, limit);
     }
 
     /**
-     * Print the playlist
+     * Get the playlist
      * of songs.
+     *
+     * @return The stored songs, in playing order
      */
     @Override
-    public void showPlaylistOfSongs() {
-        Iterator<Song> songIterator = this.getStoredSongs().iterator();
-        System.out.println("All Songs currently in the playlist: ");
-        System.out.println("************************");
-        while(songIterator.hasNext()) {
-            System.out.println("Title: " + songIterator.next().getTitle());
-        }
-        System.out.println("************************");
+    public Iterable<Song> getPlaylistOfSongs() {
+        return this.getStoredSongs();
     }
 
     /**
-     * Print the playlist containing
+     * Get the playlist containing
      * all stored albums.
+     *
+     * @return A read-only copy of the stored albums, in the order they were added
      */
     @Override
-    public void showPlaylistOfAlbums() {
-        Iterator<Album> albumIterator = this.getStoredAlbums().iterator();
-        System.out.println("All albums currently in the playlist: ");
-        System.out.println("************************");
-        while(albumIterator.hasNext()) {
-            System.out.println("Title: " + albumIterator.next().getTitle());
-        }
-        System.out.println("************************");
+    public List<Album> getPlaylistOfAlbums() {
+        return Collections.unmodifiableList(new ArrayList<>(this.albumsByTitle.values()));
+    }
+
+    /**
+     * Get every song in the playlist in
+     * (descending) chronological order.
+     *
+     * @return The songs, newest first
+     */
+    List<Song> getSongsNewestFirst() {
+        return getSongsByTime().newestFirst();
+    }
+
+    /**
+     * Get the newest song
+     * in the playlist.
+     *
+     * @return The song, or null if the playlist has no songs
+     */
+    Song getNewestSong() {
+        return getSongsByTime().newest();
+    }
+
+    /**
+     * Get the songs in the playlist that were
+     * added to the library between two times.
+     *
+     * @param from The earliest time, in epoch milliseconds (inclusive)
+     * @param to The latest time, in epoch milliseconds (exclusive)
+     * @return The songs, oldest first
+     */
+    List<Song> getSongsAddedBetween(long from, long to) {
+        return getSongsByTime().between(from, to);
+    }
+
+    /**
+     * Get every album in the playlist in
+     * (descending) chronological order.
+     *
+     * @return The albums, newest first
+     */
+    List<Album> getAlbumsNewestFirst() {
+        return getAlbumsByTime().newestFirst();
+    }
+
+    /**
+     * Get the albums most recently
+     * added to the playlist.
+     *
+     * @param limit The greatest number of albums
+     * @return The albums, newest first
+     */
+    List<Album> getRecentlyAddedAlbums(int limit) {
+        return getAlbumsByTime().newest(limit);
+    }
+
+    /**
+     * Get the albums added to the
+     * playlist between two times.
+     *
+     * @param from The earliest time, in epoch milliseconds (inclusive)
+     * @param to The latest time, in epoch milliseconds (exclusive)
+     * @return The albums, oldest first
+     */
+    List<Album> getAlbumsAddedBetween(long from, long to) {
+        return getAlbumsByTime().between(from, to);
     }
-}
\ No newline at end of file
+}
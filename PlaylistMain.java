@@ -1,7 +1,15 @@
 package Section6.LinkedListChallenge;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 /**
@@ -13,19 +21,43 @@ import java.util.Scanner;
  * This main class and program will build and run
  * the playlist application.
  *
+ * All console input and output lives in this class.
+ * Each menu option reads the required details from the user,
+ * calls the library or playlist with them and prints the result.
+ *
  * @author Ben Silveston
  */
 public class PlaylistMain {
     private Playlist playlist;
-    private static final Scanner SCANNER = new Scanner(System.in);
+    private Path snapshotFile;
+    private MutationJournal journal;
+    private Scanner input;
+    private static final String DEFAULT_SNAPSHOT_FILE = "playlist.snapshot";
+    private static final int SEARCH_RESULTS = 10;
+    private static final int SUGGESTIONS = 3;
+    private static final int PAGE_SIZE = Integer.getInteger("playlist.pageSize", 0);
+    private static final String SCRIPT_FILE = System.getProperty("playlist.script");
+
+    /**
+     * The menus of the application. Each menu
+     * handles one selection and then names the
+     * menu to show next.
+     */
+    private enum Menu {
+        MAIN, SONGS, ALBUMS, LIBRARY, PLAYLIST, QUIT
+    }
 
     /**
      * Constructor
      *
      * @param playlist The new playlist object
+     * @param snapshotFile The file that the playlist is saved to on exit
+     * @param input The commands typed by the user, or read from a script
      */
-    private PlaylistMain(Playlist playlist) {
+    private PlaylistMain(Playlist playlist, Path snapshotFile, Scanner input) {
         this.playlist = playlist;
+        this.snapshotFile = snapshotFile;
+        this.input = input;
     }
 
     /**
@@ -37,6 +69,38 @@ public class PlaylistMain {
         return playlist;
     }
 
+    /**
+     * Read a menu selection from the user.
+     *
+     * The rest of the line is discarded so
+     * that the next nextLine() call reads
+     * fresh input.
+     *
+     * @return The selected option
+     */
+    private byte readSelection() {
+        byte selection = this.input.nextByte();
+        this.input.nextLine();
+        return selection;
+    }
+
+    /**
+     * Read a duration (in seconds) from the user,
+     * asking again until it is more than 0.
+     *
+     * @return The duration entered
+     */
+    private int readDuration() {
+        int duration = this.input.nextInt();
+        this.input.nextLine(); // Eliminates the "\n" returned before the next nextLine() method call
+        while(duration <= 0) {
+            System.out.println("Error - the duration must be more than 0 seconds. Please enter it again:");
+            duration = this.input.nextInt();
+            this.input.nextLine();
+        }
+        return duration;
+    }
+
     /**
      * Functionality to allow
      * the user to either exit or continue
@@ -48,51 +112,584 @@ public class PlaylistMain {
      * Therefore eliminating a potential warning
      * identified by the IntelliJ IDE.
      */
-    private static boolean exitSection() {
+    private boolean exitSection() {
         System.out.print("Do you wish to continue? (Y / N) ");
-        String answer = SCANNER.next();
+        String answer = this.input.next();
+        this.input.nextLine();
         return(answer.equalsIgnoreCase("No") || answer.equalsIgnoreCase("N"));
     }
 
     /**
-     * Song section of the application.
+     * Get the library behind the playlist
      *
-     * This section of the application will
-     * be used for creating, adding and removing
-     * individual songs.
+     * @return The current library object data
+     */
+    private Library getLibrary() {
+        return this.getPlaylist().getLibrary();
+    }
+
+    /**
+     * Create a new song from the user's
+     * details and add it to the library.
+     */
+    private void addSongToLibrary() {
+        System.out.println("Please add the following details: " +
+                "\n\t a. Song duration (in seconds)" +
+                "\n\t b. Song title" +
+                "\n\t c. Song artist");
+        int songDuration = readDuration();
+        String songTitle = this.input.nextLine().trim();
+        String songArtist = this.input.nextLine().trim();
+
+        if(this.getLibrary().addSongToLibrary(songTitle, songArtist, songDuration)) {
+            System.out.println("The song: '" + songTitle + "' by '" + songArtist +
+                    "' has been added to the library successfully.");
+        }
+        else {
+            System.out.println("Error - song already exists!");
+        }
+    }
+
+    /**
+     * Remove a song chosen by
+     * the user from the library.
+     */
+    private void removeSongFromLibrary() {
+        System.out.print("Please type in the song that you want to remove, using its title: ");
+        String songTitle = this.input.nextLine().trim();
+
+        if(this.getLibrary().removeSongFromLibrary(songTitle)) {
+            System.out.println("Song has been removed from the library successfully.");
+        }
+        else {
+            System.out.println("Error - song not found and therefore cannot be removed.");
+            suggestSongs(songTitle);
+        }
+    }
+
+    /**
+     * Suggest the songs in the library whose
+     * titles are close to a mistyped title.
      *
-     * Each newly created song will be added to the library
-     * prior to being added to the playlist.
+     * @param songTitle The title that was not found
+     */
+    private void suggestSongs(String songTitle) {
+        List<String> titles = new ArrayList<>();
+        for(Song song : this.getLibrary().findSongsLike(songTitle, SUGGESTIONS)) {
+            titles.add(song.getTitle());
+        }
+        printSuggestions(titles);
+    }
+
+    /**
+     * Suggest the albums in the library whose
+     * titles are close to a mistyped title.
+     *
+     * @param albumTitle The title that was not found
+     */
+    private void suggestAlbums(String albumTitle) {
+        List<String> titles = new ArrayList<>();
+        for(Album album : this.getLibrary().findAlbumsLike(albumTitle, SUGGESTIONS)) {
+            titles.add(album.getTitle());
+        }
+        printSuggestions(titles);
+    }
+
+    /**
+     * Print the titles suggested in
+     * place of a mistyped title, if any.
+     *
+     * @param titles The suggested titles
+     */
+    private static void printSuggestions(List<String> titles) {
+        if(!titles.isEmpty()) {
+            System.out.println("Did you mean: '" + String.join("', '", titles) + "'?");
+        }
+    }
+
+    /**
+     * Create a renderer for printing
+     * a listing to the console.
+     *
+     * Listings are shown page by page when the
+     * "playlist.pageSize" system property is set
+     * to the number of items on each page.
+     *
+     * @return The new renderer
+     */
+    private ConsoleRenderer createRenderer() {
+        return new ConsoleRenderer(System.out, ConsoleRenderer.DEFAULT_CHUNK_SIZE,
+                PAGE_SIZE, this::showNextPage);
+    }
+
+    /**
+     * Ask the user whether to show
+     * the next page of a listing.
+     *
+     * @return True to show the next page, false to stop the listing
+     */
+    private boolean showNextPage() {
+        System.out.print("-- Press Enter for the next page, or Q to stop -- ");
+        String answer = this.input.nextLine().trim();
+        return !answer.equalsIgnoreCase("Q");
+    }
+
+    /**
+     * Append the details of a song
+     * (title, artist, duration and date added)
+     * to a line of output.
+     *
+     * @param line The line being built
+     * @param song The song
+     * @return The same line
+     */
+    private static StringBuilder appendSongDetails(StringBuilder line, Song song) {
+        line.append(song.getTitle()).append("\n\t Artist: ").append(song.getArtist())
+                .append("\n\t Duration: ");
+        DurationFormatter.appendSongDuration(line, song.getDuration()).append("\n\t Date Added: ");
+        return TimeFormatter.appendTime(line, song.getAddedTime());
+    }
+
+    /**
+     * Print all stored songs in the library
+     */
+    private void viewSongsInLibrary() {
+        ConsoleRenderer renderer = createRenderer();
+        renderer.appendLine("Songs in library:");
+        for(Song song : this.getLibrary().getSongsInLibrary()) {
+            appendSongDetails(renderer.startItem(), song).append('\n');
+            if(!renderer.endItem()) {
+                break;
+            }
+        }
+        renderer.flush();
+    }
+
+    /**
+     * Import songs into the library from
+     * a catalogue file chosen by the user.
+     */
+    private void importCatalogue() {
+        System.out.print("Please type in the path of the catalogue file (CSV or TSV): ");
+        String fileName = this.input.nextLine().trim();
+
+        try {
+            Path file = Paths.get(fileName);
+            CatalogueImporter importer = CatalogueImporter.forFile(this.getLibrary(), file);
+            System.out.println(importer.importFrom(file));
+        }
+        catch(IOException | InvalidPathException e) {
+            System.out.println("Error - the catalogue could not be read: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create a new album from the user's
+     * details and add it to the library.
+     */
+    private void addAlbumToLibrary() {
+        System.out.println("Please add the following details: " +
+                "\n\t a. Album title" +
+                "\n\t b. Album artist");
+        String albumTitle = this.input.nextLine().trim();
+        String albumArtist = this.input.nextLine().trim();
+
+        if(this.getLibrary().addAlbumToLibrary(albumTitle, albumArtist)) {
+            System.out.println("The album: '" + albumTitle + "' by '"
+                    + albumArtist + "' has been added successfully.");
+        }
+        else {
+            System.out.println("Error - album already exists.");
+        }
+    }
+
+    /**
+     * Remove an album chosen by
+     * the user from the library.
      */
-    private void songSection() {
-        boolean sectionRunning = true;
-        while(sectionRunning) {
-            System.out.println("Please select from the following options: " +
-                    "\n\t 1 - Create a new song and add it to the library" +
-                    "\n\t 2 - Delete an existing song" +
-                    "\n\t 3 - View all stored songs in the library" +
-                    "\n\t 4 - Back to main menu");
+    private void removeAlbumFromLibrary() {
+        System.out.print("Please type in the album that you want to remove, using its title: ");
+        String albumTitle = this.input.nextLine().trim();
 
-            byte selection = SCANNER.nextByte();
+        if(this.getLibrary().removeAlbumFromLibrary(albumTitle)) {
+            System.out.println("Album has been removed from the library successfully.");
+        }
+        else {
+            System.out.println("Error - album not found and therefore cannot be removed.");
+        }
+    }
+
+    /**
+     * Enter the title of an album
+     * that is stored in the library.
+     *
+     * This method will be used whenever the
+     * user is required to either add or remove
+     * songs from an album.
+     *
+     * @return The album title, or null if it is not in the library
+     */
+    private String enterAlbumTitle() {
+        System.out.print("Please enter the album's title: ");
+        String albumTitle = this.input.nextLine().trim();
+        if(albumTitle.isEmpty()) {
+            System.out.println("Error - album title not entered.");
+            return null;
+        }
+        if(!this.getLibrary().albumExistsInLibrary(albumTitle)) {
+            System.out.println("Error - '" + albumTitle + "' not found.");
+            suggestAlbums(albumTitle);
+            return null;
+        }
+        return albumTitle;
+    }
+
+    /**
+     * Create a new song from the user's
+     * details and add it to an album.
+     */
+    private void addSongToAlbum() {
+        String albumTitle = enterAlbumTitle();
+        if(albumTitle == null) {
+            return;
+        }
+        System.out.println("Please add the following details: " +
+                "\n\t a. Song duration (in seconds)" +
+                "\n\t b. Song title");
+        int songDuration = readDuration();
+        String songTitle = this.input.nextLine().trim();
+
+        if(this.getLibrary().addSongToAlbum(albumTitle, songTitle, songDuration)) {
+            System.out.println("Song has been added successfully to the album.");
+        }
+        else {
+            System.out.println("Error - song already exists.");
+        }
+    }
+
+    /**
+     * Remove a song chosen by
+     * the user from an album.
+     */
+    private void removeSongFromAlbum() {
+        String albumTitle = enterAlbumTitle();
+        if(albumTitle == null) {
+            return;
+        }
+        System.out.print("Please type in the song that you want to remove, using its title: ");
+        String songTitle = this.input.nextLine().trim();
+
+        if(this.getLibrary().removeSongFromAlbum(albumTitle, songTitle)) {
+            System.out.println("Song has been removed from the album successfully.");
+        }
+        else {
+            System.out.println("Error - song not found in the album.");
+        }
+    }
+
+    /**
+     * Print all stored albums
+     * in the library.
+     */
+    private void viewAlbumsInLibrary() {
+        ConsoleRenderer renderer = createRenderer();
+        renderer.appendLine("Albums in library:");
+        renderer.appendLine("**************************");
+        for(Album album : this.getLibrary().getAlbumsInLibrary()) {
+            StringBuilder line = renderer.startItem().append(album.getTitle()).append(" (");
+            DurationFormatter.appendAlbumDuration(line, album.calculateAlbumDuration()).append(')');
+            if(!renderer.endItem()) {
+                break;
+            }
+        }
+        renderer.appendLine("**************************");
+        renderer.flush();
+    }
+
+    /**
+     * Print all the songs
+     * from an album chosen by the user.
+     */
+    private void viewSongsInAlbum() {
+        String albumTitle = enterAlbumTitle();
+        if(albumTitle == null) {
+            return;
+        }
+        ConsoleRenderer renderer = createRenderer();
+        renderer.appendLine("Songs in album:");
+        renderer.appendLine("**************************");
+        for(Song song : this.getLibrary().getSongsInAlbum(albumTitle)) {
+            renderer.startItem().append(song.getTitle());
+            if(!renderer.endItem()) {
+                break;
+            }
+        }
+        renderer.appendLine("**************************");
+        renderer.flush();
+    }
+
+    /**
+     * Add a song chosen by the
+     * user to the playlist.
+     */
+    private void addSongToPlaylist() {
+        System.out.print("Please enter the song's title: ");
+        String songTitle = this.input.nextLine().trim();
+
+        if(!this.getLibrary().songExistsInLibrary(songTitle)) {
+            System.out.println("Error - song does not exist.");
+            suggestSongs(songTitle);
+        }
+        else if(this.getPlaylist().addSongToPlaylist(songTitle)) {
+            System.out.println("Song has been added to the playlist successfully.");
+        }
+        else {
+            System.out.println("Error - song is already in the playlist.");
+        }
+    }
+
+    /**
+     * Remove a song chosen by the
+     * user from the playlist.
+     */
+    private void removeSongFromPlaylist() {
+        System.out.print("Please type in the song that you want to remove, using its title: ");
+        String songTitle = this.input.nextLine().trim();
+
+        if(this.getPlaylist().removeSongFromPlaylist(songTitle)) {
+            System.out.println("Song has been removed from the playlist successfully.");
+        }
+        else {
+            System.out.println("Error - song not found.");
+        }
+    }
+
+    /**
+     * Add an album chosen by the
+     * user to the playlist.
+     */
+    private void addAlbumToPlaylist() {
+        System.out.print("Please enter the album's title: ");
+        String albumTitle = this.input.nextLine().trim();
+
+        if(!this.getLibrary().albumExistsInLibrary(albumTitle)) {
+            System.out.println("Error - album does not exist!");
+            suggestAlbums(albumTitle);
+        }
+        else if(this.getPlaylist().addAlbumToPlaylist(albumTitle)) {
+            System.out.println("Album has been added to the playlist successfully.");
+        }
+        else {
+            System.out.println("Error - album is already in the playlist!");
+        }
+    }
+
+    /**
+     * Remove an album chosen by the
+     * user from the playlist.
+     */
+    private void removeAlbumFromPlaylist() {
+        System.out.print("Please type in the album that you want to remove, using its title: ");
+        String albumTitle = this.input.nextLine().trim();
+
+        if(this.getPlaylist().removeAlbumFromPlaylist(albumTitle)) {
+            System.out.println("Album has been removed from the playlist successfully.");
+        }
+        else {
+            System.out.println("Error - album is not in the playlist.");
+        }
+    }
+
+    /**
+     * Print the song that is now playing.
+     *
+     * @param song The song now playing
+     * @param suffix Any text to print after the song title
+     */
+    private static void printNowPlaying(Song song, String suffix) {
+        System.out.println("Now playing: " + "\n\t Song: " + song.getTitle() + suffix);
+    }
+
+    /**
+     * Play the playlist, letting the user
+     * skip forwards, skip backwards or repeat
+     * the current song until they exit.
+     *
+     * @param shuffled True to play the songs in a random order
+     */
+    private void play(boolean shuffled) {
+        Song firstSong = shuffled ? this.getPlaylist().shuffle() : this.getPlaylist().play();
+        if(firstSong == null) {
+            System.out.println("Error - the playlist is empty.");
+            return;
+        }
+        boolean hasNotFinishedSkipping = true;
+        printNowPlaying(firstSong, "");
+        do {
+            System.out.println("Press 1 to skip forwards");
+            System.out.println("Press 2 to skip backwards");
+            System.out.println("Press 3 to repeat");
+            System.out.println("Press 4 to exit");
+
+            byte selection = readSelection();
+            Song song;
             switch(selection) {
                 case 1:
-                    this.getPlaylist().getLibrary().addSongToLibrary();
+                    song = this.getPlaylist().skipForwards();
+                    if(song != null) {
+                        printNowPlaying(song, "");
+                    }
+                    else {
+                        System.out.println("Reached the end of the playlist...");
+                    }
                     break;
                 case 2:
-                    this.getPlaylist().getLibrary().removeSongFromLibrary();
+                    song = this.getPlaylist().skipBackwards();
+                    if(song != null) {
+                        printNowPlaying(song, "");
+                    }
+                    else {
+                        System.out.println("Reached the start of the playlist...");
+                    }
                     break;
                 case 3:
-                    this.getPlaylist().getLibrary().viewSongsInLibrary();
+                    song = this.getPlaylist().repeat();
+                    if(song != null) {
+                        printNowPlaying(song, " (repeat).");
+                    }
                     break;
                 case 4:
-                    runApplication();
+                    hasNotFinishedSkipping = false;
                     break;
             }
-            if(exitSection()) {
-                sectionRunning = false;
-                runApplication();
+        } while(hasNotFinishedSkipping);
+    }
+
+    /**
+     * Search for songs in the playlist by part
+     * of their title or artist, and print the
+     * details of the best matches.
+     */
+    private void searchForSong() {
+        System.out.print("Please enter the song's title or artist (or the start of them): ");
+        String query = this.input.nextLine().trim();
+        List<Song> songs = this.getPlaylist().searchSongs(query, SEARCH_RESULTS);
+        if(songs.isEmpty()) {
+            System.out.println("Error - no matching song is in the playlist.");
+            return;
+        }
+        ConsoleRenderer renderer = createRenderer();
+        for(Song song : songs) {
+            appendSongDetails(renderer.startItem(), song).append('\n');
+            if(!renderer.endItem()) {
+                break;
             }
         }
+        renderer.flush();
+    }
+
+    /**
+     * Search for albums in the playlist by part
+     * of their title or artist, and print the
+     * details of the best matches.
+     */
+    private void searchForAlbum() {
+        System.out.print("Please enter the album's title or artist (or the start of them): ");
+        String query = this.input.nextLine().trim();
+        List<Album> albums = this.getPlaylist().searchAlbums(query, SEARCH_RESULTS);
+        if(albums.isEmpty()) {
+            System.out.println("Error - no matching album is in the playlist.");
+            return;
+        }
+        ConsoleRenderer renderer = createRenderer();
+        for(Album album : albums) {
+            StringBuilder details = renderer.startItem();
+            details.append(album.getTitle()).append("\n\t Artist: ").append(album.getArtist())
+                    .append("\n\t Duration: ");
+            DurationFormatter.appendAlbumDuration(details, album.getDuration()).append("\n\t Date Added: ");
+            TimeFormatter.appendTime(details, album.getAddedTime()).append('\n');
+            if(!renderer.endItem()) {
+                break;
+            }
+        }
+        renderer.flush();
+    }
+
+    /**
+     * Print the playlist
+     * of songs.
+     */
+    private void showPlaylistOfSongs() {
+        ConsoleRenderer renderer = createRenderer();
+        renderer.appendLine("All Songs currently in the playlist: ");
+        renderer.appendLine("************************");
+        for(Song song : this.getPlaylist().getPlaylistOfSongs()) {
+            renderer.startItem().append("Title: ").append(song.getTitle());
+            if(!renderer.endItem()) {
+                break;
+            }
+        }
+        renderer.appendLine("************************");
+        renderer.flush();
+    }
+
+    /**
+     * Print the playlist containing
+     * all stored albums, the most
+     * recently added first.
+     */
+    private void showPlaylistOfAlbums() {
+        ConsoleRenderer renderer = createRenderer();
+        renderer.appendLine("All albums currently in the playlist: ");
+        renderer.appendLine("************************");
+        for(Album album : this.getPlaylist().getAlbumsNewestFirst()) {
+            renderer.startItem().append("Title: ").append(album.getTitle());
+            if(!renderer.endItem()) {
+                break;
+            }
+        }
+        renderer.appendLine("************************");
+        renderer.flush();
+    }
+
+    /**
+     * Song section of the application.
+     *
+     * This section of the application will
+     * be used for creating, adding and removing
+     * individual songs.
+     *
+     * Each newly created song will be added to the library
+     * prior to being added to the playlist.
+     *
+     * @return The menu to show next
+     */
+    private Menu songSection() {
+        System.out.println("Please select from the following options: " +
+                "\n\t 1 - Create a new song and add it to the library" +
+                "\n\t 2 - Delete an existing song" +
+                "\n\t 3 - View all stored songs in the library" +
+                "\n\t 4 - Import songs from a catalogue file" +
+                "\n\t 5 - Back to main menu");
+
+        byte selection = readSelection();
+        switch(selection) {
+            case 1:
+                addSongToLibrary();
+                break;
+            case 2:
+                removeSongFromLibrary();
+                break;
+            case 3:
+                viewSongsInLibrary();
+                break;
+            case 4:
+                importCatalogue();
+                break;
+            case 5:
+                return Menu.MAIN;
+        }
+        return exitSection() ? Menu.MAIN : Menu.SONGS;
     }
 
     /**
@@ -104,48 +701,43 @@ public class PlaylistMain {
      *
      * Each newly created album will be added to the library
      * prior to being added to the playlist.
+     *
+     * @return The menu to show next
      */
-    private void albumSection() {
-        boolean sectionRunning = true;
-        while(sectionRunning) {
-            System.out.println("Please select from the following options: " +
-                    "\n\t 1 - Create and add a new album to the library" +
-                    "\n\t 2 - Delete an existing album" +
-                    "\n\t 3 - Add song to an existing album" +
-                    "\n\t 4 - Remove song from an album" +
-                    "\n\t 5 - View all stored albums in the library" +
-                    "\n\t 6 - View all stored songs in a particular album" +
-                    "\n\t 7 - Back to main menu");
-
-            byte selection = SCANNER.nextByte();
-            switch(selection) {
-                case 1:
-                    this.getPlaylist().getLibrary().addAlbumToLibrary();
-                    break;
-                case 2:
-                    this.getPlaylist().getLibrary().removeAlbumFromLibrary();
-                    break;
-                case 3:
-                    this.getPlaylist().getLibrary().addSongToAlbum();
-                    break;
-                case 4:
-                    this.getPlaylist().getLibrary().removeSongFromAlbum();
-                    break;
-                case 5:
-                    this.getPlaylist().getLibrary().viewAlbumsInLibrary();
-                    break;
-                case 6:
-                    this.getPlaylist().getLibrary().viewSongsInAlbum();
-                    break;
-                case 7:
-                    runApplication();
-                    break;
-            }
-            if(exitSection()) {
-                sectionRunning = false;
-                runApplication();
-            }
+    private Menu albumSection() {
+        System.out.println("Please select from the following options: " +
+                "\n\t 1 - Create and add a new album to the library" +
+                "\n\t 2 - Delete an existing album" +
+                "\n\t 3 - Add song to an existing album" +
+                "\n\t 4 - Remove song from an album" +
+                "\n\t 5 - View all stored albums in the library" +
+                "\n\t 6 - View all stored songs in a particular album" +
+                "\n\t 7 - Back to main menu");
+
+        byte selection = readSelection();
+        switch(selection) {
+            case 1:
+                addAlbumToLibrary();
+                break;
+            case 2:
+                removeAlbumFromLibrary();
+                break;
+            case 3:
+                addSongToAlbum();
+                break;
+            case 4:
+                removeSongFromAlbum();
+                break;
+            case 5:
+                viewAlbumsInLibrary();
+                break;
+            case 6:
+                viewSongsInAlbum();
+                break;
+            case 7:
+                return Menu.MAIN;
         }
+        return exitSection() ? Menu.MAIN : Menu.ALBUMS;
     }
 
     /**
@@ -153,40 +745,35 @@ public class PlaylistMain {
      *
      * This section of the application will be used for adding or
      * removing songs and/or albums from the playlist.
+     *
+     * @return The menu to show next
      */
-    private void librarySection() {
-        boolean sectionRunning = true;
-        while(sectionRunning) {
-            System.out.println("Please select from the following options: " +
-                    "\n\t 1 - Add a new song to the playlist" +
-                    "\n\t 2 - Remove an existing song from the playlist" +
-                    "\n\t 3 - Add a new album to the playlist" +
-                    "\n\t 4 - Remove an existing album from the playlist" +
-                    "\n\t 5 - Back to main menu");
-
-            byte selection = SCANNER.nextByte();
-            switch(selection) {
-                case 1:
-                    this.getPlaylist().addSongToPlaylist();
-                    break;
-                case 2:
-                    this.getPlaylist().removeSongFromPlaylist();
-                    break;
-                case 3:
-                    this.getPlaylist().addAlbumToPlaylist();
-                    break;
-                case 4:
-                    this.getPlaylist().removeAlbumFromPlaylist();
-                    break;
-                case 5:
-                    runApplication();
-                    break;
-            }
-            if(exitSection()) {
-                sectionRunning = false;
-                runApplication();
-            }
+    private Menu librarySection() {
+        System.out.println("Please select from the following options: " +
+                "\n\t 1 - Add a new song to the playlist" +
+                "\n\t 2 - Remove an existing song from the playlist" +
+                "\n\t 3 - Add a new album to the playlist" +
+                "\n\t 4 - Remove an existing album from the playlist" +
+                "\n\t 5 - Back to main menu");
+
+        byte selection = readSelection();
+        switch(selection) {
+            case 1:
+                addSongToPlaylist();
+                break;
+            case 2:
+                removeSongFromPlaylist();
+                break;
+            case 3:
+                addAlbumToPlaylist();
+                break;
+            case 4:
+                removeAlbumFromPlaylist();
+                break;
+            case 5:
+                return Menu.MAIN;
         }
+        return exitSection() ? Menu.MAIN : Menu.LIBRARY;
     }
 
     /**
@@ -195,63 +782,51 @@ public class PlaylistMain {
      * This menu text will be for using the playlist
      * and access and manipulation for existing songs
      * and albums.
+     *
+     * @return The menu to show next
      */
-    private void playlistSection() {
-        boolean sectionRunning = true;
-        while(sectionRunning) {
-            System.out.println("Please select from the following options: " +
-                    "\n\t 1 - Play complete playlist" +
-                    "\n\t 2 - Search for a song" +
-                    "\n\t 3 - Search for an album" +
-                    "\n\t 4 - Print the current playlist of songs" +
-                    "\n\t 5 - Print the current playlist of albums" +
-                    "\n\t 6 - Back to main menu");
-
-            byte selection = SCANNER.nextByte();
-            switch(selection) {
-                case 1:
-                    this.getPlaylist().play();
-                    playlistSection();
-                    break;
-                case 2:
-                    this.getPlaylist().searchForSong();
-                    if(!exitSection()) {
-                        sectionRunning = false;
-                        runApplication();
-                    }
-                    break;
-                case 3:
-                    this.getPlaylist().searchForAlbum();
-                    if(!exitSection()) {
-                        sectionRunning = false;
-                        runApplication();
-                    }
-                    break;
-                case 4:
-                    this.getPlaylist().showPlaylistOfSongs();
-                    if(!exitSection()) {
-                        sectionRunning = false;
-                        runApplication();
-                    }
-                    break;
-                case 5:
-                    this.getPlaylist().showPlaylistOfAlbums();
-                    if(!exitSection()) {
-                        sectionRunning = false;
-                        runApplication();
-                    }
-                    break;
-                case 6:
-                    runApplication();
-                    break;
-            }
+    private Menu playlistSection() {
+        System.out.println("Please select from the following options: " +
+                "\n\t 1 - Play complete playlist" +
+                "\n\t 2 - Search for a song" +
+                "\n\t 3 - Search for an album" +
+                "\n\t 4 - Print the current playlist of songs" +
+                "\n\t 5 - Print the current playlist of albums" +
+                "\n\t 6 - Shuffle playlist" +
+                "\n\t 7 - Back to main menu");
+
+        byte selection = readSelection();
+        switch(selection) {
+            case 1:
+                play(false);
+                return Menu.PLAYLIST;
+            case 2:
+                searchForSong();
+                break;
+            case 3:
+                searchForAlbum();
+                break;
+            case 4:
+                showPlaylistOfSongs();
+                break;
+            case 5:
+                showPlaylistOfAlbums();
+                break;
+            case 6:
+                play(true);
+                return Menu.PLAYLIST;
+            case 7:
+                return Menu.MAIN;
         }
+        return exitSection() ? Menu.MAIN : Menu.PLAYLIST;
     }
 
     /**
-     * Run the application.
+     * Main menu of the application.
+     *
+     * @return The menu to show next
      */
-    private void runApplication() {
+    private Menu mainMenu() {
         System.out.println("Welcome to your playlist! Please select from the following options: " +
                 "\n\t 1 - Create a new song" +
                 "\n\t 2 - Create a new album" +
@@ -259,35 +834,238 @@ public class PlaylistMain {
                 "\n\t 4 - Access the playlist" +
                 "\n\t 5 - Quit the application");
 
-        byte menuSelection = SCANNER.nextByte();
+        byte menuSelection = readSelection();
         switch(menuSelection) {
             case 1:
-                songSection();
-                break;
+                return Menu.SONGS;
             case 2:
-                albumSection();
-                break;
+                return Menu.ALBUMS;
             case 3:
-                librarySection();
-                break;
+                return Menu.LIBRARY;
             case 4:
-                playlistSection();
-                break;
+                return Menu.PLAYLIST;
             case 5:
-                System.out.println("Playlist application closed.");
-                System.exit(0);
-                break;
+                return Menu.QUIT;
+            default:
+                return Menu.MAIN;
+        }
+    }
+
+    /**
+     * Show a menu and carry out
+     * the user's selection from it.
+     *
+     * @param menu The menu to show
+     * @return The menu to show next
+     */
+    private Menu showMenu(Menu menu) {
+        switch(menu) {
+            case SONGS:
+                return songSection();
+            case ALBUMS:
+                return albumSection();
+            case LIBRARY:
+                return librarySection();
+            case PLAYLIST:
+                return playlistSection();
+            default:
+                return mainMenu();
+        }
+    }
+
+    /**
+     * Run the application.
+     *
+     * Each menu returns the next menu to show rather
+     * than calling it, so moving between menus never
+     * deepens the call stack however long the session.
+     * Running out of input (such as reaching the end
+     * of a script) quits the application.
+     */
+    private void runApplication() {
+        Menu menu = Menu.MAIN;
+        while(menu != Menu.QUIT) {
+            try {
+                menu = showMenu(menu);
+            }
+            catch(InputMismatchException e) {
+                if(this.input.hasNextLine()) {
+                    this.input.nextLine();
+                }
+                System.out.println("Error - please enter a number.");
+            }
+            catch(NoSuchElementException e) {
+                System.out.println();
+                System.out.println("End of input reached.");
+                menu = Menu.QUIT;
+            }
+        }
+        saveSnapshot();
+        System.out.println("Playlist application closed.");
+    }
+
+    /**
+     * Save the library and playlist
+     * to the snapshot file.
+     *
+     * Once saved, the journal is cleared
+     * as its changes are now in the snapshot.
+     * If the snapshot could not be saved then
+     * the journal is kept so that the changes
+     * are replayed on the next start.
+     */
+    private void saveSnapshot() {
+        try {
+            LibrarySnapshot.save(this.getPlaylist(), this.snapshotFile);
+            System.out.println("Library and playlist saved to '" + this.snapshotFile + "'.");
+            if(this.journal != null) {
+                this.journal.reset();
+            }
+        }
+        catch(IOException e) {
+            System.out.println("Error - the library and playlist could not be saved: " + e.getMessage());
+        }
+        if(this.journal != null) {
+            try {
+                this.journal.close();
+            }
+            catch(IOException e) {
+                System.out.println("Error - the journal could not be closed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the journal file that
+     * belongs to a snapshot file.
+     *
+     * @param snapshotFile The snapshot file
+     * @return The journal file
+     */
+    private static Path journalFile(Path snapshotFile) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + ".journal");
+    }
+
+    /**
+     * Replay the changes made since the
+     * last snapshot, then start recording
+     * new changes to the journal.
+     */
+    private void openJournal() {
+        Path journalFile = journalFile(this.snapshotFile);
+        try {
+            long replayed = MutationJournal.replay(journalFile, this.getPlaylist());
+            if(replayed > 0) {
+                System.out.println(replayed + " unsaved change(s) recovered from '" + journalFile + "'.");
+            }
+            MutationJournal openedJournal = new MutationJournal(journalFile);
+            this.journal = openedJournal;
+            this.getLibrary().setJournal(openedJournal);
+            // Commits anything still waiting if the application stops without quitting
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    openedJournal.close();
+                }
+                catch(IOException e) {
+                    System.err.println("Error - the journal could not be closed: " + e.getMessage());
+                }
+            }));
+        }
+        catch(IOException e) {
+            System.out.println("Error - the journal could not be opened, " +
+                    "so changes will only be saved on exit: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load the library and playlist
+     * from a snapshot file, or create empty ones
+     * if there is no snapshot to load.
+     *
+     * A snapshot that cannot be loaded is moved aside
+     * (with its journal) before starting with an empty
+     * library, so that saving on exit never overwrites it.
+     * If it cannot be moved aside then the application
+     * does not start at all.
+     *
+     * @param snapshotFile The snapshot file
+     * @return The loaded (or new) playlist, or null if the application cannot start
+     */
+    private static Playlist loadSnapshot(Path snapshotFile) {
+        if(Files.exists(snapshotFile)) {
+            try {
+                Playlist playlist = LibrarySnapshot.load(snapshotFile);
+                System.out.println("Library and playlist loaded from '" + snapshotFile + "'.");
+                return playlist;
+            }
+            catch(IOException e) {
+                System.out.println("Error - the saved library and playlist could not be loaded: " + e.getMessage());
+                Path corruptFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".corrupt");
+                for(int copy = 1; Files.exists(corruptFile); copy++) {
+                    // An earlier unreadable snapshot is kept too
+                    corruptFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".corrupt" + copy);
+                }
+                try {
+                    // The journal goes with it, as its changes were made to that snapshot
+                    Files.move(snapshotFile, corruptFile);
+                    if(Files.exists(journalFile(snapshotFile))) {
+                        Files.move(journalFile(snapshotFile), journalFile(corruptFile));
+                    }
+                    System.out.println("The unreadable snapshot has been moved to '" + corruptFile
+                            + "', and an empty library has been started.");
+                }
+                catch(IOException moveError) {
+                    System.out.println("Error - the unreadable snapshot could not be moved to '" + corruptFile
+                            + "' (" + moveError.getMessage() + "), so the application will not start.");
+                    return null;
+                }
+            }
+        }
+        Library library = new Library(new ArrayList<>(), new ArrayList<>());
+        return new Playlist(library, new ArrayList<>(), new PlaybackQueue(library));
+    }
+
+    /**
+     * Open the commands to run: a script file
+     * named by the "playlist.script" system property,
+     * or else what the user types.
+     *
+     * A script holds exactly what would be typed, one
+     * entry per line, so that long sessions can be
+     * replayed for soak testing.
+     *
+     * @return The commands, or null if the script could not be opened
+     */
+    private static Scanner openInput() {
+        if(SCRIPT_FILE == null) {
+            return new Scanner(System.in);
+        }
+        try {
+            return new Scanner(Paths.get(SCRIPT_FILE), StandardCharsets.UTF_8);
+        }
+        catch(IOException | InvalidPathException e) {
+            System.out.println("Error - the script could not be opened: " + e.getMessage());
+            return null;
         }
     }
 
     /**
      * Main method.
      *
-     * @param args The command-line arguments
+     * @param args The command-line arguments: the snapshot file to use (optional)
      */
     public static void main(String[] args) {
-        PlaylistMain playlistMain = new PlaylistMain(new Playlist
-                (new Library(new ArrayList<>(), new ArrayList<>()), new LinkedList<>(), new LinkedList<>()));
+        Path snapshotFile = Paths.get(args.length > 0 ? args[0] : DEFAULT_SNAPSHOT_FILE);
+        Scanner input = openInput();
+        if(input == null) {
+            return;
+        }
+        Playlist playlist = loadSnapshot(snapshotFile);
+        if(playlist == null) {
+            return;
+        }
+        PlaylistMain playlistMain = new PlaylistMain(playlist, snapshotFile, input);
+        playlistMain.openJournal();
         playlistMain.runApplication();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,128 @@
+package Section6.LinkedListChallenge;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will hold the playlists of many users,
+ * all sharing one library.
+ *
+ * Each playlist is found by its user and its name. A playlist
+ * only holds the ids of its songs, so the songs themselves are
+ * stored once in the library however many playlists contain them.
+ *
+ * Each playlist should only be changed by one thread at a
+ * time (its user's), while the library can be shared by all.
+ * Changes to these playlists are not recorded in the library's
+ * journal, which only replays into a single playlist.
+ *
+ * @author Ben Silveston
+ */
+class PlaylistRegistry {
+    private Library library;
+    private Map<String, Playlist> playlists;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create a registry
+     * with no playlists.
+     *
+     * @param library The library shared by every playlist
+     */
+    PlaylistRegistry(Library library) {
+        this.library = library;
+        this.playlists = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the library shared
+     * by every playlist.
+     *
+     * @return The library
+     */
+    Library getLibrary() {
+        return library;
+    }
+
+    /**
+     * Get the number of playlists
+     * in the registry.
+     *
+     * @return The number of playlists
+     */
+    int size() {
+        return this.playlists.size();
+    }
+
+    /**
+     * Get one of a user's playlists,
+     * creating an empty one if the user
+     * does not have it yet.
+     *
+     * @param userId The id of the user
+     * @param playlistId The name of the playlist
+     * @return The playlist
+     */
+    Playlist getOrCreate(String userId, String playlistId) {
+        return this.playlists.computeIfAbsent(key(userId, playlistId),
+                key -> new Playlist(this.library, new ArrayList<>(), new PlaybackQueue(this.library), false));
+    }
+
+    /**
+     * Get one of a user's playlists.
+     *
+     * @param userId The id of the user
+     * @param playlistId The name of the playlist
+     * @return The playlist, or null if the user does not have it
+     */
+    Playlist get(String userId, String playlistId) {
+        return this.playlists.get(key(userId, playlistId));
+    }
+
+    /**
+     * Remove one of a user's playlists.
+     *
+     * The playlist is emptied under its lock first, so that
+     * the library can free any songs only it was holding.
+     *
+     * @param userId The id of the user
+     * @param playlistId The name of the playlist
+     * @return True if the playlist was removed, false if the user did not have it
+     */
+    boolean remove(String userId, String playlistId) {
+        boolean[] removed = new boolean[1];
+        this.playlists.computeIfPresent(key(userId, playlistId), (key, playlist) -> {
+            playlist.getLock().lock();
+            try {
+                playlist.clear();
+            }
+            finally {
+                playlist.getLock().unlock();
+            }
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Create the key a playlist is stored under.
+     *
+     * The two ids are separated by a character that
+     * cannot be typed, so that no two pairs share a key.
+     *
+     * @param userId The id of the user
+     * @param playlistId The name of the playlist
+     * @return The key
+     */
+    private static String key(String userId, String playlistId) {
+        return userId + '\u0000' + playlistId;
+    }
+}
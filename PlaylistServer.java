@@ -0,0 +1,604 @@
+package Section6.LinkedListChallenge;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will serve the library and every user's
+ * playlists over HTTP, answering in JSON.
+ *
+ * All details are passed as query parameters, for example
+ * POST /library/songs?title=Hello&artist=Adele&duration=295
+ * or GET /playlist/songs?user=ben&playlist=favourites.
+ * Library routes: /library/songs, /library/songs/like,
+ * /library/songs/recent, /library/albums, /library/albums/like,
+ * /library/albums/songs and /library/stats.
+ * Playlist routes: /playlist/songs, /playlist/albums, /playlist/play,
+ * /playlist/shuffle, /playlist/next, /playlist/previous, /playlist/repeat,
+ * /playlist/search/songs and /playlist/search/albums.
+ * GET lists or finds, POST adds and DELETE removes. A playlist
+ * is created by the first song or album POSTed to it.
+ *
+ * Every request runs on its own virtual thread where the
+ * Java runtime provides them (Java 21 onwards), so many thousands
+ * of slow clients cost very little. Older runtimes fall back to a
+ * fixed pool of platform threads, sized by the playlist.serverThreads
+ * system property.
+ *
+ * @author Ben Silveston
+ */
+class PlaylistServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int FALLBACK_THREADS = Integer.getInteger("playlist.serverThreads", 200);
+
+    /**
+     * A request that could not be answered, with the
+     * HTTP status code to answer it with instead.
+     */
+    private static class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        /**
+         * Constructor
+         *
+         * @param status The HTTP status code
+         * @param message The reason given to the client
+         */
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private PlaylistRegistry registry;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructor
+     *
+     * @param registry The playlists to serve, together with their library
+     */
+    PlaylistServer(PlaylistRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Get the library being served
+     *
+     * @return The library object data
+     */
+    private Library getLibrary() {
+        return this.registry.getLibrary();
+    }
+
+    /**
+     * Start answering requests.
+     *
+     * @param port The port to listen on, or 0 for any free port
+     * @return The port being listened on
+     * @throws IOException If the port could not be opened
+     */
+    int start(int port) throws IOException {
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+            // Without this, small responses wait on Nagle's algorithm for around 40ms each
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = createExecutor();
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/library/", this::handle);
+        this.server.createContext("/playlist/", this::handle);
+        this.server.start();
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Stop answering requests, letting those
+     * already running finish first.
+     */
+    void stop() {
+        this.server.stop(0);
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Create the executor that requests run on: one virtual
+     * thread per request if the runtime has them, otherwise
+     * a fixed pool of platform threads.
+     *
+     * @return The executor
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            // Looked up by name so that the server still builds and runs before Java 21
+            Method perTask = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) perTask.invoke(null);
+        }
+        catch(ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(FALLBACK_THREADS);
+        }
+    }
+
+    /**
+     * Answer a single request.
+     *
+     * @param exchange The request and its response
+     * @throws IOException If the response could not be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            body = route(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                    parameters(exchange.getRequestURI().getRawQuery()));
+        }
+        catch(RequestException e) {
+            status = e.status;
+            body = "{\"error\":" + quote(e.getMessage()) + "}";
+        }
+        catch(RuntimeException e) {
+            status = 500;
+            body = "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try(OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Carry out a request and build its answer.
+     *
+     * @param method The HTTP method
+     * @param path The path requested
+     * @param parameters The query parameters
+     * @return The JSON answer
+     */
+    private String route(String method, String path, Map<String, String> parameters) {
+        Library library = this.getLibrary();
+        switch(path) {
+            case "/library/songs":
+                if(method.equals("GET")) {
+                    return songs(library.getSongsInLibrary());
+                }
+                if(method.equals("POST")) {
+                    return result(library.addSongToLibrary(required(parameters, "title"),
+                            parameters.get("artist"), duration(parameters)));
+                }
+                if(method.equals("DELETE")) {
+                    return result(library.removeSongFromLibrary(required(parameters, "title")));
+                }
+                break;
+            case "/library/stats":
+                if(method.equals("GET")) {
+                    return "{\"songs\":" + library.getSongsInLibrary().size()
+                            + ",\"albums\":" + library.getAlbumsInLibrary().size()
+                            + ",\"duration\":" + library.getTotalDuration() + "}";
+                }
+                break;
+            case "/library/songs/like":
+                if(method.equals("GET")) {
+                    return songs(library.findSongsLike(required(parameters, "title"), limit(parameters)));
+                }
+                break;
+            case "/library/songs/recent":
+                if(method.equals("GET")) {
+                    if(parameters.containsKey("from") || parameters.containsKey("to")) {
+                        return songs(library.getSongsAddedBetween(time(parameters, "from"), time(parameters, "to")));
+                    }
+                    return songs(library.getRecentlyAddedSongs(limit(parameters)));
+                }
+                break;
+            case "/library/albums":
+                if(method.equals("GET")) {
+                    return albums(library.getAlbumsInLibrary());
+                }
+                if(method.equals("POST")) {
+                    return result(library.addAlbumToLibrary(required(parameters, "title"), parameters.get("artist")));
+                }
+                if(method.equals("DELETE")) {
+                    return result(library.removeAlbumFromLibrary(required(parameters, "title")));
+                }
+                break;
+            case "/library/albums/like":
+                if(method.equals("GET")) {
+                    return albums(library.findAlbumsLike(required(parameters, "title"), limit(parameters)));
+                }
+                break;
+            case "/library/albums/songs":
+                if(method.equals("GET")) {
+                    List<Song> albumSongs = library.getSongsInAlbum(required(parameters, "album"));
+                    if(albumSongs == null) {
+                        throw new RequestException(404, "No such album");
+                    }
+                    return songs(albumSongs);
+                }
+                if(method.equals("POST")) {
+                    return result(library.addSongToAlbum(required(parameters, "album"),
+                            required(parameters, "title"), duration(parameters)));
+                }
+                if(method.equals("DELETE")) {
+                    return result(library.removeSongFromAlbum(required(parameters, "album"),
+                            required(parameters, "title")));
+                }
+                break;
+            default:
+                if(path.startsWith("/playlist/")) {
+                    return routePlaylist(method, path, parameters);
+                }
+                throw new RequestException(404, "No such path: " + path);
+        }
+        throw new RequestException(405, method + " is not supported for " + path);
+    }
+
+    /**
+     * Carry out a request on one user's playlist.
+     *
+     * A playlist is only created by adding a song or album
+     * to it; any other request for a playlist the user does
+     * not have is answered with 404, so that reading cannot
+     * fill the registry with empty playlists.
+     *
+     * A playlist is only used by one request at a time,
+     * while requests for other playlists carry on alongside it.
+     *
+     * @param method The HTTP method
+     * @param path The path requested
+     * @param parameters The query parameters, including the user and playlist
+     * @return The JSON answer
+     */
+    private String routePlaylist(String method, String path, Map<String, String> parameters) {
+        String user = required(parameters, "user");
+        String playlistName = required(parameters, "playlist");
+        boolean adding = method.equals("POST") && (path.equals("/playlist/songs") || path.equals("/playlist/albums"));
+        Playlist playlist = adding ? this.registry.getOrCreate(user, playlistName)
+                : this.registry.get(user, playlistName);
+        if(playlist == null) {
+            throw new RequestException(404, "No such playlist");
+        }
+        playlist.getLock().lock();
+        try {
+            return routePlaylist(playlist, method, path, parameters);
+        }
+        finally {
+            playlist.getLock().unlock();
+        }
+    }
+
+    /**
+     * Carry out a request on a playlist
+     * while holding its lock.
+     *
+     * @param playlist The playlist
+     * @param method The HTTP method
+     * @param path The path requested
+     * @param parameters The query parameters
+     * @return The JSON answer
+     */
+    private String routePlaylist(Playlist playlist, String method, String path, Map<String, String> parameters) {
+        switch(path) {
+            case "/playlist/songs":
+                if(method.equals("GET")) {
+                    List<Song> playlistSongs = new ArrayList<>();
+                    for(Song song : playlist.getPlaylistOfSongs()) {
+                        playlistSongs.add(song);
+                    }
+                    return songs(playlistSongs);
+                }
+                if(method.equals("POST")) {
+                    return result(playlist.addSongToPlaylist(required(parameters, "title")));
+                }
+                if(method.equals("DELETE")) {
+                    return result(playlist.removeSongFromPlaylist(required(parameters, "title")));
+                }
+                break;
+            case "/playlist/albums":
+                if(method.equals("GET")) {
+                    return albums(playlist.getPlaylistOfAlbums());
+                }
+                if(method.equals("POST")) {
+                    return result(playlist.addAlbumToPlaylist(required(parameters, "title")));
+                }
+                if(method.equals("DELETE")) {
+                    return result(playlist.removeAlbumFromPlaylist(required(parameters, "title")));
+                }
+                break;
+            case "/playlist/play":
+                return nowPlaying(method, playlist::play);
+            case "/playlist/shuffle":
+                return nowPlaying(method, playlist::shuffle);
+            case "/playlist/next":
+                return nowPlaying(method, playlist::skipForwards);
+            case "/playlist/previous":
+                return nowPlaying(method, playlist::skipBackwards);
+            case "/playlist/repeat":
+                return nowPlaying(method, playlist::repeat);
+            case "/playlist/search/songs":
+                if(method.equals("GET")) {
+                    return songs(playlist.searchSongs(required(parameters, "q"), limit(parameters)));
+                }
+                break;
+            case "/playlist/search/albums":
+                if(method.equals("GET")) {
+                    return albums(playlist.searchAlbums(required(parameters, "q"), limit(parameters)));
+                }
+                break;
+            default:
+                throw new RequestException(404, "No such path: " + path);
+        }
+        throw new RequestException(405, method + " is not supported for " + path);
+    }
+
+    /**
+     * Build the answer to a play, skip
+     * or repeat request.
+     *
+     * The song playing is only changed once
+     * the request is known to be a POST.
+     *
+     * @param method The HTTP method, which must be POST
+     * @param change Changes the song playing, giving the song now playing or null if there is none
+     * @return The JSON answer
+     */
+    private static String nowPlaying(String method, Supplier<Song> change) {
+        if(!method.equals("POST")) {
+            throw new RequestException(405, "Use POST to change the song playing");
+        }
+        Song song = change.get();
+        if(song == null) {
+            throw new RequestException(404, "No song to play");
+        }
+        StringBuilder json = new StringBuilder();
+        appendSong(json, song);
+        return json.toString();
+    }
+
+    /**
+     * Split a query string into its
+     * decoded parameters.
+     *
+     * @param query The raw query string, which may be null
+     * @return The parameters
+     */
+    static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if(query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for(String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Get a parameter that must be given.
+     *
+     * @param parameters The query parameters
+     * @param name The name of the parameter
+     * @return The value of the parameter
+     */
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if(value == null || value.trim().isEmpty()) {
+            throw new RequestException(400, "Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    /**
+     * Get a parameter that must be a whole number.
+     *
+     * @param parameters The query parameters
+     * @param name The name of the parameter
+     * @return The value of the parameter
+     */
+    private static int number(Map<String, String> parameters, String name) {
+        try {
+            return Integer.parseInt(required(parameters, name));
+        }
+        catch(NumberFormatException e) {
+            throw new RequestException(400, "Not a number: " + name);
+        }
+    }
+
+    /**
+     * Get the duration of a song, which
+     * must be a number of seconds more than 0.
+     *
+     * @param parameters The query parameters
+     * @return The duration (in seconds)
+     */
+    private static int duration(Map<String, String> parameters) {
+        int duration = number(parameters, "duration");
+        if(duration <= 0) {
+            throw new RequestException(400, "The duration must be more than 0 seconds");
+        }
+        return duration;
+    }
+
+    /**
+     * Get a parameter that must be a
+     * time in epoch milliseconds.
+     *
+     * @param parameters The query parameters
+     * @param name The name of the parameter
+     * @return The value of the parameter
+     */
+    private static long time(Map<String, String> parameters, String name) {
+        try {
+            return Long.parseLong(required(parameters, name));
+        }
+        catch(NumberFormatException e) {
+            throw new RequestException(400, "Not a time: " + name);
+        }
+    }
+
+    /**
+     * Get the greatest number of results
+     * to return, if one was given.
+     *
+     * @param parameters The query parameters
+     * @return The limit
+     */
+    private static int limit(Map<String, String> parameters) {
+        return parameters.containsKey("limit") ? number(parameters, "limit") : DEFAULT_LIMIT;
+    }
+
+    /**
+     * Build the answer to a change.
+     *
+     * @param changed True if the change was made
+     * @return The JSON answer
+     */
+    private static String result(boolean changed) {
+        return changed ? "{\"result\":true}" : "{\"result\":false}";
+    }
+
+    /**
+     * Build a JSON array of songs.
+     *
+     * @param songs The songs
+     * @return The JSON array
+     */
+    private static String songs(List<Song> songs) {
+        StringBuilder json = new StringBuilder(songs.size() * 64 + 2).append('[');
+        for(int i = 0; i < songs.size(); i++) {
+            if(i > 0) {
+                json.append(',');
+            }
+            appendSong(json, songs.get(i));
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Build a JSON array of albums.
+     *
+     * @param albums The albums
+     * @return The JSON array
+     */
+    private static String albums(List<Album> albums) {
+        StringBuilder json = new StringBuilder(albums.size() * 64 + 2).append('[');
+        for(int i = 0; i < albums.size(); i++) {
+            Album album = albums.get(i);
+            if(i > 0) {
+                json.append(',');
+            }
+            json.append("{\"title\":").append(quote(album.getTitle()))
+                    .append(",\"artist\":").append(quote(album.getArtist()))
+                    .append(",\"songs\":").append(album.getNumberOfSongs())
+                    .append(",\"duration\":").append(album.getDuration()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Add a song to a JSON answer
+     * as an object.
+     *
+     * @param json The answer being built
+     * @param song The song
+     */
+    private static void appendSong(StringBuilder json, Song song) {
+        json.append("{\"title\":").append(quote(song.getTitle()))
+                .append(",\"artist\":").append(quote(song.getArtist()))
+                .append(",\"duration\":").append(song.getDuration());
+        long addedTime = song.getAddedTime();
+        json.append(",\"added\":");
+        if(addedTime == SongStore.NO_TIME) {
+            json.append("null");
+        }
+        else {
+            json.append(addedTime);
+        }
+        json.append('}');
+    }
+
+    /**
+     * Quote text as a JSON string.
+     *
+     * @param text The text, which may be null
+     * @return The JSON string, or null
+     */
+    static String quote(String text) {
+        if(text == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for(int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if(character == '"' || character == '\\') {
+                quoted.append('\\').append(character);
+            }
+            else if(character < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) character));
+            }
+            else {
+                quoted.append(character);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args The command-line arguments: the port (optional) and
+     *             a snapshot file to load the library from (optional)
+     * @throws IOException If the library could not be loaded or the port opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Library library;
+        if(args.length > 1 && Files.exists(Paths.get(args[1]))) {
+            Path snapshotFile = Paths.get(args[1]);
+            library = LibrarySnapshot.load(snapshotFile).getLibrary();
+            System.out.println("Library loaded from '" + snapshotFile + "'.");
+        }
+        else {
+            library = new Library(new ArrayList<>(), new ArrayList<>());
+        }
+        PlaylistServer playlistServer = new PlaylistServer(new PlaylistRegistry(library));
+        System.out.println("Playlist server listening on port " + playlistServer.start(port) + ".");
+    }
+}
@@ -0,0 +1,372 @@
+package Section6.LinkedListChallenge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will index songs or albums by the words
+ * in their titles and artists, so that they can be
+ * searched for by part of a title or artist.
+ *
+ * Every word is stored once in a prefix trie, and the node at
+ * the end of each word holds the items containing that word
+ * (an inverted index). A query is split into words in the same
+ * way, and an item matches when every query word is the start of
+ * one of its words. Matches are ranked so that whole words beat
+ * prefixes and titles beat artists, and only the best few are kept.
+ *
+ * Items are added and removed one at a time as the
+ * playlist changes, so the index never needs rebuilding.
+ *
+ * @author Ben Silveston
+ */
+class SearchIndex<T> {
+    private static final int TITLE = 1;
+    private static final int ARTIST = 2;
+
+    private static final int EXACT_TITLE_SCORE = 4;
+    private static final int PREFIX_TITLE_SCORE = 2;
+    private static final int EXACT_ARTIST_SCORE = 2;
+    private static final int PREFIX_ARTIST_SCORE = 1;
+    private static final int WHOLE_TITLE_BONUS = 100;
+
+    /**
+     * A node in the trie, one for
+     * each character of a word.
+     */
+    private static class Node<T> {
+        private final Map<Character, Node<T>> children = new HashMap<>(4);
+
+        /**
+         * The items containing the word ending at this node,
+         * each with the fields (title and/or artist) it appears in.
+         */
+        private final Map<T, Integer> items = new HashMap<>(2);
+
+        /**
+         * The number of item words ending at or below this node,
+         * showing how many items a query word starting here would match.
+         */
+        private int count;
+    }
+
+    /**
+     * The indexed words of a single item.
+     */
+    private static class Entry {
+        private final String title;
+        private final Map<String, Integer> fieldsByWord;
+
+        /**
+         * Constructor
+         *
+         * @param title The words of the title, joined by single spaces
+         * @param fieldsByWord The fields (title and/or artist) containing each word
+         */
+        Entry(String title, Map<String, Integer> fieldsByWord) {
+            this.title = title;
+            this.fieldsByWord = fieldsByWord;
+        }
+    }
+
+    /**
+     * A scored search result.
+     */
+    private static class Match<T> {
+        private final T item;
+        private final String title;
+        private final int score;
+
+        /**
+         * Constructor
+         *
+         * @param item The matching item
+         * @param title The title of the item
+         * @param score The score of the item
+         */
+        Match(T item, String title, int score) {
+            this.item = item;
+            this.title = title;
+            this.score = score;
+        }
+    }
+
+    private Node<T> root;
+    private Map<T, Entry> entries;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create an empty index.
+     */
+    SearchIndex() {
+        this.root = new Node<>();
+        this.entries = new HashMap<>();
+    }
+
+    /**
+     * Get the number of items
+     * in the index.
+     *
+     * @return The number of items
+     */
+    int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Split text into the lower case words
+     * that it is indexed or searched by.
+     *
+     * Any character that is not a letter or a
+     * digit separates one word from the next.
+     *
+     * @param text The text to split, which may be null
+     * @return The words, in order
+     */
+    static List<String> tokenise(String text) {
+        List<String> words = new ArrayList<>();
+        if(text == null) {
+            return words;
+        }
+        String folded = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for(int i = 0; i <= folded.length(); i++) {
+            boolean wordCharacter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if(wordCharacter && start < 0) {
+                start = i;
+            }
+            else if(!wordCharacter && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Add an item to the index.
+     *
+     * Nothing is changed if the
+     * item is already in the index.
+     *
+     * @param item The item to add
+     * @param title The title of the item
+     * @param artist The artist of the item, which may be null
+     */
+    void add(T item, String title, String artist) {
+        if(this.entries.containsKey(item)) {
+            return;
+        }
+        Entry entry = new Entry(String.join(" ", tokenise(title)), fieldsByWord(title, artist));
+        this.entries.put(item, entry);
+        for(Map.Entry<String, Integer> word : entry.fieldsByWord.entrySet()) {
+            Node<T> node = this.root;
+            node.count++;
+            String text = word.getKey();
+            for(int i = 0; i < text.length(); i++) {
+                node = node.children.computeIfAbsent(text.charAt(i), character -> new Node<>());
+                node.count++;
+            }
+            node.items.put(item, word.getValue());
+        }
+    }
+
+    /**
+     * Remove an item from the index.
+     *
+     * @param item The item to remove
+     */
+    void remove(T item) {
+        Entry entry = this.entries.remove(item);
+        if(entry == null) {
+            return;
+        }
+        for(String word : entry.fieldsByWord.keySet()) {
+            Node<T> node = this.root;
+            node.count--;
+            for(int i = 0; i < word.length(); i++) {
+                Node<T> child = node.children.get(word.charAt(i));
+                if(--child.count == 0) {
+                    // Nothing else is below this node, so the rest of the word can go
+                    node.children.remove(word.charAt(i));
+                    break;
+                }
+                node = child;
+                if(i == word.length() - 1) {
+                    node.items.remove(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Search for the items best matching a query.
+     *
+     * Every word of the query must be the start of
+     * a word in the item's title or artist.
+     *
+     * @param query The words to search for
+     * @param limit The greatest number of results
+     * @return The matching items, best match first
+     */
+    List<T> search(String query, int limit) {
+        List<String> words = tokenise(query);
+        if(words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // The items are gathered from the trie using the query word
+        // that matches the fewest of them, and then checked against
+        // the other query words one item at a time
+        int rarestWord = -1;
+        Node<T> rarestNode = null;
+        for(int i = 0; i < words.size(); i++) {
+            Node<T> node = find(words.get(i));
+            if(node == null) {
+                return Collections.emptyList();
+            }
+            if(rarestNode == null || node.count < rarestNode.count) {
+                rarestWord = i;
+                rarestNode = node;
+            }
+        }
+        Map<T, Integer> scores = new HashMap<>();
+        collect(rarestNode, scores, true);
+
+        String wholeQuery = String.join(" ", words);
+        Comparator<Match<T>> worstFirst = Comparator.<Match<T>>comparingInt(match -> match.score)
+                .thenComparing(match -> match.title, Comparator.reverseOrder());
+        PriorityQueue<Match<T>> best = new PriorityQueue<>(limit + 1, worstFirst);
+        for(Map.Entry<T, Integer> candidate : scores.entrySet()) {
+            Entry entry = this.entries.get(candidate.getKey());
+            int score = candidate.getValue();
+            for(int i = 0; i < words.size(); i++) {
+                if(i != rarestWord) {
+                    int wordScore = score(entry, words.get(i));
+                    if(wordScore == 0) {
+                        score = 0;
+                        break;
+                    }
+                    score += wordScore;
+                }
+            }
+            if(score == 0) {
+                continue;
+            }
+            if(entry.title.equals(wholeQuery)) {
+                score += WHOLE_TITLE_BONUS;
+            }
+            best.add(new Match<>(candidate.getKey(), entry.title, score));
+            if(best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<T> results = new ArrayList<>(best.size());
+        while(!best.isEmpty()) {
+            results.add(best.poll().item);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Find the trie node at
+     * the end of a word.
+     *
+     * @param word The word
+     * @return The node, or null if no indexed word starts with it
+     */
+    private Node<T> find(String word) {
+        Node<T> node = this.root;
+        for(int i = 0; i < word.length() && node != null; i++) {
+            node = node.children.get(word.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Score every item below a trie node, keeping
+     * the best score of each item for the query word.
+     *
+     * @param node The node to collect from
+     * @param scores The best score of each item for the query word
+     * @param exact True if the node is at the end of the query word itself
+     */
+    private static <T> void collect(Node<T> node, Map<T, Integer> scores, boolean exact) {
+        for(Map.Entry<T, Integer> item : node.items.entrySet()) {
+            scores.merge(item.getKey(), score(item.getValue(), exact), Math::max);
+        }
+        for(Node<T> child : node.children.values()) {
+            collect(child, scores, false);
+        }
+    }
+
+    /**
+     * Score the best match between a query
+     * word and any of an item's words.
+     *
+     * @param entry The indexed words of the item
+     * @param queryWord The query word
+     * @return The score, or 0 if none of the item's words start with the query word
+     */
+    private static int score(Entry entry, String queryWord) {
+        int best = 0;
+        for(Map.Entry<String, Integer> word : entry.fieldsByWord.entrySet()) {
+            if(word.getKey().startsWith(queryWord)) {
+                best = Math.max(best, score(word.getValue(), word.getKey().length() == queryWord.length()));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Score a single match between
+     * a query word and an item's word.
+     *
+     * @param fields The fields (title and/or artist) containing the word
+     * @param exact True if the whole word matched, false if only its start did
+     * @return The score
+     */
+    private static int score(int fields, boolean exact) {
+        int score = 0;
+        if((fields & TITLE) != 0) {
+            score = exact ? EXACT_TITLE_SCORE : PREFIX_TITLE_SCORE;
+        }
+        if((fields & ARTIST) != 0) {
+            score = Math.max(score, exact ? EXACT_ARTIST_SCORE : PREFIX_ARTIST_SCORE);
+        }
+        return score;
+    }
+
+    /**
+     * Get each distinct word of a title and artist,
+     * with the fields that the word appears in.
+     *
+     * @param title The title
+     * @param artist The artist, which may be null
+     * @return The fields of each word
+     */
+    private static Map<String, Integer> fieldsByWord(String title, String artist) {
+        Map<String, Integer> fields = new HashMap<>();
+        for(String word : tokenise(title)) {
+            fields.merge(word, TITLE, (a, b) -> a | b);
+        }
+        for(String word : tokenise(artist)) {
+            fields.merge(word, ARTIST, (a, b) -> a | b);
+        }
+        return fields;
+    }
+}
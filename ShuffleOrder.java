@@ -0,0 +1,380 @@
+package Section6.LinkedListChallenge;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will choose a random order in which to play
+ * the songs of a queue, without playing any song twice.
+ *
+ * The order is a Fisher-Yates shuffle of the queue's song ids
+ * that is only carried out one step at a time, as each song is
+ * needed. Rather than copying the ids and swapping them around,
+ * the ids start out as the queue's own array, and only the few
+ * places that a step has changed are kept, in a small map. So
+ * shuffling a playlist of a million songs costs nothing up front,
+ * and each skip forwards costs the same however long the playlist.
+ *
+ * The songs already played are kept, in the order they were
+ * played, so that skipping backwards (and then forwards again)
+ * goes back over the same songs. Songs added to the queue join
+ * the songs still to be played, and songs removed from it are
+ * dropped from both.
+ *
+ * Every song's place is kept in a map as well, so that a
+ * removed song is found without searching. A song dropped from
+ * the songs played leaves an empty place, and the empty places
+ * are closed up in one pass once they make up half of the list.
+ *
+ * The ids are whatever the queue holds in each place, so
+ * an album queued as a whole is shuffled as a single id.
+ *
+ * The order is not thread safe, and is only
+ * used by the queue that owns it.
+ *
+ * @author Ben Silveston
+ */
+class ShuffleOrder {
+    /**
+     * The id returned when there is no song.
+     */
+    static final int NONE = -1;
+
+    /**
+     * Left in the songs played in
+     * place of a song that was removed.
+     */
+    private static final int REMOVED = -1;
+
+    private Random random;
+
+    /**
+     * The ids in the order the shuffle started from, shared
+     * with the queue until a song is removed from it.
+     */
+    private int[] pool;
+    private boolean poolShared;
+    private int poolSize;
+
+    /**
+     * The number of places of the pool already played. The places from
+     * here up to poolSize hold the songs still to be played.
+     */
+    private int drawn;
+
+    /**
+     * The ids that have been moved to a place still to be
+     * played, by place, in place of the id in the pool.
+     */
+    private IntIntHashMap moved;
+
+    /**
+     * The place of each id in moved, by id
+     * (see key()), kept in step with moved.
+     */
+    private IntIntHashMap movedPlaces;
+
+    /**
+     * The place in the pool of each id still to be played, by
+     * id (see key()), or null while the pool is shared. A place
+     * since taken by a moved id, or already played, is out of date.
+     */
+    private IntIntHashMap pooledPlaces;
+
+    private int[] history;
+    private int historySize;
+    private int historyGaps;
+
+    /**
+     * The place of each id in the songs
+     * played, by id (see key()).
+     */
+    private IntIntHashMap historyPlaces;
+    private int position;
+
+    /**
+     * Constructor
+     *
+     * This constructor will start a shuffle of a queue's songs
+     * with nothing yet playing. The ids are not copied.
+     *
+     * @param songIds The ids held by the queue
+     * @param size The number of ids held by the queue
+     * @param random The source of the random order
+     */
+    ShuffleOrder(int[] songIds, int size, Random random) {
+        this.random = random;
+        this.pool = songIds;
+        this.poolShared = true;
+        this.poolSize = size;
+        this.moved = new IntIntHashMap();
+        this.movedPlaces = new IntIntHashMap();
+        this.history = new int[16];
+        this.historyPlaces = new IntIntHashMap();
+        this.position = NONE;
+    }
+
+    /**
+     * Get the song that is
+     * currently playing.
+     *
+     * @return The id of the song, or NONE if nothing is playing
+     */
+    int current() {
+        return this.position == NONE ? NONE : this.history[this.position];
+    }
+
+    /**
+     * Move on to the next song, which is the next
+     * song already played if skipping back, or
+     * otherwise a new song chosen at random.
+     *
+     * @return The id of the song, or NONE if every song has been played
+     */
+    int next() {
+        for(int i = this.position + 1; i < this.historySize; i++) {
+            if(this.history[i] != REMOVED) {
+                this.position = i;
+                return this.history[i];
+            }
+        }
+        if(this.drawn == this.poolSize) {
+            return NONE;
+        }
+        int chosen = this.drawn + this.random.nextInt(this.poolSize - this.drawn);
+        int songId = idAt(chosen);
+        if(chosen != this.drawn) {
+            setMoved(chosen, idAt(this.drawn));
+        }
+        // The drawn place is never looked at again
+        clearMoved(this.drawn);
+        if(this.pooledPlaces != null) {
+            this.pooledPlaces.remove(key(songId));
+        }
+        this.drawn++;
+        if(this.historySize == this.history.length) {
+            this.history = Arrays.copyOf(this.history, this.historySize * 2);
+        }
+        this.historyPlaces.put(key(songId), this.historySize);
+        this.history[this.historySize++] = songId;
+        this.position = this.historySize - 1;
+        return songId;
+    }
+
+    /**
+     * Move back to the song
+     * played before this one.
+     *
+     * @return The id of the song, or NONE at the first song played
+     */
+    int previous() {
+        for(int i = this.position - 1; i >= 0; i--) {
+            if(this.history[i] != REMOVED) {
+                this.position = i;
+                return this.history[i];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Add a song that has been added
+     * to the queue to the songs still
+     * to be played.
+     *
+     * @param songId The id of the song
+     * @param songIds The ids now held by the queue, ending with songId
+     */
+    void add(int songId, int[] songIds) {
+        if(this.poolShared) {
+            // The queue may have moved its ids into a larger array
+            this.pool = songIds;
+        }
+        else {
+            if(this.poolSize == this.pool.length) {
+                this.pool = Arrays.copyOf(this.pool, Math.max(16, this.poolSize * 2));
+            }
+            this.pool[this.poolSize] = songId;
+            this.pooledPlaces.put(key(songId), this.poolSize);
+        }
+        clearMoved(this.poolSize);
+        this.poolSize++;
+    }
+
+    /**
+     * Drop a song that is about to
+     * be removed from the queue.
+     *
+     * If it is the song playing, the next song
+     * is played instead, or if there are none
+     * left, the one played before it.
+     *
+     * @param songId The id of the song
+     */
+    void remove(int songId) {
+        if(this.poolShared) {
+            unsharePool();
+        }
+        int place = placeOf(songId);
+        if(place != NONE) {
+            int last = this.poolSize - 1;
+            if(place != last) {
+                setMoved(place, idAt(last));
+            }
+            clearMoved(last);
+            this.pooledPlaces.remove(key(songId));
+            this.poolSize--;
+        }
+
+        int played = this.historyPlaces.get(key(songId), NONE);
+        if(played == NONE) {
+            return;
+        }
+        this.historyPlaces.remove(key(songId));
+        this.history[played] = REMOVED;
+        this.historyGaps++;
+        if(played == this.position) {
+            // The next song already played is played instead, or if this was
+            // the newest, another is chosen, or if none are left, the one before it
+            int after = this.position;
+            while(after < this.historySize && this.history[after] == REMOVED) {
+                after++;
+            }
+            if(after < this.historySize) {
+                this.position = after;
+            }
+            else {
+                while(this.position >= 0 && this.history[this.position] == REMOVED) {
+                    this.position--;
+                }
+                next();
+            }
+        }
+        if(this.historyGaps * 2 > this.historySize) {
+            closeHistoryGaps();
+        }
+    }
+
+    /**
+     * Take a copy of the pool, as the queue is about to
+     * move its ids, and note the place of each id still to
+     * be played so that they can be found when removed.
+     */
+    private void unsharePool() {
+        this.pool = Arrays.copyOf(this.pool, this.poolSize);
+        this.poolShared = false;
+        this.pooledPlaces = new IntIntHashMap();
+        for(int place = this.drawn; place < this.poolSize; place++) {
+            if(this.moved.get(place, NONE) == NONE) {
+                this.pooledPlaces.put(key(this.pool[place]), place);
+            }
+        }
+    }
+
+    /**
+     * Close up the empty places left in the songs
+     * played by removed songs, all in one pass.
+     */
+    private void closeHistoryGaps() {
+        int kept = 0;
+        int playing = this.position;
+        this.position = NONE;
+        for(int i = 0; i < this.historySize; i++) {
+            int songId = this.history[i];
+            if(songId != REMOVED) {
+                if(i == playing) {
+                    this.position = kept;
+                }
+                this.historyPlaces.put(key(songId), kept);
+                this.history[kept++] = songId;
+            }
+        }
+        this.historySize = kept;
+        this.historyGaps = 0;
+    }
+
+    /**
+     * Move an id to a place still to be played,
+     * in place of the id there before.
+     *
+     * @param place The place
+     * @param songId The id of the song
+     */
+    private void setMoved(int place, int songId) {
+        int replaced = this.moved.get(place, NONE);
+        if(replaced != NONE && this.movedPlaces.get(key(replaced), NONE) == place) {
+            this.movedPlaces.remove(key(replaced));
+        }
+        this.moved.put(place, songId);
+        this.movedPlaces.put(key(songId), place);
+    }
+
+    /**
+     * Forget the id moved to a place,
+     * if there is one.
+     *
+     * @param place The place
+     */
+    private void clearMoved(int place) {
+        int songId = this.moved.get(place, NONE);
+        if(songId == NONE) {
+            return;
+        }
+        this.moved.remove(place);
+        // The id may since have been moved on to another place
+        if(this.movedPlaces.get(key(songId), NONE) == place) {
+            this.movedPlaces.remove(key(songId));
+        }
+    }
+
+    /**
+     * Get the id at a place
+     * still to be played.
+     *
+     * @param place The place
+     * @return The id of the song
+     */
+    private int idAt(int place) {
+        return this.moved.get(place, this.pool[place]);
+    }
+
+    /**
+     * Find the place of a song
+     * that is still to be played.
+     *
+     * @param songId The id of the song
+     * @return The place, or NONE if the song has already been played
+     */
+    private int placeOf(int songId) {
+        int place = this.movedPlaces.get(key(songId), NONE);
+        if(place != NONE) {
+            return place;
+        }
+        place = this.pooledPlaces.get(key(songId), NONE);
+        if(place >= this.drawn && place < this.poolSize && this.pool[place] == songId
+                && this.moved.get(place, NONE) == NONE) {
+            return place;
+        }
+        return NONE;
+    }
+
+    /**
+     * Turn an id into a key for the maps of
+     * places, which cannot hold negative keys.
+     *
+     * Albums queued as a whole have negative ids,
+     * so these are given the odd keys and songs
+     * the even ones.
+     *
+     * @param songId The id of the song (or album)
+     * @return The key, which is not negative
+     */
+    private static int key(int songId) {
+        return (songId << 1) ^ (songId >> 31);
+    }
+}
@@ -1,6 +1,6 @@
 package Section6.LinkedListChallenge;
 
-import java.sql.Timestamp;
+import java.lang.invoke.VarHandle;
 
 /**
  * Java Programming Masterclass for Software Developers
@@ -11,13 +11,34 @@ import java.sql.Timestamp;
  * This class will represent a song that will be stored
  * in the playlist application.
  *
+ * Once a song is held by the library it is given an id,
+ * which playlists store in place of the song itself.
+ *
+ * The title and artist are kept as ids into the shared
+ * symbol table, so each distinct name is stored only once.
+ *
+ * The song's details are held as a row of the shared song
+ * store, so a Song object is only a light view of that row.
+ * Once the song has left the library and its album, and no
+ * queue holds it, the row is freed for another song, and the
+ * Song keeps a copy of its details to read from instead.
+ *
  * @author Ben Silveston
  */
 class Song {
-    private String title;
-    private String artist;
-    private int duration;
-    private Timestamp timestamp;
+    private final int row;
+
+    /**
+     * The copy of the song's details kept when its
+     * row was freed, or null while it has its row.
+     */
+    private volatile Details freedDetails;
+
+    /**
+     * The id of a song that the
+     * library has not given an id to yet.
+     */
+    static final int NO_ID = -1;
 
     /**
      * Constructor I
@@ -32,12 +53,10 @@ class Song {
      *
      * @param title The title of the song
      * @param duration The duration of the song
-     * @param timestamp The current timestamp when the song is added to the playlist
+     * @param addedTime The time the song is added, in epoch milliseconds, or SongStore.NO_TIME
      */
-    Song(String title, int duration, Timestamp timestamp) {
-        this.title = title;
-        this.duration = duration;
-        this.timestamp = timestamp;
+    Song(String title, int duration, long addedTime) {
+        this(SymbolTable.SHARED.intern(title), duration, SymbolTable.NONE, addedTime);
     }
 
     /**
@@ -52,13 +71,85 @@ class Song {
      *
      * @param title The title of the song
      * @param artist The artist of the song
-     * @param timestamp The current timestamp when the song is added to an album
+     * @param addedTime The time the song is added, in epoch milliseconds, or SongStore.NO_TIME
+     */
+    Song(String title, int duration, String artist, long addedTime) {
+        this(SymbolTable.SHARED.intern(title), duration, SymbolTable.SHARED.intern(artist), addedTime);
+    }
+
+    /**
+     * Constructor III
+     *
+     * This constructor will be used when the
+     * title and artist are already held in the
+     * shared symbol table, such as when loading
+     * a saved library.
+     *
+     * @param titleId The id of the title in the shared symbol table
+     * @param duration The duration of the song
+     * @param artistId The id of the artist, or SymbolTable.NONE if there is none
+     * @param addedTime The time the song is added, in epoch milliseconds, or SongStore.NO_TIME
+     */
+    Song(int titleId, int duration, int artistId, long addedTime) {
+        this.row = SongStore.SHARED.add(titleId, artistId, duration, addedTime);
+    }
+
+    /**
+     * Get the id given to the
+     * song by the library.
+     *
+     * @return The id, or NO_ID if the song has not been given one (or has given it up)
      */
-    Song(String title, int duration, String artist, Timestamp timestamp) {
-        this.title = title;
-        this.duration = duration;
-        this.artist = artist;
-        this.timestamp = timestamp;
+    int getId() {
+        int id = SongStore.SHARED.songId(this.row);
+        return freedDetails() == null ? id : NO_ID;
+    }
+
+    /**
+     * Set the id of the song.
+     *
+     * This is only done by the library, when it
+     * first holds the song, and again (to NO_ID) once
+     * the song has left the library and every queue.
+     *
+     * @param id The id, or NO_ID
+     */
+    void setId(int id) {
+        SongStore.SHARED.setSongId(this.row, id);
+    }
+
+    /**
+     * Get the row holding the song's
+     * details in the shared song store.
+     *
+     * @return The row
+     */
+    int getRow() {
+        return row;
+    }
+
+    /**
+     * Get the id of the title
+     * in the shared symbol table.
+     *
+     * @return The id of the title
+     */
+    int getTitleId() {
+        int titleId = SongStore.SHARED.titleId(this.row);
+        Details details = freedDetails();
+        return details == null ? titleId : details.titleId;
+    }
+
+    /**
+     * Get the id of the artist
+     * in the shared symbol table.
+     *
+     * @return The id of the artist, or SymbolTable.NONE if there is none
+     */
+    int getArtistId() {
+        int artistId = SongStore.SHARED.artistId(this.row);
+        Details details = freedDetails();
+        return details == null ? artistId : details.artistId;
     }
 
     /**
@@ -67,7 +158,7 @@ class Song {
      * @return The current title
      */
     String getTitle() {
-        return title;
+        return SymbolTable.SHARED.get(getTitleId());
     }
 
     /**
@@ -77,7 +168,7 @@ class Song {
      * @return The current name of the artist
      */
     String getArtist() {
-        return artist;
+        return SymbolTable.SHARED.get(getArtistId());
     }
 
     /**
@@ -86,21 +177,36 @@ class Song {
      * @return The current duration
      */
     int getDuration() {
-        return duration;
+        int duration = SongStore.SHARED.duration(this.row);
+        Details details = freedDetails();
+        return details == null ? duration : details.duration;
     }
 
     /**
-     * Get the timestamp representing
-     * the current time for the song.
+     * Get the time the song was added.
      *
      * This method will be used for ordering
      * all songs in chronological order for
      * the playlist.
      *
-     * @return The current time, represented as a timestamp
+     * @return The time in epoch milliseconds, or SongStore.NO_TIME if none was recorded
      */
-    Timestamp getTimestamp() {
-        return timestamp;
+    long getAddedTime() {
+        long addedTime = SongStore.SHARED.addedTime(this.row);
+        Details details = freedDetails();
+        return details == null ? addedTime : details.addedTime;
+    }
+
+    /**
+     * Get the id of the album
+     * the song was last added to.
+     *
+     * @return The id of the album, or SongStore.NO_ALBUM
+     */
+    int getAlbumId() {
+        int albumId = SongStore.SHARED.albumId(this.row);
+        Details details = freedDetails();
+        return details == null ? albumId : details.albumId;
     }
 
     /**
@@ -112,10 +218,70 @@ class Song {
      * @return The time in the above String format
      */
     String formatSongDuration(int duration) {
-        int minutes = duration / 60;
-        int seconds = duration % 60;
-        String formattedMinutes = String.format("%02d", minutes);
-        String formattedSeconds = String.format("%02d", seconds);
-        return formattedMinutes + ":" + formattedSeconds;
+        return DurationFormatter.formatSongDuration(duration);
+    }
+
+    /**
+     * Check whether the song's row
+     * has been freed.
+     *
+     * @return True if the row has been freed, false if the song still has it
+     */
+    boolean isFreed() {
+        return this.freedDetails != null;
+    }
+
+    /**
+     * Copy the song's details out of its row,
+     * just before the row is freed.
+     *
+     * This is only done by the song store.
+     */
+    void keepDetails() {
+        SongStore store = SongStore.SHARED;
+        this.freedDetails = new Details(store.titleId(this.row), store.artistId(this.row),
+                store.duration(this.row), store.addedTime(this.row), store.albumId(this.row));
+    }
+
+    /**
+     * Get the copy of the song's details kept
+     * when its row was freed, after reading
+     * a detail from the row.
+     *
+     * @return The copy, or null if the song still has its row, so the detail read is its own
+     */
+    private Details freedDetails() {
+        // The row is read first, so a row already handed to another song shows up here
+        VarHandle.acquireFence();
+        return this.freedDetails;
+    }
+
+    /**
+     * The details of a song whose
+     * row has been freed.
+     */
+    private static class Details {
+        private final int titleId;
+        private final int artistId;
+        private final int duration;
+        private final long addedTime;
+        private final int albumId;
+
+        /**
+         * Constructor
+         *
+         * @param titleId The id of the title in the shared symbol table
+         * @param artistId The id of the artist, or SymbolTable.NONE if there is none
+         * @param duration The duration of the song
+         * @param addedTime The time the song was added, in epoch milliseconds, or SongStore.NO_TIME
+         * @param albumId The id of the album, or SongStore.NO_ALBUM
+         */
+        Details(int titleId, int artistId, int duration, long addedTime, int albumId) {
+            this.titleId = titleId;
+            this.artistId = artistId;
+            this.duration = duration;
+            this.addedTime = addedTime;
+            this.albumId = albumId;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,441 @@
+package Section6.LinkedListChallenge;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will hold the details of every song
+ * as columns of primitive values, one row per song.
+ *
+ * Each detail (title, artist, duration, time added, album
+ * and library id) is kept in its own column, so a song costs
+ * 28 bytes of columns plus a small Song object that only holds
+ * its row number. Scanning one detail of many songs (such as
+ * adding up their durations) reads a single column from start
+ * to end, rather than following a pointer to each song.
+ *
+ * The rows are stored in chunks of 65,536, each chunk being
+ * one buffer laid out column by column. Where the buffers live
+ * is chosen by the playlist.songStore system property:
+ *  - heap: ordinary Java byte arrays (the default)
+ *  - direct: native memory outside the Java heap, so that
+ *    very large catalogues add nothing for the garbage
+ *    collector to copy
+ *  - mapped: a memory-mapped file (playlist.songStoreFile, or
+ *    a temporary file), so that the operating system can page
+ *    rows in and out rather than keeping them all in memory
+ *
+ * Rows are added under a lock, but can be read
+ * by any thread without one. The library frees a song's
+ * row (see free()) once the song has left the library and
+ * its album, and no queue holds it, and the row is then
+ * handed out again to the next song added. A copy of the
+ * song's details is kept by the Song as its row is freed, so
+ * a thread still holding the song (from a list of songs read
+ * earlier, say) goes on reading the right details.
+ *
+ * @author Ben Silveston
+ */
+class SongStore {
+    /**
+     * Where the chunks of rows are kept.
+     */
+    enum Backing {
+        HEAP, DIRECT, MAPPED
+    }
+
+    /**
+     * The album id of a song that is
+     * not in any album.
+     */
+    static final int NO_ALBUM = -1;
+
+    /**
+     * The time added of a song
+     * with no recorded time.
+     */
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * A place in a list of rows whose song has
+     * been removed, which is skipped over.
+     */
+    static final int NO_ROW = -1;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int ROW_MASK = CHUNK_ROWS - 1;
+    private static final int CHUNK_BYTES = CHUNK_ROWS * (5 * Integer.BYTES + Long.BYTES);
+
+    /**
+     * The store shared by every song.
+     */
+    static final SongStore SHARED = new SongStore(
+            Backing.valueOf(System.getProperty("playlist.songStore", "heap").toUpperCase(Locale.ROOT)),
+            System.getProperty("playlist.songStoreFile"));
+
+    private final Backing backing;
+    private FileChannel file;
+    private volatile Chunk[] chunks;
+
+    /**
+     * The number of rows handed out so far, including
+     * the free ones, so the next new row to use.
+     */
+    private int size;
+
+    /**
+     * The rows free to be handed out again, as a stack.
+     */
+    private int[] freeRows;
+    private int freeRowCount;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create an empty store.
+     *
+     * @param backing Where the rows are kept
+     * @param fileName The file to map for the MAPPED backing, or null for a temporary file
+     */
+    SongStore(Backing backing, String fileName) {
+        this.backing = backing;
+        this.chunks = new Chunk[0];
+        this.freeRows = new int[16];
+        if(backing == Backing.MAPPED) {
+            try {
+                Path path;
+                if(fileName == null) {
+                    path = Files.createTempFile("playlist-songs", ".store");
+                    path.toFile().deleteOnExit();
+                }
+                else {
+                    path = Paths.get(fileName);
+                }
+                // Rows left in the file by an earlier run are not reused,
+                // as the symbol ids they hold would no longer match
+                this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException("The song store file could not be opened", e);
+            }
+        }
+    }
+
+    /**
+     * Get where the rows are kept.
+     *
+     * @return The backing
+     */
+    Backing getBacking() {
+        return backing;
+    }
+
+    /**
+     * Get the number of rows
+     * in the store holding songs.
+     *
+     * @return The number of rows, not counting the free ones
+     */
+    synchronized int size() {
+        return size - freeRowCount;
+    }
+
+    /**
+     * Get the number of bytes set aside
+     * for rows, including the unused rows
+     * of the last chunk.
+     *
+     * @return The number of bytes
+     */
+    long capacityBytes() {
+        return (long) this.chunks.length * CHUNK_BYTES;
+    }
+
+    /**
+     * Add a row for a new song.
+     *
+     * A free row is used if there is one. Otherwise
+     * a new row is used, adding a chunk first if needed.
+     * Every column of the row is filled in before the row
+     * number is handed out. Chunks are never moved or copied,
+     * so readers holding the row always find it.
+     *
+     * @param titleId The id of the title in the shared symbol table
+     * @param artistId The id of the artist, or SymbolTable.NONE if there is none
+     * @param duration The duration of the song (in seconds)
+     * @param addedTime The time the song was added, in epoch milliseconds, or NO_TIME
+     * @return The row of the song
+     */
+    synchronized int add(int titleId, int artistId, int duration, long addedTime) {
+        int row = this.freeRowCount > 0 ? this.freeRows[--this.freeRowCount] : this.size++;
+        Chunk[] currentChunks = this.chunks;
+        if((row >>> CHUNK_SHIFT) == currentChunks.length) {
+            currentChunks = Arrays.copyOf(currentChunks, currentChunks.length + 1);
+            currentChunks[currentChunks.length - 1] = new Chunk(allocateChunk(currentChunks.length - 1));
+        }
+        Chunk chunk = currentChunks[row >>> CHUNK_SHIFT];
+        int index = row & ROW_MASK;
+        // A reader that sees the new details of a reused row also sees the copy kept by its old song
+        VarHandle.releaseFence();
+        chunk.titleIds.put(index, titleId);
+        chunk.artistIds.put(index, artistId);
+        chunk.durations.put(index, duration);
+        chunk.albumIds.put(index, NO_ALBUM);
+        chunk.songIds.put(index, Song.NO_ID);
+        chunk.addedTimes.put(index, addedTime);
+        this.chunks = currentChunks;
+        return row;
+    }
+
+    /**
+     * Free a song's row, so that it
+     * can be handed out again.
+     *
+     * This is called by the library once the song has
+     * left the library and its album, and no queue holds
+     * it. The song keeps a copy of its details first.
+     * Freeing a row that has already been freed does
+     * nothing, so a row is never handed out twice.
+     *
+     * @param song The song
+     */
+    synchronized void free(Song song) {
+        if(song.isFreed()) {
+            return;
+        }
+        song.keepDetails();
+        if(this.freeRowCount == this.freeRows.length) {
+            this.freeRows = Arrays.copyOf(this.freeRows, this.freeRowCount * 2);
+        }
+        this.freeRows[this.freeRowCount++] = song.getRow();
+    }
+
+    /**
+     * Set aside the memory for another
+     * chunk of rows outside the heap.
+     *
+     * @param chunkIndex The position of the chunk
+     * @return The memory for the chunk, or null for the HEAP backing
+     */
+    private ByteBuffer allocateChunk(int chunkIndex) {
+        switch(this.backing) {
+            case DIRECT:
+                return ByteBuffer.allocateDirect(CHUNK_BYTES);
+            case MAPPED:
+                try {
+                    return this.file.map(FileChannel.MapMode.READ_WRITE, (long) chunkIndex * CHUNK_BYTES,
+                            CHUNK_BYTES);
+                }
+                catch(IOException e) {
+                    throw new UncheckedIOException("The song store file could not be extended", e);
+                }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get the chunk holding a row.
+     *
+     * @param row The row
+     * @return The chunk
+     */
+    private Chunk chunk(int row) {
+        return this.chunks[row >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * Get the title id of a song.
+     *
+     * @param row The row of the song
+     * @return The id of the title in the shared symbol table
+     */
+    int titleId(int row) {
+        return chunk(row).titleIds.get(row & ROW_MASK);
+    }
+
+    /**
+     * Get the artist id of a song.
+     *
+     * @param row The row of the song
+     * @return The id of the artist, or SymbolTable.NONE if there is none
+     */
+    int artistId(int row) {
+        return chunk(row).artistIds.get(row & ROW_MASK);
+    }
+
+    /**
+     * Get the duration of a song.
+     *
+     * @param row The row of the song
+     * @return The duration (in seconds)
+     */
+    int duration(int row) {
+        return chunk(row).durations.get(row & ROW_MASK);
+    }
+
+    /**
+     * Get the time a song was added.
+     *
+     * @param row The row of the song
+     * @return The time in epoch milliseconds, or NO_TIME
+     */
+    long addedTime(int row) {
+        return chunk(row).addedTimes.get(row & ROW_MASK);
+    }
+
+    /**
+     * Get the album a song
+     * was last added to.
+     *
+     * @param row The row of the song
+     * @return The id of the album, or NO_ALBUM
+     */
+    int albumId(int row) {
+        return chunk(row).albumIds.get(row & ROW_MASK);
+    }
+
+    /**
+     * Set the album a song belongs to.
+     *
+     * @param row The row of the song
+     * @param albumId The id of the album, or NO_ALBUM
+     */
+    synchronized void setAlbumId(int row, int albumId) {
+        chunk(row).albumIds.put(row & ROW_MASK, albumId);
+    }
+
+    /**
+     * Get the id a library has
+     * given to a song.
+     *
+     * @param row The row of the song
+     * @return The id of the song, or Song.NO_ID
+     */
+    int songId(int row) {
+        return chunk(row).songIds.get(row & ROW_MASK);
+    }
+
+    /**
+     * Set the id a library has
+     * given to a song.
+     *
+     * @param row The row of the song
+     * @param songId The id of the song
+     */
+    synchronized void setSongId(int row, int songId) {
+        chunk(row).songIds.put(row & ROW_MASK, songId);
+    }
+
+    /**
+     * Add up the durations of
+     * a set of songs.
+     *
+     * @param rows The rows of the songs, any of which may be NO_ROW
+     * @param count The number of rows to use
+     * @return The total duration (in seconds)
+     */
+    long totalDuration(int[] rows, int count) {
+        Chunk[] currentChunks = this.chunks;
+        long total = 0;
+        // Library rows mostly run in order, so the same chunk is
+        // kept for as long as the rows stay inside it
+        int chunkIndex = -1;
+        IntBuffer durations = null;
+        int[] durationArray = null;
+        for(int i = 0; i < count; i++) {
+            int row = rows[i];
+            if(row == NO_ROW) {
+                continue;
+            }
+            if((row >>> CHUNK_SHIFT) != chunkIndex) {
+                chunkIndex = row >>> CHUNK_SHIFT;
+                durations = currentChunks[chunkIndex].durations;
+                // Heap columns are read straight from their arrays,
+                // which is much faster than going through the buffer
+                durationArray = durations.hasArray() ? durations.array() : null;
+            }
+            total += durationArray != null ? durationArray[row & ROW_MASK] : durations.get(row & ROW_MASK);
+        }
+        return total;
+    }
+
+    /**
+     * One chunk of rows, held as
+     * a buffer for each column.
+     */
+    private static class Chunk {
+        private final IntBuffer titleIds;
+        private final IntBuffer artistIds;
+        private final IntBuffer durations;
+        private final IntBuffer albumIds;
+        private final IntBuffer songIds;
+        private final LongBuffer addedTimes;
+
+        /**
+         * Constructor
+         *
+         * This constructor will lay the columns out
+         * one after another in the given memory, or
+         * give each column its own array if there is none.
+         *
+         * @param memory The memory for the chunk, or null to use the heap
+         */
+        Chunk(ByteBuffer memory) {
+            if(memory == null) {
+                this.titleIds = IntBuffer.allocate(CHUNK_ROWS);
+                this.artistIds = IntBuffer.allocate(CHUNK_ROWS);
+                this.durations = IntBuffer.allocate(CHUNK_ROWS);
+                this.albumIds = IntBuffer.allocate(CHUNK_ROWS);
+                this.songIds = IntBuffer.allocate(CHUNK_ROWS);
+                this.addedTimes = LongBuffer.allocate(CHUNK_ROWS);
+            }
+            else {
+                memory.order(ByteOrder.nativeOrder());
+                this.titleIds = column(memory, 0, Integer.BYTES).asIntBuffer();
+                this.artistIds = column(memory, 1, Integer.BYTES).asIntBuffer();
+                this.durations = column(memory, 2, Integer.BYTES).asIntBuffer();
+                this.albumIds = column(memory, 3, Integer.BYTES).asIntBuffer();
+                this.songIds = column(memory, 4, Integer.BYTES).asIntBuffer();
+                this.addedTimes = column(memory, 5, Long.BYTES).asLongBuffer();
+            }
+        }
+
+        /**
+         * Get the part of a chunk's
+         * memory holding one column.
+         *
+         * The long column comes last, so every
+         * column before it is CHUNK_ROWS ints long.
+         *
+         * @param memory The memory for the chunk
+         * @param column The position of the column
+         * @param width The number of bytes in each value of the column
+         * @return The memory for the column
+         */
+        private static ByteBuffer column(ByteBuffer memory, int column, int width) {
+            int start = column * CHUNK_ROWS * Integer.BYTES;
+            return memory.duplicate().position(start).limit(start + CHUNK_ROWS * width)
+                    .slice().order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package Section6.LinkedListChallenge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will map the ids of names in the
+ * symbol table to songs or albums.
+ *
+ * The keys are ints kept in one array using open addressing,
+ * with the items in a second array alongside them, so an entry
+ * costs two array slots rather than a map entry, a boxed key and
+ * the String of the name (which the symbol table already holds).
+ *
+ * Changes must be made by one thread at a time, but lookups
+ * can run on any thread without a lock. A removed key is marked
+ * rather than moved, so a lookup never misses a key that is still
+ * there, and the arrays are only replaced by new, filled copies.
+ *
+ * @author Ben Silveston
+ */
+class SymbolMap<T> {
+    private static final int EMPTY = -1;
+    private static final int REMOVED = -2;
+    private static final int MINIMUM_CAPACITY = 16;
+
+    /**
+     * The keys and items, replaced together
+     * so that a lookup always reads a matching pair.
+     */
+    private static class Table {
+        private final AtomicIntegerArray keys;
+        private final AtomicReferenceArray<Object> items;
+
+        /**
+         * Constructor
+         *
+         * @param keys The key in each slot, or EMPTY or REMOVED
+         * @param items The item in each slot
+         */
+        Table(int[] keys, Object[] items) {
+            this.keys = new AtomicIntegerArray(keys);
+            this.items = new AtomicReferenceArray<>(items);
+        }
+    }
+
+    private volatile Table table;
+    private int size;
+
+    /**
+     * The number of slots that have ever held
+     * a key, including the removed ones.
+     */
+    private int used;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create an empty map.
+     */
+    SymbolMap() {
+        int[] keys = new int[MINIMUM_CAPACITY];
+        Arrays.fill(keys, EMPTY);
+        this.table = new Table(keys, new Object[MINIMUM_CAPACITY]);
+    }
+
+    /**
+     * Get the item for a key.
+     *
+     * @param key The key, which may be SymbolTable.NONE
+     * @return The item, or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    T get(int key) {
+        if(key < 0) {
+            return null;
+        }
+        Table current = this.table;
+        int mask = current.keys.length() - 1;
+        for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int stored = current.keys.get(slot);
+            if(stored == key) {
+                // Null if the key was removed since it was read
+                return (T) current.items.get(slot);
+            }
+            if(stored == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Check whether a key is in the map.
+     *
+     * @param key The key, which may be SymbolTable.NONE
+     * @return True if the key is in the map, false otherwise
+     */
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Set the item for a key.
+     *
+     * @param key The key, which must not be negative
+     * @param item The item, which must not be null
+     */
+    void put(int key, T item) {
+        if(key < 0) {
+            throw new IllegalArgumentException("Negative keys cannot be stored: " + key);
+        }
+        Table current = this.table;
+        int mask = current.keys.length() - 1;
+        int slot = hash(key) & mask;
+        for(int stored = current.keys.get(slot); stored != EMPTY; stored = current.keys.get(slot)) {
+            if(stored == key) {
+                current.items.set(slot, item);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // The item is set before the key, so a lookup finding the key finds the item
+        current.items.set(slot, item);
+        current.keys.set(slot, key);
+        this.size++;
+        this.used++;
+        // Kept at most half used so that the runs of filled slots stay short
+        if(this.used * 2 > current.keys.length()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Remove a key from the map.
+     *
+     * @param key The key to remove
+     * @return True if the key was removed, false if it was not in the map
+     */
+    boolean remove(int key) {
+        if(key < 0) {
+            return false;
+        }
+        Table current = this.table;
+        int mask = current.keys.length() - 1;
+        for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int stored = current.keys.get(slot);
+            if(stored == key) {
+                current.keys.set(slot, REMOVED);
+                current.items.set(slot, null);
+                this.size--;
+                return true;
+            }
+            if(stored == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Copy the keys that are still in the map into
+     * new arrays, leaving the removed ones behind.
+     *
+     * The new arrays have room for at least as many
+     * keys again, so that the copy is not made often.
+     */
+    private void rebuild() {
+        Table current = this.table;
+        int capacity = MINIMUM_CAPACITY;
+        while(capacity < this.size * 4) {
+            capacity *= 2;
+        }
+        int[] keys = new int[capacity];
+        Object[] items = new Object[capacity];
+        Arrays.fill(keys, EMPTY);
+        int mask = capacity - 1;
+        for(int i = 0; i < current.keys.length(); i++) {
+            int key = current.keys.get(i);
+            if(key >= 0) {
+                int slot = hash(key) & mask;
+                while(keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                items[slot] = current.items.get(i);
+            }
+        }
+        this.table = new Table(keys, items);
+        this.used = this.size;
+    }
+
+    /**
+     * Spread the bits of a key so that
+     * consecutive keys do not fill
+     * consecutive slots.
+     *
+     * @param key The key
+     * @return The spread hash
+     */
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
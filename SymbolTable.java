@@ -0,0 +1,279 @@
+package Section6.LinkedListChallenge;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will store each distinct title and artist
+ * name once, handing out an int id for each.
+ *
+ * The text of every name is packed end to end into a
+ * single UTF-8 byte array (the arena), so a name costs its
+ * bytes plus a few ints rather than a String object and its
+ * own array. Songs and albums hold the ids and only turn them
+ * back into Strings when asked for their title or artist.
+ *
+ * Names are added under a lock, but can be read back
+ * (and looked up) by any thread without one. The table only
+ * grows, so an id stays valid for as long as the program runs.
+ *
+ * @author Ben Silveston
+ */
+class SymbolTable {
+    /**
+     * The id used for a missing (null) name.
+     */
+    static final int NONE = -1;
+
+    /**
+     * The table shared by every song and album.
+     */
+    static final SymbolTable SHARED = new SymbolTable();
+
+    private static final int EMPTY = -1;
+
+    private volatile byte[] arena;
+    private volatile int[] offsets;
+    private int[] hashes;
+    private volatile int[] slots;
+
+    /**
+     * The number of names, written after each new
+     * name's text and slot so that a lookup reading it
+     * first finds every name added before it.
+     */
+    private volatile int count;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create an empty table.
+     */
+    SymbolTable() {
+        this.arena = new byte[1024];
+        this.offsets = new int[65];
+        this.hashes = new int[64];
+        this.slots = new int[128];
+        Arrays.fill(this.slots, EMPTY);
+    }
+
+    /**
+     * Get the number of distinct
+     * names in the table.
+     *
+     * @return The number of names
+     */
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Get the number of bytes used
+     * by the text of every name.
+     *
+     * @return The number of bytes
+     */
+    synchronized int textBytes() {
+        return this.offsets[this.count];
+    }
+
+    /**
+     * Get the id of a name, adding
+     * it to the table if it is new.
+     *
+     * @param text The name, which may be null
+     * @return The id of the name, or NONE for null
+     */
+    int intern(String text) {
+        if(text == null) {
+            return NONE;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return intern(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Get the id of a name without
+     * adding it to the table.
+     *
+     * No lock is taken, so lookups can run alongside
+     * additions. A name being added while the lookup
+     * runs may or may not be found.
+     *
+     * @param text The name, which may be null
+     * @return The id of the name, or NONE if it is null or not in the table
+     */
+    int find(String text) {
+        if(text == null) {
+            return NONE;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int known = this.count;
+        int[] currentSlots = this.slots;
+        int[] currentOffsets = this.offsets;
+        byte[] currentArena = this.arena;
+        int mask = currentSlots.length - 1;
+        // The text is compared without the hashes, which are
+        // only safe to read while holding the lock
+        for(int slot = spread(hash(bytes, 0, bytes.length)) & mask; ; slot = (slot + 1) & mask) {
+            int id = currentSlots[slot];
+            if(id == EMPTY) {
+                return NONE;
+            }
+            if(id < known && Arrays.equals(currentArena, currentOffsets[id], currentOffsets[id + 1],
+                    bytes, 0, bytes.length)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Get the id of a name held as UTF-8 bytes,
+     * adding it to the table if it is new.
+     *
+     * No String is made, so names read from
+     * a file can be added straight from its bytes.
+     *
+     * @param bytes The bytes holding the name
+     * @param offset The position of the first byte of the name
+     * @param length The number of bytes in the name
+     * @return The id of the name
+     */
+    synchronized int intern(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        int mask = this.slots.length - 1;
+        int slot = spread(hash) & mask;
+        for(int id = this.slots[slot]; id != EMPTY; id = this.slots[slot]) {
+            if(this.hashes[id] == hash && Arrays.equals(this.arena, this.offsets[id], this.offsets[id + 1],
+                    bytes, offset, offset + length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(bytes, offset, length, hash, slot);
+    }
+
+    /**
+     * Add a new name to the arena.
+     *
+     * The arena and offsets are filled in before
+     * the id is handed out, and are only ever replaced
+     * by larger copies, so readers holding the id always
+     * find its text.
+     *
+     * @param bytes The bytes holding the name
+     * @param offset The position of the first byte of the name
+     * @param length The number of bytes in the name
+     * @param hash The hash code of the name
+     * @param slot The empty slot for the name's id
+     * @return The id of the name
+     */
+    private int add(byte[] bytes, int offset, int length, int hash, int slot) {
+        int id = this.count;
+        int start = this.offsets[id];
+        byte[] currentArena = this.arena;
+        if(start + length > currentArena.length) {
+            currentArena = Arrays.copyOf(currentArena, Math.max(start + length, currentArena.length * 2));
+        }
+        System.arraycopy(bytes, offset, currentArena, start, length);
+        int[] currentOffsets = this.offsets;
+        if(id + 2 > currentOffsets.length) {
+            currentOffsets = Arrays.copyOf(currentOffsets, currentOffsets.length * 2);
+            this.hashes = Arrays.copyOf(this.hashes, currentOffsets.length);
+        }
+        currentOffsets[id + 1] = start + length;
+        this.hashes[id] = hash;
+        this.arena = currentArena;
+        this.offsets = currentOffsets;
+
+        this.slots[slot] = id;
+        this.count++;
+        // Kept at most half full so that the runs of filled slots stay short
+        if(this.count * 2 > this.slots.length) {
+            resize(this.slots.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Get the name with a given id.
+     *
+     * @param id The id of the name
+     * @return The name, or null for NONE
+     */
+    String get(int id) {
+        if(id == NONE) {
+            return null;
+        }
+        int[] currentOffsets = this.offsets;
+        int start = currentOffsets[id];
+        return new String(this.arena, start, currentOffsets[id + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the UTF-8 bytes of the
+     * name with a given id.
+     *
+     * @param id The id of the name, which must not be NONE
+     * @return A copy of the bytes
+     */
+    byte[] getBytes(int id) {
+        int[] currentOffsets = this.offsets;
+        return Arrays.copyOfRange(this.arena, currentOffsets[id], currentOffsets[id + 1]);
+    }
+
+    /**
+     * Move every id into a
+     * new array of slots.
+     *
+     * @param capacity The number of slots, which must be a power of two
+     */
+    private void resize(int capacity) {
+        int[] newSlots = new int[capacity];
+        Arrays.fill(newSlots, EMPTY);
+        int mask = capacity - 1;
+        for(int id = 0; id < this.count; id++) {
+            int slot = spread(this.hashes[id]) & mask;
+            while(newSlots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = id;
+        }
+        // Only handed to lookups once every id is in place
+        this.slots = newSlots;
+    }
+
+    /**
+     * Work out the hash code of
+     * a name from its bytes.
+     *
+     * @param bytes The bytes holding the name
+     * @param offset The position of the first byte of the name
+     * @param length The number of bytes in the name
+     * @return The hash code
+     */
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for(int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Spread the bits of a hash code so that
+     * similar names do not fill neighbouring slots.
+     *
+     * @param hash The hash code
+     * @return The spread hash
+     */
+    private static int spread(int hash) {
+        int spread = hash * 0x9E3779B9;
+        return spread ^ (spread >>> 16);
+    }
+}
@@ -0,0 +1,84 @@
+package Section6.LinkedListChallenge;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will format the time a song or album
+ * was added (in epoch milliseconds) for display.
+ *
+ * Like DurationFormatter, the digits are written straight
+ * into a StringBuilder supplied by the caller, rather than
+ * going through a DateTimeFormatter, which would make listing
+ * a large library about twice as slow.
+ *
+ * @author Ben Silveston
+ */
+final class TimeFormatter {
+    private static final ZoneRules ZONE = ZoneId.systemDefault().getRules();
+
+    /**
+     * Constructor
+     *
+     * This class only provides static methods.
+     */
+    private TimeFormatter() {
+    }
+
+    /**
+     * Append a time in the format of
+     * "yyyy-mm-dd hh:mm:ss.fff", in the
+     * local time zone.
+     *
+     * @param builder The StringBuilder to append to
+     * @param time The time in epoch milliseconds, or SongStore.NO_TIME
+     * @return The same StringBuilder
+     */
+    static StringBuilder appendTime(StringBuilder builder, long time) {
+        if(time == SongStore.NO_TIME) {
+            return builder.append("Unknown");
+        }
+        long seconds = Math.floorDiv(time, 1000);
+        int millis = Math.floorMod(time, 1000);
+        LocalDateTime local = LocalDateTime.ofEpochSecond(seconds, 0,
+                ZONE.getOffset(Instant.ofEpochSecond(seconds)));
+        builder.append(local.getYear()).append('-');
+        appendTwoDigits(builder, local.getMonthValue()).append('-');
+        appendTwoDigits(builder, local.getDayOfMonth()).append(' ');
+        appendTwoDigits(builder, local.getHour()).append(':');
+        appendTwoDigits(builder, local.getMinute()).append(':');
+        appendTwoDigits(builder, local.getSecond()).append('.');
+        return builder.append((char) ('0' + millis / 100)).append((char) ('0' + millis / 10 % 10))
+                .append((char) ('0' + millis % 10));
+    }
+
+    /**
+     * Format a time as a String in
+     * the format of "yyyy-mm-dd hh:mm:ss.fff".
+     *
+     * @param time The time in epoch milliseconds, or SongStore.NO_TIME
+     * @return The formatted time
+     */
+    static String formatTime(long time) {
+        return appendTime(new StringBuilder(23), time).toString();
+    }
+
+    /**
+     * Append a number between 0 and 99
+     * as exactly two digits.
+     *
+     * @param builder The StringBuilder to append to
+     * @param value The number
+     * @return The same StringBuilder
+     */
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value) {
+        return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
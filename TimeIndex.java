@@ -0,0 +1,378 @@
+package Section6.LinkedListChallenge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will keep songs or albums in the order
+ * they were added, so that the most recently added
+ * items, or those added between two times, can be
+ * found without sorting.
+ *
+ * The items are kept in time order in a list of small
+ * blocks, each holding up to BLOCK_SIZE times in an array
+ * of longs next to an array of the items (a B-tree with a
+ * single level). Finding the place for a time is a binary
+ * search over the blocks and then within one block, and
+ * adding or removing an item only moves the rest of its
+ * block along. A full block is split in two, which is rare
+ * enough that moving the later blocks along costs next to
+ * nothing on average. The newest item is always the last
+ * item of the last block.
+ *
+ * Items with the same time are kept in the order they were
+ * added. Each item is given the next number of a sequence as
+ * it is added, which sits in an array of ints next to the times,
+ * and is also kept in a map by the item's key, so that an item
+ * is found for removal by a binary search on its time and
+ * sequence number, however many other items share its time.
+ *
+ * Items are nearly always added with the latest time,
+ * in which case they simply go on the end. Items without
+ * a recorded time (SongStore.NO_TIME) come before all others.
+ *
+ * The index is not thread safe, so the owner
+ * must lock around every call.
+ *
+ * @author Ben Silveston
+ */
+class TimeIndex<T> {
+    private static final int BLOCK_SIZE = 128;
+
+    /**
+     * A run of items in time order.
+     */
+    private static class Block {
+        private long[] times = new long[BLOCK_SIZE];
+        private int[] sequences = new int[BLOCK_SIZE];
+        private Object[] items = new Object[BLOCK_SIZE];
+        private int size;
+
+        /**
+         * Find the first position in the block whose time and
+         * sequence number are at or after a given time and number.
+         *
+         * @param time The time
+         * @param sequence The sequence number
+         * @return The position, or the size if there is none
+         */
+        int firstAtOrAfter(long time, int sequence) {
+            int low = 0;
+            int high = size;
+            while(low < high) {
+                int middle = (low + high) >>> 1;
+                if(before(times[middle], sequences[middle], time, sequence)) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Find the first position in the block whose time and
+         * sequence number are after a given time and number.
+         *
+         * @param time The time
+         * @param sequence The sequence number
+         * @return The position, or the size if there is none
+         */
+        int firstAfter(long time, int sequence) {
+            int low = 0;
+            int high = size;
+            while(low < high) {
+                int middle = (low + high) >>> 1;
+                if(before(time, sequence, times[middle], sequences[middle])) {
+                    high = middle;
+                }
+                else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    private List<Block> blocks;
+    private int size;
+    private final ToIntFunction<T> keyOf;
+
+    /**
+     * The sequence number of each item, by key.
+     */
+    private IntIntHashMap sequences;
+    private int nextSequence;
+
+    /**
+     * Constructor
+     *
+     * This constructor will create an empty index.
+     *
+     * @param keyOf Gets the key of an item, which must not be negative, must differ
+     *              from the keys of the other items in the index and must not change
+     *              while the item is in the index
+     */
+    TimeIndex(ToIntFunction<T> keyOf) {
+        this.blocks = new ArrayList<>();
+        this.keyOf = keyOf;
+        this.sequences = new IntIntHashMap();
+    }
+
+    /**
+     * Get the number of items
+     * in the index.
+     *
+     * @return The number of items
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add an item to the index.
+     *
+     * Items with the same time are kept
+     * in the order they were added.
+     *
+     * @param item The item
+     * @param time The time the item was added, in epoch milliseconds, or SongStore.NO_TIME
+     */
+    void add(T item, long time) {
+        if(this.blocks.isEmpty()) {
+            this.blocks.add(new Block());
+        }
+        if(this.nextSequence == Integer.MAX_VALUE) {
+            renumber();
+        }
+        int sequence = this.nextSequence++;
+        this.sequences.put(this.keyOf.applyAsInt(item), sequence);
+        // The block holding the first later time, or the last block
+        int blockIndex = blockAfter(time, sequence);
+        Block block = this.blocks.get(blockIndex);
+        if(block.size == BLOCK_SIZE) {
+            Block split = new Block();
+            int half = BLOCK_SIZE / 2;
+            System.arraycopy(block.times, half, split.times, 0, BLOCK_SIZE - half);
+            System.arraycopy(block.sequences, half, split.sequences, 0, BLOCK_SIZE - half);
+            System.arraycopy(block.items, half, split.items, 0, BLOCK_SIZE - half);
+            Arrays.fill(block.items, half, BLOCK_SIZE, null);
+            split.size = BLOCK_SIZE - half;
+            block.size = half;
+            this.blocks.add(blockIndex + 1, split);
+            if(!before(time, sequence, split.times[0], split.sequences[0])) {
+                block = split;
+            }
+        }
+        int position = block.firstAfter(time, sequence);
+        System.arraycopy(block.times, position, block.times, position + 1, block.size - position);
+        System.arraycopy(block.sequences, position, block.sequences, position + 1, block.size - position);
+        System.arraycopy(block.items, position, block.items, position + 1, block.size - position);
+        block.times[position] = time;
+        block.sequences[position] = sequence;
+        block.items[position] = item;
+        block.size++;
+        this.size++;
+    }
+
+    /**
+     * Remove an item from the index.
+     *
+     * @param item The item
+     * @param time The time the item was added with
+     * @return True if the item was removed, false if it was not in the index
+     */
+    boolean remove(T item, long time) {
+        int key = this.keyOf.applyAsInt(item);
+        int sequence = this.sequences.get(key, -1);
+        if(sequence < 0) {
+            return false;
+        }
+        int blockIndex = blockAtOrAfter(time, sequence);
+        if(blockIndex == this.blocks.size()) {
+            return false;
+        }
+        Block block = this.blocks.get(blockIndex);
+        int position = block.firstAtOrAfter(time, sequence);
+        if(position == block.size && blockIndex + 1 < this.blocks.size()) {
+            // The item starts the next block
+            block = this.blocks.get(++blockIndex);
+            position = 0;
+        }
+        if(position == block.size || block.times[position] != time || block.items[position] != item) {
+            return false;
+        }
+        System.arraycopy(block.times, position + 1, block.times, position, block.size - position - 1);
+        System.arraycopy(block.sequences, position + 1, block.sequences, position, block.size - position - 1);
+        System.arraycopy(block.items, position + 1, block.items, position, block.size - position - 1);
+        block.items[--block.size] = null;
+        if(block.size == 0) {
+            this.blocks.remove(blockIndex);
+        }
+        this.sequences.remove(key);
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Number the items again from zero, in order,
+     * once the sequence numbers have run out.
+     */
+    private void renumber() {
+        this.sequences = new IntIntHashMap();
+        int sequence = 0;
+        for(Block block : this.blocks) {
+            for(int position = 0; position < block.size; position++) {
+                block.sequences[position] = sequence;
+                this.sequences.put(this.keyOf.applyAsInt(item(block, position)), sequence++);
+            }
+        }
+        this.nextSequence = sequence;
+    }
+
+    /**
+     * Get the most recently added item.
+     *
+     * @return The item, or null if the index is empty
+     */
+    T newest() {
+        if(this.blocks.isEmpty()) {
+            return null;
+        }
+        Block last = this.blocks.get(this.blocks.size() - 1);
+        return item(last, last.size - 1);
+    }
+
+    /**
+     * Get the most recently added items.
+     *
+     * @param limit The greatest number of items
+     * @return The items, newest first
+     */
+    List<T> newest(int limit) {
+        int count = Math.max(0, Math.min(limit, this.size));
+        List<T> newest = new ArrayList<>(count);
+        for(int blockIndex = this.blocks.size() - 1; newest.size() < count; blockIndex--) {
+            Block block = this.blocks.get(blockIndex);
+            for(int position = block.size - 1; position >= 0 && newest.size() < count; position--) {
+                newest.add(item(block, position));
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Get the items added between two times.
+     *
+     * @param from The earliest time, in epoch milliseconds (inclusive)
+     * @param to The latest time, in epoch milliseconds (exclusive)
+     * @return The items, oldest first
+     */
+    List<T> between(long from, long to) {
+        List<T> between = new ArrayList<>();
+        for(int blockIndex = blockAtOrAfter(from, Integer.MIN_VALUE); blockIndex < this.blocks.size(); blockIndex++) {
+            Block block = this.blocks.get(blockIndex);
+            for(int position = block.firstAtOrAfter(from, Integer.MIN_VALUE); position < block.size; position++) {
+                if(block.times[position] >= to) {
+                    return between;
+                }
+                between.add(item(block, position));
+            }
+        }
+        return between;
+    }
+
+    /**
+     * Get every item, from the
+     * newest to the oldest.
+     *
+     * @return The items, newest first
+     */
+    List<T> newestFirst() {
+        return newest(this.size);
+    }
+
+    /**
+     * Get an item in a block.
+     *
+     * @param block The block
+     * @param position The position in the block
+     * @return The item
+     */
+    @SuppressWarnings("unchecked")
+    private T item(Block block, int position) {
+        return (T) block.items[position];
+    }
+
+    /**
+     * Check whether one time and sequence
+     * number come before another.
+     *
+     * @param time The first time
+     * @param sequence The first sequence number
+     * @param otherTime The second time
+     * @param otherSequence The second sequence number
+     * @return True if the first time is earlier, or the same with a lower sequence number
+     */
+    private static boolean before(long time, int sequence, long otherTime, int otherSequence) {
+        return time < otherTime || time == otherTime && sequence < otherSequence;
+    }
+
+    /**
+     * Find the first block that may hold a time and sequence
+     * number at or after a given time and number.
+     *
+     * @param time The time
+     * @param sequence The sequence number
+     * @return The index of the block, or the number of blocks if there is none
+     */
+    private int blockAtOrAfter(long time, int sequence) {
+        // The last block whose first time and sequence number are before the given ones
+        int low = 0;
+        int high = this.blocks.size();
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            Block block = this.blocks.get(middle);
+            if(before(block.times[0], block.sequences[0], time, sequence)) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return Math.max(0, low - 1);
+    }
+
+    /**
+     * Find the block a new item with a given
+     * time and sequence number should go in.
+     *
+     * @param time The time
+     * @param sequence The sequence number
+     * @return The index of the block
+     */
+    private int blockAfter(long time, int sequence) {
+        // The last block whose first time and sequence number are at or before the given ones
+        int low = 0;
+        int high = this.blocks.size();
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            Block block = this.blocks.get(middle);
+            if(!before(time, sequence, block.times[0], block.sequences[0])) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return Math.max(0, low - 1);
+    }
+}
@@ -0,0 +1,197 @@
+package Section6.LinkedListChallenge;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will check that the fuzzy title index
+ * finds exactly the titles that comparing the query
+ * with every title, one by one, would find.
+ *
+ * Catalogues are built where many titles share common
+ * words (such as "The "), where titles are random, and where
+ * titles repeat the same few letters, and queries with a
+ * few typos are run against each, before and after some
+ * of the titles are removed.
+ *
+ * Usage: FuzzyIndexTest [seed]
+ * The process exits with status 1 if any check fails.
+ *
+ * @author Ben Silveston
+ */
+public class FuzzyIndexTest {
+    private static final int LIMIT = 10;
+    private static final int QUERIES = 2_000;
+
+    /**
+     * The number of searches whose results
+     * did not match, and the first of them.
+     */
+    private static int failures;
+    private static String firstFailure;
+
+    /**
+     * Constructor
+     *
+     * This class only provides static methods.
+     */
+    private FuzzyIndexTest() {
+    }
+
+    /**
+     * Make a word of random letters
+     * from a small alphabet, so that
+     * titles often come close to each other.
+     *
+     * @param random The source of the letters
+     * @param length The length of the word
+     * @param letters The number of letters to choose from
+     * @return The word
+     */
+    private static String word(Random random, int length, int letters) {
+        StringBuilder word = new StringBuilder(length);
+        for(int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(letters)));
+        }
+        return word.toString();
+    }
+
+    /**
+     * Make a few random typos in a title.
+     *
+     * @param random The source of the typos
+     * @param title The title
+     * @return The mistyped title
+     */
+    private static String mistype(Random random, String title) {
+        StringBuilder typed = new StringBuilder(title);
+        int typos = random.nextInt(3);
+        for(int i = 0; i < typos && typed.length() > 1; i++) {
+            int at = random.nextInt(typed.length());
+            switch(random.nextInt(3)) {
+                case 0:
+                    typed.setCharAt(at, (char) ('a' + random.nextInt(6)));
+                    break;
+                case 1:
+                    typed.deleteCharAt(at);
+                    break;
+                default:
+                    typed.insert(at, (char) ('a' + random.nextInt(6)));
+                    break;
+            }
+        }
+        return typed.toString();
+    }
+
+    /**
+     * Find the closest titles to a query
+     * by comparing it with every title.
+     *
+     * @param titles The titles in the index
+     * @param query The query
+     * @return The closest titles, closest first, then in alphabetical order
+     */
+    private static List<String> bruteForce(List<String> titles, String query) {
+        String key = query.trim().toLowerCase(Locale.ROOT);
+        int maxDistance = FuzzyIndex.maxDistance(key);
+        List<String> matches = new ArrayList<>();
+        for(String title : titles) {
+            if(FuzzyIndex.editDistance(key, title.toLowerCase(Locale.ROOT), maxDistance) <= maxDistance) {
+                matches.add(title);
+            }
+        }
+        matches.sort(Comparator.<String>comparingInt(title -> FuzzyIndex.editDistance(key,
+                title.toLowerCase(Locale.ROOT), maxDistance)).thenComparing(title -> title.toLowerCase(Locale.ROOT)));
+        return matches.subList(0, Math.min(LIMIT, matches.size()));
+    }
+
+    /**
+     * Run queries against a catalogue, checking the
+     * index against comparing every title.
+     *
+     * @param name The name of the catalogue
+     * @param titles The titles, all different
+     * @param random The source of the queries
+     */
+    private static void check(String name, List<String> titles, Random random) {
+        FuzzyIndex<String> index = new FuzzyIndex<>();
+        for(String title : titles) {
+            index.add(title, title);
+        }
+        List<String> held = new ArrayList<>(titles);
+        for(int round = 0; round < 2; round++) {
+            int failedBefore = failures;
+            for(int i = 0; i < QUERIES; i++) {
+                String query = mistype(random, titles.get(random.nextInt(titles.size())));
+                List<String> expected = bruteForce(held, query);
+                List<String> found = index.search(query, LIMIT);
+                if(!found.equals(expected)) {
+                    failures++;
+                    if(firstFailure == null) {
+                        firstFailure = name + ": '" + query + "' found " + found + ", expected " + expected;
+                    }
+                }
+            }
+            System.out.printf("%-40s %,8d titles %,6d queries %,6d wrong%n",
+                    name + (round == 0 ? "" : ", after removals"), held.size(), QUERIES, failures - failedBefore);
+            // Remove every third title, so that the index is rebuilt
+            for(int i = 0; i < titles.size(); i += 3) {
+                index.remove(titles.get(i));
+                held.remove(titles.get(i));
+            }
+        }
+    }
+
+    /**
+     * Build a list of distinct titles.
+     *
+     * @param count The number of titles wanted
+     * @param prefix The text every title starts with
+     * @param random The source of the titles
+     * @param minLength The shortest random part
+     * @param maxLength The longest random part
+     * @param letters The number of letters to choose from
+     * @return The titles
+     */
+    private static List<String> titles(int count, String prefix, Random random, int minLength, int maxLength,
+            int letters) {
+        List<String> titles = new ArrayList<>(count);
+        Set<String> seen = new HashSet<>();
+        while(titles.size() < count) {
+            String title = prefix + word(random, minLength + random.nextInt(maxLength - minLength + 1), letters);
+            if(seen.add(title)) {
+                titles.add(title);
+            }
+        }
+        return titles;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args The seed of the random titles and queries (optional)
+     */
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+        Random random = new Random(seed);
+        check("Shared prefix (\"the \")", titles(400, "the ", random, 2, 5, 6), random);
+        check("Shared prefix, larger", titles(5_000, "The ", random, 3, 8, 8), random);
+        check("Random titles", titles(5_000, "", random, 3, 12, 26), random);
+        check("Few letters", titles(2_000, "", random, 1, 9, 3), random);
+        if(failures > 0) {
+            System.out.println("FAILED: " + failures + " searches, first " + firstFailure);
+            System.exit(1);
+        }
+        System.out.println("Every search matched comparing the query with every title.");
+    }
+}
@@ -0,0 +1,261 @@
+package Section6.LinkedListChallenge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will check that one library can be read
+ * by many threads while another thread keeps changing it,
+ * and measure how lookups scale with the number of readers.
+ *
+ * Each reader looks songs up by title (and by title and artist),
+ * and checks that whatever it finds is whole: the song found has
+ * the title, artist and duration it was added with, and the library
+ * hands back the same song for its id. Readers also check that the
+ * lists of songs hold no empty places. Meanwhile a writer adds and
+ * removes songs, one at a time and in batches, so that the lists
+ * are closed up and the indexes change under the readers.
+ *
+ * The test is then repeated with 1, 2, 4 and so on readers up
+ * to the number of cores, printing the lookups per second for each,
+ * which should grow in line with the number of readers.
+ *
+ * Usage: LibraryStressTest [songs] [seconds per run]
+ * The process exits with status 1 if any check fails.
+ *
+ * @author Ben Silveston
+ */
+public class LibraryStressTest {
+    private static final int DEFAULT_SONGS = 100_000;
+    private static final int DEFAULT_SECONDS = 3;
+    private static final int WRITER_TITLES = 1_000;
+
+    /**
+     * The first check to fail, if any.
+     */
+    private static final AtomicReference<String> failure = new AtomicReference<>();
+
+    /**
+     * Constructor
+     *
+     * This class only provides static methods.
+     */
+    private LibraryStressTest() {
+    }
+
+    /**
+     * Build the title of a song
+     * added by the writer.
+     *
+     * @param index The number of the song
+     * @return The song title
+     */
+    private static String writerTitle(int index) {
+        return "Extra " + index;
+    }
+
+    /**
+     * Work out the duration a song
+     * is given, from its title.
+     *
+     * @param index The position (or for the writer's songs, the number) of the song
+     * @return The duration (in seconds)
+     */
+    private static int duration(int index) {
+        return 60 + index % 300;
+    }
+
+    /**
+     * Record a failed check, keeping
+     * only the first one.
+     *
+     * @param message What was found
+     */
+    private static void fail(String message) {
+        failure.compareAndSet(null, message);
+    }
+
+    /**
+     * Check that a song found by title is the
+     * song that was added with that title.
+     *
+     * @param library The library
+     * @param song The song found, or null
+     * @param title The title looked up
+     * @param artist The artist the song was added with
+     * @param duration The duration the song was added with
+     */
+    private static void checkSong(Library library, Song song, String title, String artist, int duration) {
+        if(song == null) {
+            return;
+        }
+        if(!title.equalsIgnoreCase(song.getTitle()) || !artist.equals(song.getArtist())
+                || song.getDuration() != duration) {
+            fail("Looking up '" + title + "' found '" + song.getTitle() + "' by " + song.getArtist()
+                    + " (" + song.getDuration() + "s)");
+        }
+        int id = song.getId();
+        // A song removed since it was found may have given up its id, so the id is read again
+        if(id != Song.NO_ID && library.songById(id) != song && song.getId() == id) {
+            Song other = library.songById(id);
+            fail("Song '" + title + "' has id " + id + ", which belongs to '"
+                    + (other == null ? null : other.getTitle()) + "'");
+        }
+    }
+
+    /**
+     * Keep adding and removing the writer's
+     * songs until asked to stop.
+     *
+     * @param library The library
+     * @param running Cleared when the writer should stop
+     * @return The writer thread, already started
+     */
+    private static Thread startWriter(Library library, AtomicBoolean running) {
+        Thread writer = new Thread(() -> {
+            String[] titles = new String[10];
+            String[] artists = new String[titles.length];
+            int[] durations = new int[titles.length];
+            for(int round = 0; running.get(); round++) {
+                int index = round % WRITER_TITLES;
+                if(round % 100 < 50) {
+                    if(!library.addSongToLibrary(writerTitle(index), "Writer", duration(index))) {
+                        library.removeSongFromLibrary(writerTitle(index));
+                    }
+                }
+                else {
+                    // A batch of neighbouring titles, so whole runs come and go at once
+                    for(int i = 0; i < titles.length; i++) {
+                        int batchIndex = (index + i) % WRITER_TITLES;
+                        titles[i] = writerTitle(batchIndex);
+                        artists[i] = "Writer";
+                        durations[i] = duration(batchIndex);
+                    }
+                    if(round % 2 == 0) {
+                        library.addSongsToLibrary(titles, artists, durations);
+                    }
+                    else {
+                        library.removeSongsFromLibrary(titles);
+                    }
+                }
+            }
+        }, "stress-writer");
+        writer.start();
+        return writer;
+    }
+
+    /**
+     * Run a number of readers against the library
+     * for a while, checking every song they find.
+     *
+     * @param library The library
+     * @param songs The number of songs the library was filled with
+     * @param readers The number of reading threads
+     * @param withWriter True to also change the library from another thread
+     * @param millis How long to run for, in milliseconds
+     * @return The lookups made per second
+     */
+    private static double run(Library library, int songs, int readers, boolean withWriter, long millis) {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder lookups = new LongAdder();
+        List<Thread> threads = new ArrayList<>(readers);
+        for(int t = 0; t < readers; t++) {
+            int offset = t * 7_919;
+            Thread reader = new Thread(() -> {
+                try {
+                    start.await();
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long made = 0;
+                for(int i = 0; running.get(); i++) {
+                    int index = (i + offset) % songs;
+                    String title = PlaylistBenchmark.songTitle(index);
+                    String artist = PlaylistBenchmark.songArtist(index);
+                    Song song = library.findSong(title);
+                    if(song == null) {
+                        fail("Song '" + title + "' went missing");
+                    }
+                    checkSong(library, song, title, artist, duration(index));
+                    checkSong(library, library.findSong(title, artist), title, artist, duration(index));
+                    int writerIndex = i % WRITER_TITLES;
+                    checkSong(library, library.findSong(writerTitle(writerIndex)), writerTitle(writerIndex),
+                            "Writer", duration(writerIndex));
+                    made += 3;
+                    if(i % 10_000 == 0) {
+                        List<Song> listed = library.getSongsInLibrary();
+                        if(listed.size() < songs || listed.contains(null)) {
+                            fail("The list of songs has " + listed.size() + " songs, or an empty place");
+                        }
+                    }
+                }
+                lookups.add(made);
+            }, "stress-reader-" + t);
+            reader.start();
+            threads.add(reader);
+        }
+        Thread writer = withWriter ? startWriter(library, running) : null;
+        long started = System.nanoTime();
+        start.countDown();
+        try {
+            Thread.sleep(millis);
+            running.set(false);
+            for(Thread reader : threads) {
+                reader.join();
+            }
+            if(writer != null) {
+                writer.join();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return lookups.sum() / ((System.nanoTime() - started) / 1_000_000_000.0);
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args The number of songs and the seconds per run (both optional)
+     */
+    public static void main(String[] args) {
+        int songs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SONGS;
+        long millis = (args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS) * 1000L;
+        Library library = new Library(new ArrayList<>(songs), new ArrayList<>());
+        for(int i = 0; i < songs; i++) {
+            library.addSongToLibrary(PlaylistBenchmark.songTitle(i), PlaylistBenchmark.songArtist(i), duration(i));
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%-30s %,12d songs, %d cores%n", "Library stress test", songs, cores);
+        double single = 0;
+        for(int readers = 1; readers <= Math.max(2, cores); readers *= 2) {
+            for(boolean withWriter : new boolean[] {false, true}) {
+                double perSecond = run(library, songs, readers, withWriter, millis);
+                if(readers == 1 && !withWriter) {
+                    single = perSecond;
+                }
+                System.out.printf("%-30s %,16.0f lookups/sec %8.2fx%n",
+                        readers + (readers == 1 ? " reader" : " readers") + (withWriter ? " + writer" : ""),
+                        perSecond, perSecond / single);
+            }
+        }
+        String failed = failure.get();
+        if(failed != null) {
+            System.out.println("FAILED: " + failed);
+            System.exit(1);
+        }
+        System.out.println("Every lookup found a whole, consistent song.");
+    }
+}
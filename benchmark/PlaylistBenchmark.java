@@ -0,0 +1,1009 @@
+package Section6.LinkedListChallenge;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Java Programming Masterclass for Software Developers
+ *
+ * Section 6: Arrays, Java in-built lists, autoboxing
+ * and unboxing
+ *
+ * This class will measure the hot paths of the
+ * library and the playlist at several catalogue sizes,
+ * giving a baseline to compare against whenever the
+ * data structures behind them change.
+ *
+ * Each benchmark is warmed up first so that the JIT compiler
+ * has settled, then timed over several rounds. A fresh
+ * fixture is built before every round and is not included
+ * in the timings.
+ *
+ * Each benchmark is run at each size in a JVM of its own (started
+ * with the same class path and JVM options as this one), so that the
+ * code compiled and the garbage left behind by one benchmark cannot
+ * change the timings of the next. Setting the playlist.benchmark.fork
+ * system property to false runs them all in this JVM instead.
+ *
+ * The harness lives in its own source folder, apart from the
+ * application, so that it is not built into the application itself.
+ *
+ * Usage: PlaylistBenchmark [size ...] [name ...]
+ * Sizes default to 1,000, 100,000 and 1,000,000 items. Any
+ * non-numeric argument only runs the benchmarks whose names contain it.
+ * A report of the heap used per song is printed first.
+ *
+ * @author Ben Silveston
+ */
+public class PlaylistBenchmark {
+    private static final int[] DEFAULT_SIZES = {1_000, 100_000, 1_000_000};
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    /**
+     * The first argument given to a forked JVM, followed
+     * by the name of the benchmark and the size to measure.
+     */
+    private static final String FORKED = "--forked";
+
+    /**
+     * Results are written here so that
+     * the JIT compiler cannot remove the
+     * work being measured.
+     */
+    private static volatile long sink;
+
+    /**
+     * A single benchmark, measured
+     * at a given number of items.
+     */
+    private abstract static class Benchmark {
+        private final String name;
+
+        /**
+         * Constructor
+         *
+         * @param name The name reported for the benchmark
+         */
+        Benchmark(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Build the fixture for one round.
+         *
+         * @param size The number of items
+         */
+        abstract void setUp(int size);
+
+        /**
+         * Run one timed round.
+         *
+         * @param size The number of items
+         * @return The number of operations performed
+         */
+        abstract long run(int size);
+    }
+
+    /**
+     * Build the title of a generated song.
+     *
+     * @param index The position of the song
+     * @return The song title
+     */
+    static String songTitle(int index) {
+        return "Song " + index;
+    }
+
+    /**
+     * Build the artist of a generated song,
+     * so that each artist has many songs.
+     *
+     * @param index The position of the song
+     * @return The artist name
+     */
+    static String songArtist(int index) {
+        return "Artist " + (index % 1_000);
+    }
+
+    /**
+     * Create a library containing
+     * a number of generated songs.
+     *
+     * @param size The number of songs
+     * @return The new library
+     */
+    static Library createLibrary(int size) {
+        Library library = new Library(new ArrayList<>(size), new ArrayList<>());
+        for(int i = 0; i < size; i++) {
+            library.addSongToLibrary(songTitle(i), songArtist(i), 60 + i % 300);
+        }
+        return library;
+    }
+
+    /**
+     * Create a playlist containing every
+     * song from a generated library.
+     *
+     * @param size The number of songs
+     * @return The new playlist
+     */
+    static Playlist createPlaylist(int size) {
+        Library library = createLibrary(size);
+        Playlist playlist = new Playlist(library, new ArrayList<>(), new PlaybackQueue(library));
+        for(int i = 0; i < size; i++) {
+            playlist.addSongToPlaylist(songTitle(i));
+        }
+        return playlist;
+    }
+
+    /**
+     * Create a benchmark of many threads looking
+     * up songs in one shared library at once.
+     *
+     * Each thread performs as many lookups as there are
+     * songs, so with enough cores the operations per second
+     * should grow in line with the number of threads.
+     *
+     * @param threads The number of reading threads
+     * @param withWriter True to also add and remove songs from another thread
+     * @return The benchmark
+     */
+    private static Benchmark concurrentLookups(int threads, boolean withWriter) {
+        String name = "Library lookups, " + threads + (threads == 1 ? " thread" : " threads")
+                + (withWriter ? " + writer" : "");
+        return new Benchmark(name) {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = createLibrary(size);
+            }
+
+            @Override
+            long run(int size) {
+                AtomicBoolean running = new AtomicBoolean(true);
+                Thread writer = !withWriter ? null : new Thread(() -> {
+                    for(int i = 0; running.get(); i++) {
+                        String title = "Extra " + (i % 1_000);
+                        if(!library.addSongToLibrary(title, "Writer", 180)) {
+                            library.removeSongFromLibrary(title);
+                        }
+                    }
+                });
+                CountDownLatch start = new CountDownLatch(1);
+                LongAdder found = new LongAdder();
+                List<Thread> readers = new ArrayList<>(threads);
+                for(int t = 0; t < threads; t++) {
+                    int offset = t * 7_919;
+                    Thread reader = new Thread(() -> {
+                        try {
+                            start.await();
+                        }
+                        catch(InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        long hits = 0;
+                        for(int i = 0; i < size; i++) {
+                            if(library.findSong(songTitle((i + offset) % size)) != null) {
+                                hits++;
+                            }
+                        }
+                        found.add(hits);
+                    });
+                    reader.start();
+                    readers.add(reader);
+                }
+                if(writer != null) {
+                    writer.start();
+                }
+                start.countDown();
+                try {
+                    for(Thread reader : readers) {
+                        reader.join();
+                    }
+                    running.set(false);
+                    if(writer != null) {
+                        writer.join();
+                    }
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sink = found.sum();
+                return (long) threads * size;
+            }
+        };
+    }
+
+    /**
+     * Create a benchmark of many clients sending
+     * requests to the HTTP server at once, each
+     * adding songs to its own user's playlist.
+     *
+     * The server is started before each round and
+     * stopped at the end of it.
+     *
+     * @param clients The number of clients sending requests
+     * @return The benchmark
+     */
+    private static Benchmark serverRequests(int clients) {
+        int requestsPerClient = 200;
+        return new Benchmark("PlaylistServer requests, " + clients + " clients") {
+            private PlaylistServer server;
+            private int port;
+
+            @Override
+            void setUp(int size) {
+                server = new PlaylistServer(new PlaylistRegistry(createLibrary(size)));
+                try {
+                    port = server.start(0);
+                }
+                catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            long run(int size) {
+                HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+                CountDownLatch start = new CountDownLatch(1);
+                LongAdder succeeded = new LongAdder();
+                List<Thread> senders = new ArrayList<>(clients);
+                for(int c = 0; c < clients; c++) {
+                    String user = "user" + c;
+                    int offset = c * 7_919;
+                    Thread sender = new Thread(() -> {
+                        try {
+                            start.await();
+                            for(int i = 0; i < requestsPerClient; i++) {
+                                URI uri = URI.create("http://localhost:" + port + "/playlist/songs?user=" + user
+                                        + "&playlist=favourites&title=" + songTitle((i + offset) % size).replace(" ", "%20"));
+                                HttpRequest request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build();
+                                if(client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() == 200) {
+                                    succeeded.increment();
+                                }
+                            }
+                        }
+                        catch(IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        catch(InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    sender.start();
+                    senders.add(sender);
+                }
+                start.countDown();
+                try {
+                    for(Thread sender : senders) {
+                        sender.join();
+                    }
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    server.stop();
+                }
+                sink = succeeded.sum();
+                return (long) clients * requestsPerClient;
+            }
+        };
+    }
+
+    /**
+     * Get all the benchmarks to be run.
+     *
+     * @return The benchmarks
+     */
+    private static List<Benchmark> benchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.add(new Benchmark("Library.addSongToLibrary") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = new Library(new ArrayList<>(size), new ArrayList<>());
+            }
+
+            @Override
+            long run(int size) {
+                for(int i = 0; i < size; i++) {
+                    library.addSongToLibrary(songTitle(i), songArtist(i), 180);
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("Library.addSongsToLibrary (batches of 10000)") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = new Library(new ArrayList<>(size), new ArrayList<>());
+            }
+
+            @Override
+            long run(int size) {
+                for(int start = 0; start < size; start += 10_000) {
+                    int count = Math.min(10_000, size - start);
+                    String[] titles = new String[count];
+                    String[] artists = new String[count];
+                    int[] durations = new int[count];
+                    for(int i = 0; i < count; i++) {
+                        titles[i] = songTitle(start + i);
+                        artists[i] = songArtist(start + i);
+                        durations[i] = 180;
+                    }
+                    library.addSongsToLibrary(titles, artists, durations);
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("Library.songExistsInLibrary") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = createLibrary(size);
+            }
+
+            @Override
+            long run(int size) {
+                long found = 0;
+                for(int i = 0; i < size; i++) {
+                    // Every other lookup misses
+                    if(library.songExistsInLibrary(songTitle(i * 2))) {
+                        found++;
+                    }
+                }
+                sink = found;
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("Library.removeSongFromLibrary") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = createLibrary(size);
+            }
+
+            @Override
+            long run(int size) {
+                // From the front, the worst case if later songs had to move along
+                for(int i = 0; i < size; i++) {
+                    library.removeSongFromLibrary(songTitle(i));
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("Library.removeSongsFromLibrary (batches of 10000)") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = createLibrary(size);
+            }
+
+            @Override
+            long run(int size) {
+                // Every other song, spread over the whole list
+                for(int start = 0; start < size; start += 20_000) {
+                    int count = Math.min(10_000, (size - start + 1) / 2);
+                    String[] titles = new String[count];
+                    for(int i = 0; i < count; i++) {
+                        titles[i] = songTitle(start + i * 2);
+                    }
+                    library.removeSongsFromLibrary(titles);
+                }
+                return (size + 1) / 2;
+            }
+        });
+        benchmarks.add(new Benchmark("Library.findSongsLike (1 typo)") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = createLibrary(size);
+            }
+
+            @Override
+            long run(int size) {
+                long found = 0;
+                int queries = 1_000;
+                for(int i = 0; i < queries; i++) {
+                    // Swap two letters of the title, e.g. "Sogn 1234"
+                    String title = songTitle(i * 7919 % size);
+                    String typo = title.charAt(0) + title.substring(2, 3) + title.charAt(1) + title.substring(3);
+                    found += library.findSongsLike(typo, 3).size();
+                }
+                sink = found;
+                return queries;
+            }
+        });
+        int cores = Runtime.getRuntime().availableProcessors();
+        for(int threads = 1; threads <= Math.max(2, cores); threads *= 2) {
+            benchmarks.add(concurrentLookups(threads, false));
+        }
+        benchmarks.add(concurrentLookups(Math.max(2, cores), true));
+        benchmarks.add(serverRequests(1));
+        benchmarks.add(serverRequests(32));
+        benchmarks.add(new Benchmark("Library.getTotalDuration (full scan)") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = createLibrary(size);
+            }
+
+            @Override
+            long run(int size) {
+                long total = 0;
+                for(int i = 0; i < 10; i++) {
+                    total += library.getTotalDuration();
+                }
+                sink = total;
+                return 10L * size;
+            }
+        });
+        benchmarks.add(new Benchmark("Library recently added and date range") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                // One song a second, so that every song has its own time
+                long[] time = {0};
+                library = new Library(new ArrayList<>(size), new ArrayList<>());
+                library.setClock(() -> time[0] += 1000);
+                for(int i = 0; i < size; i++) {
+                    library.addSongToLibrary(songTitle(i), songArtist(i), 60 + i % 300);
+                }
+                library.setClock(null);
+            }
+
+            @Override
+            long run(int size) {
+                long total = 0;
+                for(int i = 0; i < 1000; i++) {
+                    long from = (long) (i * 7919 % size) * 1000;
+                    total += library.getRecentlyAddedSongs(20).size();
+                    total += library.getSongsAddedBetween(from, from + 20_000).size();
+                }
+                sink = total;
+                return 2000;
+            }
+        });
+        benchmarks.add(new Benchmark("Album.calculateAlbumDuration") {
+            private Album album;
+
+            @Override
+            void setUp(int size) {
+                album = new Album("Box Set", "Artist", SongStore.NO_TIME);
+                for(int i = 0; i < size; i++) {
+                    album.addSong(new Song(songTitle(i), 60 + i % 300, SongStore.NO_TIME));
+                }
+            }
+
+            @Override
+            long run(int size) {
+                long total = 0;
+                for(int i = 0; i < 100; i++) {
+                    total += album.calculateAlbumDuration();
+                }
+                sink = total;
+                return 100;
+            }
+        });
+        benchmarks.add(new Benchmark("Playlist.addSongToPlaylist") {
+            private Playlist playlist;
+
+            @Override
+            void setUp(int size) {
+                Library library = createLibrary(size);
+                playlist = new Playlist(library, new ArrayList<>(), new PlaybackQueue(library));
+            }
+
+            @Override
+            long run(int size) {
+                for(int i = 0; i < size; i++) {
+                    playlist.addSongToPlaylist(songTitle(i));
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("Playlist.removeSongFromPlaylist") {
+            private Playlist playlist;
+
+            @Override
+            void setUp(int size) {
+                playlist = createPlaylist(size);
+                playlist.play();
+            }
+
+            @Override
+            long run(int size) {
+                // From the front, where the song playing is
+                for(int i = 0; i < size; i++) {
+                    playlist.removeSongFromPlaylist(songTitle(i));
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("Playlist.addSongsToPlaylist (batches of 10000)") {
+            private Playlist playlist;
+
+            @Override
+            void setUp(int size) {
+                Library library = createLibrary(size);
+                playlist = new Playlist(library, new ArrayList<>(), new PlaybackQueue(library));
+            }
+
+            @Override
+            long run(int size) {
+                for(int start = 0; start < size; start += 10_000) {
+                    String[] titles = new String[Math.min(10_000, size - start)];
+                    for(int i = 0; i < titles.length; i++) {
+                        titles[i] = songTitle(start + i);
+                    }
+                    playlist.addSongsToPlaylist(titles);
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("Playlist add/remove album (1000 songs)") {
+            private Playlist playlist;
+
+            @Override
+            void setUp(int size) {
+                Library library = createLibrary(size);
+                library.addAlbumToLibrary("Box Set", "Artist 0");
+                String[] titles = new String[1_000];
+                int[] durations = new int[titles.length];
+                for(int i = 0; i < titles.length; i++) {
+                    titles[i] = "Track " + i;
+                    durations[i] = 180;
+                }
+                library.addSongsToAlbum("Box Set", titles, durations);
+                playlist = new Playlist(library, new ArrayList<>(), new PlaybackQueue(library), false);
+                for(int i = 0; i < size; i++) {
+                    playlist.addSongToPlaylist(songTitle(i));
+                }
+            }
+
+            @Override
+            long run(int size) {
+                // Only a reference is queued, so the length of the album does not matter
+                int rounds = 10_000;
+                for(int i = 0; i < rounds; i++) {
+                    playlist.addAlbumToPlaylist("Box Set");
+                    playlist.removeAlbumFromPlaylist("Box Set");
+                }
+                return 2L * rounds;
+            }
+        });
+        benchmarks.add(new Benchmark("Playlist.addInChronologicalOrder (random times)") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                // Songs added at random times, so that most go into the middle
+                Random random = new Random(size);
+                library = new Library(new ArrayList<>(size), new ArrayList<>());
+                library.setClock(() -> random.nextInt(Integer.MAX_VALUE));
+                for(int i = 0; i < size; i++) {
+                    library.addSongToLibrary(songTitle(i), songArtist(i), 60 + i % 300);
+                }
+                library.setClock(null);
+            }
+
+            @Override
+            long run(int size) {
+                Playlist playlist = new Playlist(library, new ArrayList<>(), new PlaybackQueue(library), false);
+                for(Song song : library.getSongsInLibrary()) {
+                    playlist.addInChronologicalOrder(song);
+                }
+                sink = playlist.getNewestSong().getDuration();
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("PlaylistRegistry (1000 users x 20 songs)") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = createLibrary(size);
+            }
+
+            @Override
+            long run(int size) {
+                PlaylistRegistry registry = new PlaylistRegistry(library);
+                for(int user = 0; user < 1000; user++) {
+                    Playlist playlist = registry.getOrCreate("user" + user, "favourites");
+                    for(int i = 0; i < 20; i++) {
+                        playlist.addSongToPlaylist(songTitle((user * 31 + i * 7919) % size));
+                    }
+                }
+                sink = registry.size();
+                return 1000 * 20;
+            }
+        });
+        benchmarks.add(new Benchmark("Playlist.searchForSong") {
+            private Playlist playlist;
+
+            @Override
+            void setUp(int size) {
+                playlist = createPlaylist(size);
+            }
+
+            @Override
+            long run(int size) {
+                long found = 0;
+                for(int i = 0; i < size; i++) {
+                    if(playlist.searchForSong(songTitle(i)) != null) {
+                        found++;
+                    }
+                }
+                sink = found;
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("Playlist.searchSongs (prefix, top 10)") {
+            private Playlist playlist;
+
+            @Override
+            void setUp(int size) {
+                playlist = createPlaylist(size);
+            }
+
+            @Override
+            long run(int size) {
+                long found = 0;
+                int queries = 1_000;
+                for(int i = 0; i < queries; i++) {
+                    // The title words are specific, the artist prefix matches many songs
+                    found += playlist.searchSongs("son " + (i * 7919 % size) + " art", 10).size();
+                }
+                sink = found;
+                return queries;
+            }
+        });
+        benchmarks.add(new Benchmark("Playlist.skipForwards/skipBackwards") {
+            private Playlist playlist;
+
+            @Override
+            void setUp(int size) {
+                playlist = createPlaylist(size);
+            }
+
+            @Override
+            long run(int size) {
+                long operations = 0;
+                playlist.play();
+                while(playlist.skipForwards() != null) {
+                    operations++;
+                }
+                while(playlist.skipBackwards() != null) {
+                    operations++;
+                }
+                return operations;
+            }
+        });
+        benchmarks.add(new Benchmark("Playlist.shuffle (start + 1000 skips)") {
+            private Playlist playlist;
+
+            @Override
+            void setUp(int size) {
+                playlist = createPlaylist(size);
+            }
+
+            @Override
+            long run(int size) {
+                long operations = 1;
+                playlist.shuffle();
+                for(int i = 0; i < 1000 && playlist.skipForwards() != null; i++) {
+                    operations++;
+                }
+                return operations;
+            }
+        });
+        benchmarks.add(new Benchmark("Listing of library songs") {
+            private Library library;
+
+            @Override
+            void setUp(int size) {
+                library = createLibrary(size);
+            }
+
+            @Override
+            long run(int size) {
+                ConsoleRenderer renderer = new ConsoleRenderer(DISCARD);
+                for(Song song : library.getSongsInLibrary()) {
+                    StringBuilder line = renderer.startItem();
+                    line.append(song.getTitle()).append("\n\t Artist: ").append(song.getArtist())
+                            .append("\n\t Duration: ");
+                    DurationFormatter.appendSongDuration(line, song.getDuration()).append("\n\t Date Added: ");
+                    TimeFormatter.appendTime(line, song.getAddedTime()).append('\n');
+                    renderer.endItem();
+                }
+                renderer.flush();
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("LibrarySnapshot.save") {
+            private Playlist playlist;
+            private Path file;
+
+            @Override
+            void setUp(int size) {
+                playlist = createPlaylist(size);
+                file = snapshotFile();
+            }
+
+            @Override
+            long run(int size) {
+                try {
+                    LibrarySnapshot.save(playlist, file);
+                    Files.delete(file);
+                }
+                catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("LibrarySnapshot.load") {
+            private Path file;
+
+            @Override
+            void setUp(int size) {
+                file = snapshotFile();
+                try {
+                    LibrarySnapshot.save(createPlaylist(size), file);
+                }
+                catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            long run(int size) {
+                try {
+                    sink = LibrarySnapshot.load(file).getLibrary().getSongsInLibrary().size();
+                    Files.delete(file);
+                }
+                catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("DurationFormatter.appendAlbumDuration") {
+            private StringBuilder builder;
+
+            @Override
+            void setUp(int size) {
+                builder = new StringBuilder(16);
+            }
+
+            @Override
+            long run(int size) {
+                long length = 0;
+                for(int i = 0; i < size; i++) {
+                    builder.setLength(0);
+                    length += DurationFormatter.appendAlbumDuration(builder, i).length();
+                }
+                sink = length;
+                return size;
+            }
+        });
+        return benchmarks;
+    }
+
+    /**
+     * Get a temporary file for
+     * the snapshot benchmarks.
+     *
+     * @return The temporary file
+     */
+    private static Path snapshotFile() {
+        try {
+            Path file = Files.createTempFile("playlist-benchmark", ".snapshot");
+            file.toFile().deleteOnExit();
+            return file;
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Warm up and then measure
+     * a single benchmark.
+     *
+     * @param benchmark The benchmark to measure
+     * @param size The number of items
+     */
+    private static void measure(Benchmark benchmark, int size) {
+        long bestNanos = Long.MAX_VALUE;
+        long totalNanos = 0;
+        long operations = 0;
+        for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            benchmark.setUp(size);
+            long start = System.nanoTime();
+            operations = benchmark.run(size);
+            long elapsed = System.nanoTime() - start;
+            if(round >= WARMUP_ROUNDS) {
+                bestNanos = Math.min(bestNanos, elapsed);
+                totalNanos += elapsed;
+            }
+        }
+        double averageNanos = (double) totalNanos / MEASURED_ROUNDS;
+        System.out.printf("%-40s %,12d %14.1f %14.1f %,16.0f%n", benchmark.name, size,
+                averageNanos / operations, (double) bestNanos / operations,
+                operations / (averageNanos / 1_000_000_000.0));
+    }
+
+    /**
+     * Measure a single benchmark at one
+     * size in a JVM of its own, printing
+     * its line of results.
+     *
+     * @param name The name of the benchmark (or of the memory report)
+     * @param size The number of items
+     */
+    private static void measureForked(String name, int size) {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+                .orElse(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java"));
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PlaylistBenchmark.class.getName());
+        command.add(FORKED);
+        command.add(name);
+        command.add(Integer.toString(size));
+        try {
+            Process fork = new ProcessBuilder(command).inheritIO().start();
+            if(fork.waitFor() != 0) {
+                System.out.printf("%-40s %,12d %s%n", name, size, "failed in its forked JVM");
+            }
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Measure the heap in use, after
+     * collecting as much garbage as possible.
+     *
+     * @return The bytes in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Print the heap used per song, for songs on
+     * their own and for songs held by a library
+     * (with every index the library keeps), and the
+     * bytes set aside by the song store, which are
+     * outside the heap unless it has the HEAP backing.
+     *
+     * The titles are new to the symbol table, so
+     * the cost of storing them is included.
+     *
+     * @param size The number of songs
+     */
+    private static void reportMemory(int size) {
+        long before = usedHeap();
+        List<Song> songs = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            songs.add(new Song("Memory " + size + " " + i, 60, songArtist(i), 0L));
+        }
+        long afterSongs = usedHeap();
+        Library library = new Library(new ArrayList<>(size), new ArrayList<>());
+        for(int i = 0; i < size; i++) {
+            library.addSongToLibrary("Library " + size + " " + i, songArtist(i), 60);
+        }
+        long afterLibrary = usedHeap();
+        System.out.printf("%-40s %,12d %,14d %,14d %,16d %,16d%n", "Memory per song (songs, library)", size,
+                (afterSongs - before) / size, (afterLibrary - afterSongs) / size, SymbolTable.SHARED.size(),
+                SongStore.SHARED.capacityBytes());
+        sink = songs.size() + library.getSongsInLibrary().size();
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args The sizes to measure and names of the benchmarks to run (optional)
+     */
+    public static void main(String[] args) {
+        if(args.length == 3 && args[0].equals(FORKED)) {
+            int size = Integer.parseInt(args[2]);
+            if(args[1].equals("Memory per song")) {
+                reportMemory(size);
+                return;
+            }
+            for(Benchmark benchmark : benchmarks()) {
+                if(benchmark.name.equals(args[1])) {
+                    measure(benchmark, size);
+                }
+            }
+            return;
+        }
+        boolean fork = Boolean.parseBoolean(System.getProperty("playlist.benchmark.fork", "true"));
+        List<Integer> sizes = new ArrayList<>();
+        List<String> filters = new ArrayList<>();
+        for(String arg : args) {
+            String number = arg.replace("_", "").replace(",", "");
+            if(!number.isEmpty() && number.chars().allMatch(Character::isDigit)) {
+                sizes.add(Integer.parseInt(number));
+            }
+            else {
+                filters.add(arg);
+            }
+        }
+        if(sizes.isEmpty()) {
+            for(int size : DEFAULT_SIZES) {
+                sizes.add(size);
+            }
+        }
+        if(filters.isEmpty() || filters.stream().anyMatch("Memory per song"::contains)) {
+            System.out.printf("%-40s %12s %14s %14s %16s %16s%n", "Memory report", "Items",
+                    "Bytes/song", "Bytes/library", "Symbols", "Store " + SongStore.SHARED.getBacking());
+            for(int size : sizes) {
+                if(fork) {
+                    measureForked("Memory per song", size);
+                }
+                else {
+                    reportMemory(size);
+                }
+            }
+        }
+        System.out.printf("%-40s %12s %14s %14s %16s%n", "Benchmark", "Items", "Avg ns/op", "Best ns/op", "Ops/sec");
+        for(Benchmark benchmark : benchmarks()) {
+            boolean selected = filters.isEmpty();
+            for(String filter : filters) {
+                selected |= benchmark.name.contains(filter);
+            }
+            if(selected) {
+                for(int size : sizes) {
+                    if(fork) {
+                        measureForked(benchmark.name, size);
+                    }
+                    else {
+                        measure(benchmark, size);
+                    }
+                }
+            }
+        }
+    }
+}